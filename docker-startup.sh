@@ -3,6 +3,7 @@
 set -eu
 RUN_MIGRATION=${RUN_MIGRATION:-false}
 RUN_APP=${RUN_APP:-true}
+RUN_PRODUCT_USAGE_BACKFILL=${RUN_PRODUCT_USAGE_BACKFILL:-false}
 
 java $JAVA_OPTS -jar *-allinone.jar waitOnDependencies *.yaml
 
@@ -10,6 +11,10 @@ if [ "$RUN_MIGRATION" == "true" ]; then
   java $JAVA_OPTS -jar *-allinone.jar db migrate *.yaml
 fi
 
+if [ "$RUN_PRODUCT_USAGE_BACKFILL" == "true" ]; then
+  java $JAVA_OPTS -jar *-allinone.jar backfillProductUsage *.yaml
+fi
+
 if [ "$RUN_APP" == "true" ]; then
   exec java $JAVA_OPTS -jar *-allinone.jar server *.yaml
 fi
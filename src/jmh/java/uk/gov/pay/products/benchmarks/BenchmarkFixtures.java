@@ -0,0 +1,65 @@
+package uk.gov.pay.products.benchmarks;
+
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.persistence.entity.ProductMetadataEntity;
+import uk.gov.pay.products.util.PaymentStatus;
+import uk.gov.pay.products.util.ProductType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static uk.gov.pay.products.fixtures.PaymentEntityFixture.aPaymentEntity;
+import static uk.gov.pay.products.fixtures.ProductEntityFixture.aProductEntity;
+import static uk.gov.pay.products.fixtures.ProductMetadataEntityFixture.aProductMetadataEntity;
+
+/**
+ * Entities shaped like a typical adhoc payment link: a friendly URL, a reference and a handful of reporting columns.
+ */
+final class BenchmarkFixtures {
+
+    static final String PRODUCTS_BASE_URL = "https://products.pymnt.localdomain";
+    static final String PRODUCTS_UI_URL = "https://products-ui.pymnt.localdomain/pay";
+    static final String FRIENDLY_BASE_URL = "https://products-ui.pymnt.localdomain/redirect";
+    static final int METADATA_ENTRIES = 5;
+
+    private BenchmarkFixtures() {
+    }
+
+    static ProductEntity aProduct() {
+        ProductEntity productEntity = aProductEntity()
+                .withName("Pay for a parking permit")
+                .withDescription("Residents' parking permit for zones A to F, valid for 12 months")
+                .withType(ProductType.ADHOC)
+                .withPrice(5000L)
+                .withGatewayAccountId(1234)
+                .withReturnUrl("https://a-service.gov.uk/permits/complete")
+                .withReferenceEnabled(true)
+                .withReferenceLabel("Permit application number")
+                .withReferenceHint("You can find this on your application confirmation email")
+                .withProductPath("a-council", "parking-permit")
+                .build();
+        productEntity.setMetadataEntityList(metadata(productEntity));
+        return productEntity;
+    }
+
+    static PaymentEntity aPayment(ProductEntity productEntity) {
+        return aPaymentEntity()
+                .withProduct(productEntity)
+                .withStatus(PaymentStatus.SUBMITTED)
+                .withAmount(productEntity.getPrice())
+                .withNextUrl("https://www.payments.service.gov.uk/secure/8a2f3b6c-0e1d-4f7a-9c3b-5d6e7f8a9b0c")
+                .build();
+    }
+
+    private static List<ProductMetadataEntity> metadata(ProductEntity productEntity) {
+        return IntStream.range(0, METADATA_ENTRIES)
+                .mapToObj(i -> aProductMetadataEntity()
+                        .withProductEntity(productEntity)
+                        .withMetadataKey("reporting-column-" + i)
+                        .withMetadataValue("cost-centre-" + (1000 + i))
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package uk.gov.pay.products.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+/**
+ * Looks a product up by external id against a local Postgres, comparing a JPQL string built on each call with the
+ * {@link ProductEntity#FIND_BY_EXTERNAL_ID} named query, with pgjdbc preparing statements on the server straight away
+ * ({@code prepareThreshold} 1) or never (0).
+ * <p>
+ * Needs a database, set with the {@code BENCHMARK_DB_URL}, {@code BENCHMARK_DB_USER} and {@code BENCHMARK_DB_PASSWORD}
+ * environment variables, which is migrated before the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindByExternalIdBenchmark {
+
+    private static final String FIND_BY_EXTERNAL_ID_JPQL =
+            "SELECT product FROM ProductEntity product WHERE product.externalId = :externalId";
+
+    @Param({"0", "1"})
+    private String prepareThreshold;
+
+    private ManagedDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private String externalId;
+
+    @Setup
+    public void setup() throws Exception {
+        DataSourceFactory dataSourceFactory = new DataSourceFactory();
+        dataSourceFactory.setDriverClass("org.postgresql.Driver");
+        dataSourceFactory.setUrl(environment("BENCHMARK_DB_URL", "jdbc:postgresql://localhost:5432/products_benchmark"));
+        dataSourceFactory.setUser(environment("BENCHMARK_DB_USER", "postgres"));
+        dataSourceFactory.setPassword(environment("BENCHMARK_DB_PASSWORD", "mysecretpassword"));
+        dataSourceFactory.setProperties(Map.of("prepareThreshold", prepareThreshold));
+        dataSourceFactory.setMinSize(1);
+        dataSourceFactory.setInitialSize(1);
+        dataSourceFactory.setMaxSize(1);
+        dataSource = dataSourceFactory.build(new MetricRegistry(), "benchmark");
+        dataSource.start();
+
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update("");
+        }
+
+        entityManagerFactory = Persistence.createEntityManagerFactory("ProductsUnit", Map.of(
+                PersistenceUnitProperties.NON_JTA_DATASOURCE, dataSource,
+                PersistenceUnitProperties.CACHE_SHARED_DEFAULT, "false",
+                PersistenceUnitProperties.LOGGING_LEVEL, "WARNING"));
+        entityManager = entityManagerFactory.createEntityManager();
+
+        ProductEntity productEntity = BenchmarkFixtures.aProduct();
+        productEntity.setProductNamePath(randomUuid());
+        entityManager.getTransaction().begin();
+        entityManager.persist(productEntity);
+        entityManager.getTransaction().commit();
+        externalId = productEntity.getExternalId();
+        entityManager.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        entityManager.close();
+        entityManagerFactory.close();
+        dataSource.stop();
+    }
+
+    @Benchmark
+    public List<ProductEntity> jpqlString() {
+        List<ProductEntity> products = entityManager
+                .createQuery(FIND_BY_EXTERNAL_ID_JPQL, ProductEntity.class)
+                .setParameter("externalId", externalId)
+                .getResultList();
+        entityManager.clear();
+        return products;
+    }
+
+    @Benchmark
+    public List<ProductEntity> namedQuery() {
+        List<ProductEntity> products = entityManager
+                .createNamedQuery(ProductEntity.FIND_BY_EXTERNAL_ID, ProductEntity.class)
+                .setParameter("externalId", externalId)
+                .getResultList();
+        entityManager.clear();
+        return products;
+    }
+
+    private static String environment(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : value;
+    }
+}
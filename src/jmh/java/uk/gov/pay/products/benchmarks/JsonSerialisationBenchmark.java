@@ -0,0 +1,69 @@
+package uk.gov.pay.products.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.Product;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.LinksDecorator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.FRIENDLY_BASE_URL;
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.PRODUCTS_BASE_URL;
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.PRODUCTS_UI_URL;
+
+/**
+ * Serialises decorated models with the same {@link ObjectMapper} set-up Dropwizard gives the Jersey resources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerialisationBenchmark {
+
+    @Param({"1", "100"})
+    private int payments;
+
+    private ObjectMapper objectMapper;
+    private Product product;
+    private List<Payment> paymentList;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson.newObjectMapper();
+        LinksDecorator linksDecorator = new LinksDecorator(PRODUCTS_BASE_URL, PRODUCTS_UI_URL, FRIENDLY_BASE_URL);
+        ProductEntity productEntity = BenchmarkFixtures.aProduct();
+        product = linksDecorator.decorate(productEntity.toProduct());
+        paymentList = IntStream.range(0, payments)
+                .mapToObj(i -> linksDecorator.decorate(BenchmarkFixtures.aPayment(productEntity).toPayment()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] serialiseProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serialisePayments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(paymentList);
+    }
+}
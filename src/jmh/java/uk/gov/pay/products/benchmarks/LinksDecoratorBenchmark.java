@@ -0,0 +1,57 @@
+package uk.gov.pay.products.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.Product;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.LinksDecorator;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.FRIENDLY_BASE_URL;
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.PRODUCTS_BASE_URL;
+import static uk.gov.pay.products.benchmarks.BenchmarkFixtures.PRODUCTS_UI_URL;
+
+/**
+ * {@link LinksDecorator} appends to the links of the model it is given, so each invocation decorates a freshly
+ * converted model. Subtract the matching {@link ProductEntityBenchmark} score to get the cost of decoration alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinksDecoratorBenchmark {
+
+    private LinksDecorator linksDecorator;
+    private ProductEntity productEntity;
+    private PaymentEntity paymentEntity;
+
+    @Setup
+    public void setup() {
+        linksDecorator = new LinksDecorator(PRODUCTS_BASE_URL, PRODUCTS_UI_URL, FRIENDLY_BASE_URL);
+        productEntity = BenchmarkFixtures.aProduct();
+        paymentEntity = BenchmarkFixtures.aPayment(productEntity);
+    }
+
+    @Benchmark
+    public Product decorateProduct() {
+        return linksDecorator.decorate(productEntity.toProduct());
+    }
+
+    @Benchmark
+    public Payment decoratePayment() {
+        return linksDecorator.decorate(paymentEntity.toPayment());
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.pay.products.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.Product;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductEntityBenchmark {
+
+    private ProductEntity productEntity;
+    private PaymentEntity paymentEntity;
+
+    @Setup
+    public void setup() {
+        productEntity = BenchmarkFixtures.aProduct();
+        paymentEntity = BenchmarkFixtures.aPayment(productEntity);
+    }
+
+    @Benchmark
+    public Product toProduct() {
+        return productEntity.toProduct();
+    }
+
+    @Benchmark
+    public Map<String, String> toProductMetadataMap() {
+        return productEntity.toProductMetadataMap();
+    }
+
+    @Benchmark
+    public Payment toPayment() {
+        return paymentEntity.toPayment();
+    }
+}
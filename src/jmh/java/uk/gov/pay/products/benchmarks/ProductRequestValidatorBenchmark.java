@@ -0,0 +1,87 @@
+package uk.gov.pay.products.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.config.ProductsConfiguration;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.util.Errors;
+import uk.gov.pay.products.util.ProductType;
+import uk.gov.pay.products.validations.ProductRequestValidator;
+import uk.gov.pay.products.validations.ProductsMetadataRequestValidator;
+import uk.gov.pay.products.validations.RequestValidations;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.products.model.Product.FIELD_GATEWAY_ACCOUNT_ID;
+import static uk.gov.pay.products.model.Product.FIELD_LANGUAGE;
+import static uk.gov.pay.products.model.Product.FIELD_METADATA;
+import static uk.gov.pay.products.model.Product.FIELD_NAME;
+import static uk.gov.pay.products.model.Product.FIELD_PAY_API_TOKEN;
+import static uk.gov.pay.products.model.Product.FIELD_PRICE;
+import static uk.gov.pay.products.model.Product.FIELD_PRODUCT_NAME_PATH;
+import static uk.gov.pay.products.model.Product.FIELD_REFERENCE_ENABLED;
+import static uk.gov.pay.products.model.Product.FIELD_REFERENCE_HINT;
+import static uk.gov.pay.products.model.Product.FIELD_REFERENCE_LABEL;
+import static uk.gov.pay.products.model.Product.FIELD_RETURN_URL;
+import static uk.gov.pay.products.model.Product.FIELD_SERVICE_NAME_PATH;
+import static uk.gov.pay.products.model.Product.FIELD_TYPE;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRequestValidatorBenchmark {
+
+    private ProductRequestValidator productRequestValidator;
+    private JsonNode validPayload;
+    private JsonNode invalidPayload;
+
+    @Setup
+    public void setup() {
+        productRequestValidator = new ProductRequestValidator(new RequestValidations(), new ProductsConfiguration(),
+                new ProductsMetadataRequestValidator());
+        ObjectMapper objectMapper = new ObjectMapper();
+        ProductEntity product = BenchmarkFixtures.aProduct();
+        validPayload = objectMapper.createObjectNode()
+                .put(FIELD_GATEWAY_ACCOUNT_ID, product.getGatewayAccountId())
+                .put(FIELD_PAY_API_TOKEN, product.getPayApiToken())
+                .put(FIELD_NAME, product.getName())
+                .put(FIELD_PRICE, product.getPrice())
+                .put(FIELD_TYPE, ProductType.ADHOC.toString())
+                .put(FIELD_RETURN_URL, product.getReturnUrl())
+                .put(FIELD_SERVICE_NAME_PATH, product.getServiceNamePath())
+                .put(FIELD_PRODUCT_NAME_PATH, product.getProductNamePath())
+                .put(FIELD_REFERENCE_ENABLED, product.getReferenceEnabled())
+                .put(FIELD_REFERENCE_LABEL, product.getReferenceLabel())
+                .put(FIELD_REFERENCE_HINT, product.getReferenceHint())
+                .put(FIELD_LANGUAGE, product.getLanguage().toString())
+                .set(FIELD_METADATA, objectMapper.valueToTree(product.toProductMetadataMap()));
+        invalidPayload = objectMapper.createObjectNode()
+                .put(FIELD_GATEWAY_ACCOUNT_ID, product.getGatewayAccountId())
+                .put(FIELD_NAME, product.getName())
+                .put(FIELD_RETURN_URL, "not a url");
+    }
+
+    @Benchmark
+    public Optional<Errors> validateCreateRequest() {
+        return productRequestValidator.validateCreateRequest(validPayload);
+    }
+
+    @Benchmark
+    public Optional<Errors> validateCreateRequest_withErrors() {
+        return productRequestValidator.validateCreateRequest(invalidPayload);
+    }
+}
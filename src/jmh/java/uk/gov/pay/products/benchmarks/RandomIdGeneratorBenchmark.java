@@ -0,0 +1,37 @@
+package uk.gov.pay.products.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.pay.products.util.RandomIdGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class RandomIdGeneratorBenchmark {
+
+    @Benchmark
+    public String randomUuid() {
+        return RandomIdGenerator.randomUuid();
+    }
+
+    @Benchmark
+    public String randomUserFriendlyReference() {
+        return RandomIdGenerator.randomUserFriendlyReference();
+    }
+
+    @Benchmark
+    public Integer randomInt() {
+        return RandomIdGenerator.randomInt();
+    }
+}
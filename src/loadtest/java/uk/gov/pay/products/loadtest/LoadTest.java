@@ -0,0 +1,134 @@
+package uk.gov.pay.products.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.testing.DropwizardTestSupport;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.ProductsApplication;
+import uk.gov.pay.products.config.ProductsConfiguration;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.dropwizard.testing.ConfigOverride.config;
+import static io.dropwizard.testing.ResourceHelpers.resourceFilePath;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.products.config.ProductsModule.DATA_SOURCE_NAME;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+/**
+ * Boots the application against a local Postgres with publicapi and publicauth replaced by a
+ * {@link PublicApiSimulator}, drives it with {@link TrafficDriver} and writes the results as JSON.
+ * <p>
+ * Run with {@code mvn -Ploadtest test-compile exec:java@run-load-test}; see {@link LoadTestSettings} for the knobs.
+ */
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        migrate(settings);
+
+        PublicApiSimulator simulator = new PublicApiSimulator(settings);
+        simulator.start();
+        DropwizardTestSupport<ProductsConfiguration> app = new DropwizardTestSupport<>(ProductsApplication.class,
+                resourceFilePath("config/test-it-config.yaml"),
+                config("database.url", settings.databaseUrl),
+                config("database.user", settings.databaseUser),
+                config("database.password", settings.databasePassword),
+                config("publicApiUrl", simulator.baseUrl()),
+                config("publicAuthUrl", simulator.baseUrl()),
+                config("jerseyClientConfiguration.readTimeout", settings.publicApiClientReadTimeout),
+                config("logging.level", "WARN"));
+        app.before();
+        try {
+            String productsUrl = "http://localhost:" + app.getLocalPort();
+            TrafficDriver driver = new TrafficDriver(settings, productsUrl, createProducts(settings, productsUrl));
+            driver.seedPayments();
+
+            PoolSaturationSampler sampler = new PoolSaturationSampler(settings, app.getEnvironment().metrics(),
+                    DATA_SOURCE_NAME, app.getConfiguration().getDataSourceFactory().getMaxSize());
+            sampler.start(settings.warmup);
+            Map<Operation, OperationStats> stats = driver.run();
+            Map<String, Object> pool = sampler.stop();
+
+            writeResults(settings, stats, pool);
+        } finally {
+            app.after();
+            simulator.stop();
+        }
+    }
+
+    private static void migrate(LoadTestSettings settings) throws Exception {
+        try (Connection connection = DriverManager.getConnection(settings.databaseUrl, settings.databaseUser, settings.databasePassword)) {
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update("");
+        }
+    }
+
+    private static List<String> createProducts(LoadTestSettings settings, String productsUrl) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpClient httpClient = HttpClient.newHttpClient();
+        String run = randomUuid().substring(0, 8);
+        List<String> externalIds = new ArrayList<>();
+        for (int i = 0; i < settings.products; i++) {
+            Map<String, Object> product = new LinkedHashMap<>();
+            product.put("gateway_account_id", 1000 + i);
+            product.put("pay_api_token", randomUuid());
+            product.put("name", "Load test product " + i);
+            product.put("price", 1000 + i);
+            product.put("type", "ADHOC");
+            product.put("return_url", "https://products.localdomain/return");
+            product.put("service_name_path", "load-test-" + run);
+            product.put("product_name_path", "product-" + i);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(productsUrl + "/v1/api/products"))
+                    .header(CONTENT_TYPE, APPLICATION_JSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(product)))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Could not create load test product, products responded " +
+                        response.statusCode() + ": " + response.body());
+            }
+            externalIds.add(objectMapper.readTree(response.body()).get("external_id").asText());
+        }
+        return externalIds;
+    }
+
+    private static void writeResults(LoadTestSettings settings, Map<Operation, OperationStats> stats,
+                                     Map<String, Object> pool) throws Exception {
+        double measuredSeconds = settings.duration.toMillis() / 1000d;
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("target_requests_per_second", settings.requestsPerSecond);
+        results.put("measured_seconds", measuredSeconds);
+        Map<String, Object> publicApi = new LinkedHashMap<>();
+        publicApi.put("median_latency_millis", settings.publicApiMedianLatencyMillis);
+        publicApi.put("latency_sigma", settings.publicApiLatencySigma);
+        publicApi.put("error_rate", settings.publicApiErrorRate);
+        publicApi.put("timeout_rate", settings.publicApiTimeoutRate);
+        results.put("public_api", publicApi);
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((operation, operationStats) ->
+                operations.put(operation.name().toLowerCase(), operationStats.summarise(measuredSeconds)));
+        results.put("operations", operations);
+        results.put("database_connections", pool);
+
+        File resultsFile = new File(settings.resultsFile);
+        resultsFile.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(resultsFile, results);
+        logger.info("Load test results written to {}", resultsFile.getAbsolutePath());
+    }
+}
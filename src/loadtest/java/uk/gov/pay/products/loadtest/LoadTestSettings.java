@@ -0,0 +1,45 @@
+package uk.gov.pay.products.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Load test knobs, read from {@code -Dloadtest.*} system properties so that runs can be scripted from Maven.
+ */
+class LoadTestSettings {
+
+    final String databaseUrl = property("loadtest.db.url", "jdbc:postgresql://localhost:5432/products_loadtest");
+    final String databaseUser = property("loadtest.db.user", "postgres");
+    final String databasePassword = property("loadtest.db.password", "mysecretpassword");
+
+    final int requestsPerSecond = intProperty("loadtest.rate", 100);
+    final Duration warmup = Duration.ofSeconds(intProperty("loadtest.warmupSeconds", 30));
+    final Duration duration = Duration.ofSeconds(intProperty("loadtest.durationSeconds", 120));
+    final int maxInFlight = intProperty("loadtest.maxInFlight", 512);
+    final int products = intProperty("loadtest.products", 50);
+
+    final int createWeight = intProperty("loadtest.mix.create", 40);
+    final int readWeight = intProperty("loadtest.mix.read", 40);
+    final int listWeight = intProperty("loadtest.mix.list", 20);
+    final int listPageSize = intProperty("loadtest.listPageSize", 20);
+
+    final long publicApiMedianLatencyMillis = intProperty("loadtest.publicapi.medianLatencyMillis", 150);
+    final double publicApiLatencySigma = doubleProperty("loadtest.publicapi.latencySigma", 0.5);
+    final double publicApiErrorRate = doubleProperty("loadtest.publicapi.errorRate", 0.0);
+    final double publicApiTimeoutRate = doubleProperty("loadtest.publicapi.timeoutRate", 0.0);
+    final long publicApiTimeoutMillis = intProperty("loadtest.publicapi.timeoutMillis", 10000);
+    final String publicApiClientReadTimeout = property("loadtest.publicapi.clientReadTimeout", "5s");
+
+    final String resultsFile = property("loadtest.resultsFile", "target/loadtest-results.json");
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(property(name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        return Double.parseDouble(property(name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,7 @@
+package uk.gov.pay.products.loadtest;
+
+enum Operation {
+    CREATE_PAYMENT,
+    READ_PAYMENT,
+    LIST_PAYMENTS
+}
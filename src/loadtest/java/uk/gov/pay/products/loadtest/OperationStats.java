@@ -0,0 +1,61 @@
+package uk.gov.pay.products.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcomes of one {@link Operation}. Latency is measured from when the request was due to be sent rather
+ * than when it was sent, so a stalled server shows up in the tail instead of quietly lowering the request rate.
+ */
+class OperationStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Histogram latencyMicros = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<Integer, LongAdder> responsesByStatus = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+
+    void recordResponse(int status, long latencyNanos) {
+        responsesByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+        recordLatency(latencyNanos);
+    }
+
+    void recordFailure(long latencyNanos) {
+        failures.increment();
+        recordLatency(latencyNanos);
+    }
+
+    Map<String, Object> summarise(double measuredSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long count = latencyMicros.getTotalCount();
+        summary.put("requests", count);
+        summary.put("throughput_per_second", count / measuredSeconds);
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        responsesByStatus.forEach((status, total) -> statuses.put(String.valueOf(status), total.sum()));
+        summary.put("responses_by_status", statuses);
+        summary.put("failures", failures.sum());
+        Map<String, Double> latency = new LinkedHashMap<>();
+        latency.put("mean", latencyMicros.getMean() / 1000d);
+        latency.put("p50", percentileMillis(50));
+        latency.put("p90", percentileMillis(90));
+        latency.put("p99", percentileMillis(99));
+        latency.put("p999", percentileMillis(99.9));
+        latency.put("max", latencyMicros.getMaxValue() / 1000d);
+        summary.put("latency_millis", latency);
+        return summary;
+    }
+
+    private double percentileMillis(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000d;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        latencyMicros.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+}
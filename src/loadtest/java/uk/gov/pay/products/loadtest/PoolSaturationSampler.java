@@ -0,0 +1,128 @@
+package uk.gov.pay.products.loadtest;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import io.dropwizard.db.ManagedPooledDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the application's database connections from {@code pg_stat_activity}. Sampling on the server side means
+ * the figures do not depend on which connection pool the application is running with. A sample counts as saturated
+ * when every open connection is busy, which is when further requests start queueing for a connection. The cache
+ * invalidation listener's connection sits in {@code LISTEN} outside the pool and is left out.
+ * <p>
+ * The application's own pool gauges and wait timer are sampled alongside, to show whether the pool serving JPA
+ * kept to the {@code database.maxSize} it was configured with.
+ */
+class PoolSaturationSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolSaturationSampler.class);
+    private static final long SAMPLE_INTERVAL_MILLIS = 100L;
+    private static final String SAMPLE_QUERY = "SELECT count(*), " +
+            "count(*) FILTER (WHERE state = 'active' OR state LIKE 'idle in transaction%') " +
+            "FROM pg_stat_activity WHERE datname = current_database() AND pid <> pg_backend_pid() " +
+            "AND query NOT LIKE 'LISTEN %'";
+
+    private final LoadTestSettings settings;
+    private final MetricRegistry applicationMetrics;
+    private final String poolName;
+    private final int configuredMaxSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private Connection connection;
+    private long measureFrom;
+    private long samples;
+    private long saturatedSamples;
+    private long busyTotal;
+    private long maxOpen;
+    private long maxBusy;
+    private long maxPoolActive;
+    private long maxPoolWaiting;
+
+    PoolSaturationSampler(LoadTestSettings settings, MetricRegistry applicationMetrics, String poolName,
+                          int configuredMaxSize) {
+        this.settings = settings;
+        this.applicationMetrics = applicationMetrics;
+        this.poolName = poolName;
+        this.configuredMaxSize = configuredMaxSize;
+    }
+
+    void start(Duration warmup) throws SQLException {
+        measureFrom = System.nanoTime() + warmup.toNanos();
+        connection = DriverManager.getConnection(settings.databaseUrl, settings.databaseUser, settings.databasePassword);
+        scheduler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Map<String, Object> stop() throws InterruptedException, SQLException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        connection.close();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("samples", samples);
+        summary.put("max_open_connections", maxOpen);
+        summary.put("max_busy_connections", maxBusy);
+        summary.put("mean_busy_connections", samples == 0 ? 0d : (double) busyTotal / samples);
+        summary.put("saturated_sample_ratio", samples == 0 ? 0d : (double) saturatedSamples / samples);
+
+        Snapshot wait = applicationMetrics.timer(poolMetric("wait")).getSnapshot();
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("configured_max_size", configuredMaxSize);
+        pool.put("max_active", maxPoolActive);
+        pool.put("max_waiting", maxPoolWaiting);
+        pool.put("max_size_respected", maxPoolActive <= configuredMaxSize);
+        pool.put("wait_p50_millis", wait.getMedian() / 1_000_000d);
+        pool.put("wait_p99_millis", wait.get99thPercentile() / 1_000_000d);
+        pool.put("wait_max_millis", wait.getMax() / 1_000_000d);
+        pool.put("wait_timeouts", applicationMetrics.meter(poolMetric("wait-timeouts")).getCount());
+        pool.put("connection_failures", applicationMetrics.meter(poolMetric("connection-failures")).getCount());
+        summary.put("application_pool", pool);
+        return summary;
+    }
+
+    private void sample() {
+        if (System.nanoTime() < measureFrom) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SAMPLE_QUERY);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            long open = resultSet.getLong(1);
+            long busy = resultSet.getLong(2);
+            samples++;
+            busyTotal += busy;
+            maxOpen = Math.max(maxOpen, open);
+            maxBusy = Math.max(maxBusy, busy);
+            if (open > 0 && busy >= open) {
+                saturatedSamples++;
+            }
+            maxPoolActive = Math.max(maxPoolActive, poolGauge("active"));
+            maxPoolWaiting = Math.max(maxPoolWaiting, poolGauge("waiting"));
+        } catch (SQLException e) {
+            logger.warn("Failed to sample database connections: {}", e.getMessage());
+        }
+    }
+
+    private long poolGauge(String name) {
+        Gauge<?> gauge = applicationMetrics.getGauges().get(poolMetric(name));
+        return gauge == null ? 0L : ((Number) gauge.getValue()).longValue();
+    }
+
+    private String poolMetric(String name) {
+        return MetricRegistry.name(ManagedPooledDataSource.class, poolName, name);
+    }
+}
@@ -0,0 +1,142 @@
+package uk.gov.pay.products.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static uk.gov.pay.products.service.ProductApiTokenManager.NEW_API_TOKEN_PATH;
+import static uk.gov.pay.products.stubs.publicapi.PublicApiStub.createErrorPayload;
+import static uk.gov.pay.products.stubs.publicapi.PublicApiStub.createPaymentResponsePayload;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+/**
+ * Stands in for publicapi and publicauth, answering with the payloads from {@code PublicApiStub}.
+ * <p>
+ * Every publicapi response is delayed by a log-normal sample around the configured median. A configured share of
+ * responses fail with a 500, and another share are held for {@code timeoutMillis} so that the products client
+ * times out on them.
+ */
+class PublicApiSimulator {
+
+    private static final String PAYMENTS_PATH = "/v1/payments";
+    private static final String TRANSFORMER_NAME = "public-api-simulator";
+
+    private final WireMockServer server;
+
+    PublicApiSimulator(LoadTestSettings settings) {
+        server = new WireMockServer(options()
+                .dynamicPort()
+                .containerThreads(Math.max(64, settings.maxInFlight))
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(Math.max(16, settings.maxInFlight / 4))
+                .extensions(new SimulatedResponses(settings)));
+    }
+
+    void start() {
+        server.start();
+        server.stubFor(post(urlPathEqualTo(PAYMENTS_PATH))
+                .willReturn(aResponse().withTransformers(TRANSFORMER_NAME)));
+        server.stubFor(get(urlPathMatching(PAYMENTS_PATH + "/[^/]+"))
+                .willReturn(aResponse().withTransformers(TRANSFORMER_NAME)));
+        server.stubFor(post(urlPathEqualTo(NEW_API_TOKEN_PATH))
+                .willReturn(aResponse().withStatus(200)
+                        .withHeader(CONTENT_TYPE, APPLICATION_JSON)
+                        .withBody("{\"token\": \"" + randomUuid() + "\"}")));
+    }
+
+    void stop() {
+        server.stop();
+    }
+
+    String baseUrl() {
+        return server.baseUrl();
+    }
+
+    private static class SimulatedResponses extends ResponseDefinitionTransformer {
+
+        private static final ObjectMapper objectMapper = new ObjectMapper();
+
+        private final LoadTestSettings settings;
+
+        SimulatedResponses(LoadTestSettings settings) {
+            this.settings = settings;
+        }
+
+        @Override
+        public String getName() {
+            return TRANSFORMER_NAME;
+        }
+
+        @Override
+        public boolean applyGlobally() {
+            return false;
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition,
+                                            FileSource files, Parameters parameters) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double outcome = random.nextDouble();
+            if (outcome < settings.publicApiTimeoutRate) {
+                return respond(500, createErrorPayload(), settings.publicApiTimeoutMillis);
+            }
+            long latencyMillis = Math.round(settings.publicApiMedianLatencyMillis *
+                    Math.exp(settings.publicApiLatencySigma * random.nextGaussian()));
+            if (outcome < settings.publicApiTimeoutRate + settings.publicApiErrorRate) {
+                return respond(500, createErrorPayload(), latencyMillis);
+            }
+            if (request.getUrl().startsWith(PAYMENTS_PATH + "/")) {
+                String paymentId = request.getUrl().substring(PAYMENTS_PATH.length() + 1);
+                return respond(200, aPayment(paymentId, 1000L, "reference", "description"), latencyMillis);
+            }
+            JsonNode paymentRequest = parse(request.getBodyAsString());
+            return respond(201, aPayment(randomUuid(),
+                    paymentRequest.path("amount").asLong(),
+                    paymentRequest.path("reference").asText(),
+                    paymentRequest.path("description").asText()), latencyMillis);
+        }
+
+        private static JsonObject aPayment(String paymentId, long amount, String reference, String description) {
+            return createPaymentResponsePayload(paymentId, amount, reference, description,
+                    "https://products.localdomain/return", "https://card-frontend.localdomain/secure/" + paymentId,
+                    "en", Map.of());
+        }
+
+        private static ResponseDefinition respond(int status, JsonObject body, long delayMillis) {
+            return new ResponseDefinitionBuilder()
+                    .withStatus(status)
+                    .withHeader(CONTENT_TYPE, APPLICATION_JSON)
+                    .withBody(body.toString())
+                    .withFixedDelay((int) delayMillis)
+                    .build();
+        }
+
+        private static JsonNode parse(String body) {
+            try {
+                return objectMapper.readTree(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package uk.gov.pay.products.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * Sends a weighted mix of create, read and list requests at a fixed rate (an open workload), whether or not earlier
+ * requests have completed, and records them in {@link OperationStats} once the warm-up is over.
+ */
+class TrafficDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficDriver.class);
+    private static final int KNOWN_PAYMENTS = 4096;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestSettings settings;
+    private final String productsUrl;
+    private final List<String> productExternalIds;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicReferenceArray<String> knownPayments = new AtomicReferenceArray<>(KNOWN_PAYMENTS);
+    private final AtomicLong paymentsCreated = new AtomicLong();
+
+    TrafficDriver(LoadTestSettings settings, String productsUrl, List<String> productExternalIds) {
+        this.settings = settings;
+        this.productsUrl = productsUrl;
+        this.productExternalIds = productExternalIds;
+        this.executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Creates a payment for every product so that reads and lists have something to find from the first request.
+     */
+    void seedPayments() {
+        for (String productExternalId : productExternalIds) {
+            HttpResponse<String> response = send(createPayment(productExternalId)).join();
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Could not seed a payment for product " + productExternalId +
+                        ", products responded " + response.statusCode() + ": " + response.body());
+            }
+            rememberPayment(response.body());
+        }
+    }
+
+    Map<Operation, OperationStats> run() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(settings.maxInFlight);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.requestsPerSecond;
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup.toNanos();
+        long end = measureFrom + settings.duration.toNanos();
+        logger.info("Driving {} requests per second, warming up for {} and measuring for {}",
+                settings.requestsPerSecond, settings.warmup, settings.duration);
+
+        for (long i = 0; ; i++) {
+            long dueAt = start + i * intervalNanos;
+            if (dueAt >= end) {
+                break;
+            }
+            long wait = dueAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Operation operation = nextOperation();
+            OperationStats operationStats = dueAt >= measureFrom ? stats.get(operation) : null;
+            send(request(operation)).whenComplete((response, failure) -> {
+                inFlight.release();
+                long latencyNanos = System.nanoTime() - dueAt;
+                if (failure != null) {
+                    if (operationStats != null) {
+                        operationStats.recordFailure(latencyNanos);
+                    }
+                    return;
+                }
+                if (operation == Operation.CREATE_PAYMENT && response.statusCode() == 201) {
+                    rememberPayment(response.body());
+                }
+                if (operationStats != null) {
+                    operationStats.recordResponse(response.statusCode(), latencyNanos);
+                }
+            });
+        }
+        inFlight.acquire(settings.maxInFlight);
+        executor.shutdown();
+        return stats;
+    }
+
+    private Operation nextOperation() {
+        int total = settings.createWeight + settings.readWeight + settings.listWeight;
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        if (pick < settings.createWeight) {
+            return Operation.CREATE_PAYMENT;
+        }
+        return pick < settings.createWeight + settings.readWeight ? Operation.READ_PAYMENT : Operation.LIST_PAYMENTS;
+    }
+
+    private HttpRequest request(Operation operation) {
+        switch (operation) {
+            case CREATE_PAYMENT:
+                return createPayment(randomProduct());
+            case READ_PAYMENT:
+                return get("/v1/api/payments/" + randomPayment());
+            default:
+                return get("/v1/api/products/" + randomProduct() + "/payments?page_size=" + settings.listPageSize);
+        }
+    }
+
+    private HttpRequest createPayment(String productExternalId) {
+        return HttpRequest.newBuilder(URI.create(productsUrl + "/v1/api/products/" + productExternalId + "/payments"))
+                .timeout(REQUEST_TIMEOUT)
+                .header(CONTENT_TYPE, APPLICATION_JSON)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(productsUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String randomProduct() {
+        return productExternalIds.get(ThreadLocalRandom.current().nextInt(productExternalIds.size()));
+    }
+
+    // A slot can be claimed a moment before it is filled, in which case fall back to a seeded payment
+    private String randomPayment() {
+        int known = (int) Math.min(paymentsCreated.get(), KNOWN_PAYMENTS);
+        String externalId = knownPayments.get(ThreadLocalRandom.current().nextInt(known));
+        return externalId != null ? externalId : knownPayments.get(0);
+    }
+
+    private void rememberPayment(String createdPayment) {
+        try {
+            String externalId = objectMapper.readTree(createdPayment).get("external_id").asText();
+            knownPayments.set((int) (paymentsCreated.getAndIncrement() % KNOWN_PAYMENTS), externalId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -13,11 +13,15 @@ import io.dropwizard.jersey.setup.JerseyEnvironment;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.exporter.MetricsServlet;
 import uk.gov.pay.commons.utils.healthchecks.DatabaseHealthCheck;
 import uk.gov.pay.commons.utils.metrics.DatabaseMetricsService;
 import uk.gov.pay.logging.GovUkPayDropwizardRequestJsonLogLayoutFactory;
 import uk.gov.pay.logging.LoggingFilter;
 import uk.gov.pay.logging.LogstashConsoleAppenderFactory;
+import uk.gov.pay.products.commands.ProductUsageBackfillCommand;
 import uk.gov.pay.products.config.PersistenceServiceInitialiser;
 import uk.gov.pay.products.config.ProductsConfiguration;
 import uk.gov.pay.products.config.ProductsModule;
@@ -26,15 +30,24 @@ import uk.gov.pay.products.exception.mapper.FailToReplaceApiTokenExceptionMapper
 import uk.gov.pay.products.exception.mapper.MetadataNotFoundExceptionMapper;
 import uk.gov.pay.products.exception.mapper.FailToGetNewApiTokenExceptionMapper;
 import uk.gov.pay.products.exception.mapper.PaymentCreationExceptionMapper;
+import uk.gov.pay.products.exception.mapper.PaymentCreationRejectedExceptionMapper;
 import uk.gov.pay.products.exception.mapper.PaymentCreatorNotFoundExceptionMapper;
 import uk.gov.pay.products.exception.mapper.ProductNotFoundExceptionMapper;
 import uk.gov.pay.products.filters.LoggingMDCRequestFilter;
 import uk.gov.pay.products.filters.LoggingMDCResponseFilter;
 import uk.gov.pay.products.healthchecks.DependentResourceWaitCommand;
 import uk.gov.pay.products.healthchecks.Ping;
+import uk.gov.pay.products.metrics.HdrMetricRegistry;
+import uk.gov.pay.products.metrics.ResourceMethodTimers;
+import uk.gov.pay.products.profiling.JfrProfiler;
+import uk.gov.pay.products.profiling.JfrProfilingServlet;
+import uk.gov.pay.products.profiling.SlowRequestSampler;
 import uk.gov.pay.products.resources.HealthCheckResource;
 import uk.gov.pay.products.resources.PaymentResource;
 import uk.gov.pay.products.resources.ProductResource;
+import uk.gov.pay.products.service.PaymentStatusReconciler;
+import uk.gov.pay.products.service.cache.ProductCacheInvalidationListener;
+import uk.gov.pay.products.service.cache.ProductPathIndex;
 
 import java.util.concurrent.TimeUnit;
 
@@ -46,6 +59,8 @@ public class ProductsApplication extends Application<ProductsConfiguration> {
     private static final String SERVICE_METRICS_NODE = "pay-products";
     private static final int GRAPHITE_SENDING_PERIOD_SECONDS = 10;
     private static final String API_VERSION_PATH = "/v1";
+    private static final String PROMETHEUS_PATH = "/prometheus";
+    private static final String JFR_PROFILING_PATH = "/profiling/jfr";
 
     @Override
     public String getName() {
@@ -54,6 +69,7 @@ public class ProductsApplication extends Application<ProductsConfiguration> {
 
     @Override
     public void initialize(final Bootstrap<ProductsConfiguration> bootstrap) {
+        bootstrap.setMetricRegistry(new HdrMetricRegistry());
         bootstrap.setConfigurationSourceProvider(
                 new SubstitutingSourceProvider(bootstrap.getConfigurationSourceProvider(),
                         new EnvironmentVariableSubstitutor(NON_STRICT_VARIABLE_SUBSTITUTOR)
@@ -67,6 +83,7 @@ public class ProductsApplication extends Application<ProductsConfiguration> {
         });
 
         bootstrap.addCommand(new DependentResourceWaitCommand());
+        bootstrap.addCommand(new ProductUsageBackfillCommand());
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(LogstashConsoleAppenderFactory.class);
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(GovUkPayDropwizardRequestJsonLogLayoutFactory.class);
     }
@@ -78,12 +95,19 @@ public class ProductsApplication extends Application<ProductsConfiguration> {
         injector.getInstance(PersistenceServiceInitialiser.class);
 
         initialiseMetrics(configuration, environment);
+        initialiseProductPathIndex(configuration, environment, injector.getInstance(ProductPathIndex.class));
+        environment.lifecycle().manage(injector.getInstance(ProductCacheInvalidationListener.class));
+        initialisePaymentStatusReconciler(configuration, environment, injector.getInstance(PaymentStatusReconciler.class));
         environment.servlets().addFilter("LoggingFilter", new LoggingFilter())
                 .addMappingForUrlPatterns(of(REQUEST), true, API_VERSION_PATH + "/*");
         environment.jersey().register(injector.getInstance(LoggingMDCRequestFilter.class));
         environment.jersey().register(injector.getInstance(LoggingMDCResponseFilter.class));
+        environment.jersey().register(new ResourceMethodTimers(environment.metrics()));
+        initialiseSlowRequestSampler(configuration, environment);
         environment.healthChecks().register("ping", new Ping());
         environment.healthChecks().register("database", new DatabaseHealthCheck(configuration.getDataSourceFactory()));
+        environment.admin().addServlet("jfr", new JfrProfilingServlet(new JfrProfiler(configuration.getProfilingConfiguration())))
+                .addMapping(JFR_PROFILING_PATH);
         environment.jersey().register(injector.getInstance(HealthCheckResource.class));
         environment.jersey().register(injector.getInstance(ProductResource.class));
         environment.jersey().register(injector.getInstance(PaymentResource.class));
@@ -101,16 +125,57 @@ public class ProductsApplication extends Application<ProductsConfiguration> {
                 .build()
                 .scheduleAtFixedRate(metricsService::updateMetricData, 0, GRAPHITE_SENDING_PERIOD_SECONDS / 2, TimeUnit.SECONDS);
 
-        GraphiteSender graphiteUDP = new GraphiteUDP(configuration.getGraphiteHost(), configuration.getGraphitePort());
-        GraphiteReporter.forRegistry(environment.metrics())
-                .prefixedWith(SERVICE_METRICS_NODE)
-                .build(graphiteUDP)
-                .start(GRAPHITE_SENDING_PERIOD_SECONDS, TimeUnit.SECONDS);
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        new DropwizardExports(environment.metrics()).register(collectorRegistry);
+        environment.admin().addServlet("prometheus", new MetricsServlet(collectorRegistry)).addMapping(PROMETHEUS_PATH);
+
+        if (configuration.isGraphiteEnabled()) {
+            GraphiteSender graphiteUDP = new GraphiteUDP(configuration.getGraphiteHost(), configuration.getGraphitePort());
+            GraphiteReporter.forRegistry(environment.metrics())
+                    .prefixedWith(SERVICE_METRICS_NODE)
+                    .build(graphiteUDP)
+                    .start(GRAPHITE_SENDING_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private void initialiseProductPathIndex(ProductsConfiguration configuration, Environment environment, ProductPathIndex productPathIndex) {
+        long rebuildIntervalSeconds = configuration.getProductCacheConfiguration().getProductPathIndexRebuildInterval().toSeconds();
+
+        environment
+                .lifecycle()
+                .scheduledExecutorService("product-path-index")
+                .threads(1)
+                .build()
+                .scheduleWithFixedDelay(productPathIndex::reload, 0, rebuildIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void initialiseSlowRequestSampler(ProductsConfiguration configuration, Environment environment) {
+        SlowRequestSampler slowRequestSampler = new SlowRequestSampler(configuration.getSlowRequestConfiguration(), environment.metrics());
+        environment.jersey().register(slowRequestSampler);
+        long sampleIntervalMillis = configuration.getSlowRequestConfiguration().getSampleInterval().toMilliseconds();
+
+        environment
+                .lifecycle()
+                .scheduledExecutorService("slow-request-sampler")
+                .threads(1)
+                .build()
+                .scheduleWithFixedDelay(slowRequestSampler::check, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+    }
 
+    private void initialisePaymentStatusReconciler(ProductsConfiguration configuration, Environment environment, PaymentStatusReconciler paymentStatusReconciler) {
+        long reconciliationIntervalSeconds = configuration.getPaymentStatusLookupConfiguration().getReconciliationInterval().toSeconds();
+
+        environment
+                .lifecycle()
+                .scheduledExecutorService("payment-status-reconciler")
+                .threads(1)
+                .build()
+                .scheduleWithFixedDelay(paymentStatusReconciler::reconcile, reconciliationIntervalSeconds, reconciliationIntervalSeconds, TimeUnit.SECONDS);
     }
 
     private void attachExceptionMappersTo(JerseyEnvironment jersey) {
         jersey.register(PaymentCreationExceptionMapper.class);
+        jersey.register(PaymentCreationRejectedExceptionMapper.class);
         jersey.register(PaymentCreatorNotFoundExceptionMapper.class);
         jersey.register(BadPaymentRequestExceptionMapper.class);
         jersey.register(FailToReplaceApiTokenExceptionMapper.class);
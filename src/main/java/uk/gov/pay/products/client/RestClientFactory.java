@@ -1,32 +1,109 @@
 package uk.gov.pay.products.client;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 import uk.gov.pay.logging.RestClientLoggingFilter;
 import uk.gov.pay.products.config.RestClientConfiguration;
 
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import java.net.URI;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Builds the Jersey client used to call publicapi and publicauth. Requests go through a pool of kept-alive Apache
+ * HttpClient connections, so connections, and their TLS sessions, are reused between requests to the same host.
+ */
 public class RestClientFactory {
     private static final String TLSV1_2 = "TLSv1.2";
+    private static final String POOL_METRICS_PREFIX = "rest-client.connection-pool";
 
+    /**
+     * Builds a pooled client that is not instrumented and is never closed, for use in tests.
+     */
     public static Client buildClient(RestClientConfiguration clientConfig) {
-        ClientBuilder clientBuilder = ClientBuilder.newBuilder();
+        SSLContext sslContext = sslContext(clientConfig);
+        PoolingHttpClientConnectionManager connectionManager = connectionManager(clientConfig, sslContext);
+        startIdleConnectionEvictor(clientConfig, connectionManager);
+        return buildClient(clientConfig, sslContext, connectionManager);
+    }
+
+    /**
+     * Builds a pooled client that is closed with the application, registering leased, pending and available
+     * connection gauges for each of the downstream services it will call.
+     */
+    public static Client buildClient(RestClientConfiguration clientConfig, Environment environment, String... downstreamUrls) {
+        SSLContext sslContext = sslContext(clientConfig);
+        PoolingHttpClientConnectionManager connectionManager = connectionManager(clientConfig, sslContext);
+        IdleConnectionEvictor idleConnectionEvictor = startIdleConnectionEvictor(clientConfig, connectionManager);
+        Client client = buildClient(clientConfig, sslContext, connectionManager);
+
+        registerPoolGauges(environment.metrics(), MetricRegistry.name(POOL_METRICS_PREFIX, "total"),
+                connectionManager::getTotalStats);
+        for (String downstreamUrl : downstreamUrls) {
+            HttpRoute route = routeTo(downstreamUrl);
+            String host = route.getTargetHost().getHostName().replace('.', '_') + "_" + route.getTargetHost().getPort();
+            registerPoolGauges(environment.metrics(), MetricRegistry.name(POOL_METRICS_PREFIX, host),
+                    () -> connectionManager.getStats(route));
+        }
+
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+                idleConnectionEvictor.shutdown();
+                client.close();
+                connectionManager.shutdown();
+            }
+        });
+        return client;
+    }
+
+    private static Client buildClient(RestClientConfiguration clientConfig, SSLContext sslContext,
+                                      PoolingHttpClientConnectionManager connectionManager) {
+        ClientConfig jerseyConfig = new ClientConfig()
+                .connectorProvider(new ApacheConnectorProvider())
+                .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+                // Jersey builds a connector per client runtime and would otherwise shut the pool down with each one
+                .property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true)
+                .property(ApacheClientProperties.REQUEST_CONFIG, RequestConfig.custom()
+                        .setConnectionRequestTimeout(toIntMillis(clientConfig.getConnectionRequestTimeout()))
+                        .build())
+                .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+
+        ClientBuilder clientBuilder = ClientBuilder.newBuilder().withConfig(jerseyConfig);
         clientBuilder.connectTimeout(clientConfig.getConnectTimeout().getQuantity(), clientConfig.getConnectTimeout().getUnit());
         clientBuilder.readTimeout(clientConfig.getReadTimeout().getQuantity(), clientConfig.getReadTimeout().getUnit());
 
         if (!clientConfig.isDisabledSecureConnection()) {
-            try {
-                SSLContext sslContext = SSLContext.getInstance(TLSV1_2);
-                sslContext.init(null, null, null);
-                clientBuilder = clientBuilder.sslContext(sslContext);
-            } catch (NoSuchAlgorithmException | KeyManagementException e) {
-                throw new RuntimeException(format("Unable to create an SSL context for %s", TLSV1_2), e);
-            }
+            clientBuilder = clientBuilder.sslContext(sslContext);
         }
 
         Client client = clientBuilder.build();
@@ -34,6 +111,66 @@ public class RestClientFactory {
         return client;
     }
 
+    private static SSLContext sslContext(RestClientConfiguration clientConfig) {
+        try {
+            if (clientConfig.isDisabledSecureConnection()) {
+                return SSLContext.getDefault();
+            }
+            SSLContext sslContext = SSLContext.getInstance(TLSV1_2);
+            sslContext.init(null, null, null);
+            sslContext.getClientSessionContext().setSessionCacheSize(clientConfig.getTlsSessionCacheSize());
+            sslContext.getClientSessionContext().setSessionTimeout(
+                    Math.toIntExact(clientConfig.getTlsSessionTimeout().toSeconds()));
+            return sslContext;
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new RuntimeException(format("Unable to create an SSL context for %s", TLSV1_2), e);
+        }
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(RestClientConfiguration clientConfig, SSLContext sslContext) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", new SSLConnectionSocketFactory(sslContext))
+                        .build(),
+                null, null, null,
+                clientConfig.getConnectionTimeToLive().toMilliseconds(), MILLISECONDS);
+        connectionManager.setMaxTotal(clientConfig.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(clientConfig.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(toIntMillis(clientConfig.getValidateAfterInactivity()));
+        return connectionManager;
+    }
+
+    private static IdleConnectionEvictor startIdleConnectionEvictor(RestClientConfiguration clientConfig,
+                                                                    PoolingHttpClientConnectionManager connectionManager) {
+        long idleTimeoutMillis = clientConfig.getIdleConnectionTimeout().toMilliseconds();
+        IdleConnectionEvictor idleConnectionEvictor = new IdleConnectionEvictor(connectionManager,
+                Math.max(idleTimeoutMillis / 2, 1L), MILLISECONDS, idleTimeoutMillis, MILLISECONDS);
+        idleConnectionEvictor.start();
+        return idleConnectionEvictor;
+    }
+
+    // Matches the route HttpClient plans for a request to this URL when no proxy is configured
+    static HttpRoute routeTo(String url) {
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    }
+
+    private static void registerPoolGauges(MetricRegistry metricRegistry, String prefix, Supplier<PoolStats> stats) {
+        metricRegistry.gauge(MetricRegistry.name(prefix, "leased"),
+                () -> (Gauge<Integer>) () -> stats.get().getLeased());
+        metricRegistry.gauge(MetricRegistry.name(prefix, "pending"),
+                () -> (Gauge<Integer>) () -> stats.get().getPending());
+        metricRegistry.gauge(MetricRegistry.name(prefix, "available"),
+                () -> (Gauge<Integer>) () -> stats.get().getAvailable());
+    }
+
+    private static int toIntMillis(Duration duration) {
+        return Math.toIntExact(duration.toMilliseconds());
+    }
+
     private RestClientFactory() {
     }
 }
@@ -1,5 +1,7 @@
 package uk.gov.pay.products.client.publicapi;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
 import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
@@ -12,48 +14,69 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 import static java.lang.String.format;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
 import static net.logstash.logback.argument.StructuredArguments.kv;
 import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
 
+/**
+ * Calls publicapi, timing each call in a {@code publicapi.create-payment} or {@code publicapi.get-payment} timer.
+ */
 public class PublicApiRestClient {
     private static final Logger logger = LoggerFactory.getLogger(PublicApiRestClient.class);
+    private static final String METRICS_PREFIX = "publicapi";
 
     private static final String PAYMENTS_PATH = "/v1/payments";
     private static final String PAYMENT_PATH = PAYMENTS_PATH + "/%s";
 
     private final Client client;
     private final String publicApiUrl;
+    private final Timer createPaymentTimer;
+    private final Timer getPaymentTimer;
 
     @Inject
-    public PublicApiRestClient(Client client, String publicApiUrl) {
+    public PublicApiRestClient(Client client, String publicApiUrl, MetricRegistry metricRegistry) {
         this.client = client;
         this.publicApiUrl = publicApiUrl;
+        this.createPaymentTimer = metricRegistry.timer(MetricRegistry.name(METRICS_PREFIX, "create-payment"));
+        this.getPaymentTimer = metricRegistry.timer(MetricRegistry.name(METRICS_PREFIX, "get-payment"));
     }
 
-    public PaymentResponse createPayment(String apiToken, PaymentRequest paymentRequest) {
-        logger.info("Public API client requested creation of payment - [ {} ]", paymentRequest);
+    /**
+     * Creates a payment without blocking the calling thread. The returned stage completes on a Jersey client thread,
+     * exceptionally with a {@link PublicApiResponseErrorException} if publicapi did not create the payment.
+     */
+    public CompletionStage<PaymentResponse> createPaymentAsync(String apiToken, PaymentRequest paymentRequest) {
+        logger.info("Public API client requested asynchronous creation of payment - [ {} ]", paymentRequest);
 
-        Response response = client
+        Timer.Context time = createPaymentTimer.time();
+        return client
                 .target(buildAbsoluteUrl(PAYMENTS_PATH))
                 .request()
                 .header(AUTHORIZATION, constructBearerToken(apiToken))
-                .post(Entity.entity(paymentRequest, MediaType.APPLICATION_JSON));
-
-        if (response.getStatus() == HttpStatus.CREATED_201) {
-            PaymentResponse paymentResponse = response.readEntity(PaymentResponse.class);
-            logger.info(
-                    "Public API client returned payment created",
-                    kv(PAYMENT_EXTERNAL_ID, paymentResponse.getPaymentId())
-            );
-            return paymentResponse;
-        }
+                .rx()
+                .post(Entity.entity(paymentRequest, MediaType.APPLICATION_JSON))
+                .whenComplete((response, failure) -> time.stop())
+                .thenApply(this::toCreatedPayment);
+    }
 
-        PublicApiResponseErrorException publicApiResponseErrorException = new PublicApiResponseErrorException(response);
-        logger.error("Public API client returned an error - [ {} ]", publicApiResponseErrorException.getMessage());
-        throw publicApiResponseErrorException;
+    private PaymentResponse toCreatedPayment(Response createResponse) {
+        try (Response response = createResponse) {
+            if (response.getStatus() == HttpStatus.CREATED_201) {
+                PaymentResponse paymentResponse = response.readEntity(PaymentResponse.class);
+                logger.info(
+                        "Public API client returned payment created",
+                        kv(PAYMENT_EXTERNAL_ID, paymentResponse.getPaymentId())
+                );
+                return paymentResponse;
+            }
+
+            PublicApiResponseErrorException publicApiResponseErrorException = new PublicApiResponseErrorException(response);
+            logger.error("Public API client returned an error - [ {} ]", publicApiResponseErrorException.getMessage());
+            throw publicApiResponseErrorException;
+        }
     }
 
     public Optional<PaymentResponse> getPayment(String apiToken, String paymentId) {
@@ -61,29 +84,36 @@ public class PublicApiRestClient {
                 kv(PAYMENT_EXTERNAL_ID, paymentId)
         );
 
-        Response response = client
-                .target(buildAbsoluteUrl(format(PAYMENT_PATH, paymentId)))
-                .request()
-                .header(AUTHORIZATION, constructBearerToken(apiToken))
-                .get();
-
-        if (response.getStatus() == HttpStatus.OK_200) {
-            PaymentResponse paymentResponse = response.readEntity(PaymentResponse.class);
-            logger.info(
-                    "Public API client returned payment found",
-                    kv(PAYMENT_EXTERNAL_ID, paymentResponse.getPaymentId())
-            );
-            return Optional.of(paymentResponse);
+        try (Response response = requestPayment(apiToken, paymentId)) {
+
+            if (response.getStatus() == HttpStatus.OK_200) {
+                PaymentResponse paymentResponse = response.readEntity(PaymentResponse.class);
+                logger.info(
+                        "Public API client returned payment found",
+                        kv(PAYMENT_EXTERNAL_ID, paymentResponse.getPaymentId())
+                );
+                return Optional.of(paymentResponse);
+            }
+
+            if (response.getStatus() == HttpStatus.NOT_FOUND_404) {
+                logger.info("Public API client returned payment not found");
+                return Optional.empty();
+            }
+
+            PublicApiResponseErrorException publicApiResponseErrorException = new PublicApiResponseErrorException(response);
+            logger.error("Public API client returned an error - [ {} ]", publicApiResponseErrorException.getMessage());
+            throw publicApiResponseErrorException;
         }
+    }
 
-        if (response.getStatus() == HttpStatus.NOT_FOUND_404) {
-            logger.info("Public API client returned payment not found");
-            return Optional.empty();
+    private Response requestPayment(String apiToken, String paymentId) {
+        try (Timer.Context ignored = getPaymentTimer.time()) {
+            return client
+                    .target(buildAbsoluteUrl(format(PAYMENT_PATH, paymentId)))
+                    .request()
+                    .header(AUTHORIZATION, constructBearerToken(apiToken))
+                    .get();
         }
-
-        PublicApiResponseErrorException publicApiResponseErrorException = new PublicApiResponseErrorException(response);
-        logger.error("Public API client returned an error - [ {} ]", publicApiResponseErrorException.getMessage());
-        throw publicApiResponseErrorException;
     }
 
     private String buildAbsoluteUrl(String relativeUrl) {
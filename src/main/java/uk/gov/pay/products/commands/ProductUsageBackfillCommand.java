@@ -0,0 +1,54 @@
+package uk.gov.pay.products.commands;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.config.ProductsConfiguration;
+import uk.gov.pay.products.config.ProductsModule;
+import uk.gov.pay.products.persistence.dao.ProductUsageDao;
+
+import java.util.List;
+
+/**
+ * Recounts the {@code product_usage} rollup of every product from its payments. Safe to run while the application
+ * is taking payments, and to run again.
+ */
+public class ProductUsageBackfillCommand extends ConfiguredCommand<ProductsConfiguration> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductUsageBackfillCommand.class);
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+
+    public ProductUsageBackfillCommand() {
+        super("backfillProductUsage", "Recounts the product usage rollup from the payments table");
+    }
+
+    @Override
+    protected void run(Bootstrap<ProductsConfiguration> bs, Namespace ns, ProductsConfiguration conf) throws Exception {
+        ManagedDataSource dataSource = ProductsModule.dataSource(conf, bs.getMetricRegistry());
+        Injector injector = Guice.createInjector(ProductsModule.jpaModule(conf, dataSource, bs.getMetricRegistry()));
+        PersistService persistService = injector.getInstance(PersistService.class);
+        dataSource.start();
+        persistService.start();
+        try {
+            ProductUsageDao productUsageDao = injector.getInstance(ProductUsageDao.class);
+            List<Integer> productIds = productUsageDao.findAllProductIds();
+            logger.info("Backfilling product usage for {} products", productIds.size());
+            for (int i = 0; i < productIds.size(); i++) {
+                productUsageDao.recount(productIds.get(i));
+                if ((i + 1) % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("Backfilled product usage for {} of {} products", i + 1, productIds.size());
+                }
+            }
+            logger.info("Finished backfilling product usage for {} products", productIds.size());
+        } finally {
+            persistService.stop();
+            dataSource.stop();
+        }
+    }
+}
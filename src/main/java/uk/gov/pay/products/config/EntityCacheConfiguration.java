@@ -0,0 +1,52 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.util.Duration;
+import org.eclipse.persistence.config.CacheIsolationType;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * The EclipseLink shared (second-level) cache settings of one entity, keyed by entity name under
+ * {@code jpa.entityCaches}.
+ */
+public class EntityCacheConfiguration {
+
+    /**
+     * Whether instances are kept in the shared cache between transactions. When off the entity is isolated and
+     * every transaction reads it from the database.
+     */
+    private boolean shared = false;
+
+    @Min(1)
+    private int size = 1000;
+
+    /**
+     * Cached instances older than this are read from the database again.
+     */
+    @NotNull
+    private Duration expiry = Duration.minutes(5L);
+
+    /**
+     * {@code SHARED}, or {@code PROTECTED} to keep relationships to isolated entities out of the shared cache.
+     * Only used when {@link #isShared()}.
+     */
+    @NotNull
+    private CacheIsolationType isolation = CacheIsolationType.SHARED;
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Duration getExpiry() {
+        return expiry;
+    }
+
+    public CacheIsolationType getIsolation() {
+        return isolation;
+    }
+}
@@ -1,6 +1,12 @@
 package uk.gov.pay.products.config;
 
 import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Map;
 
 public class JPAConfiguration extends Configuration {
 
@@ -10,6 +16,41 @@ public class JPAConfiguration extends Configuration {
     private String queryResultsCache;
     private String cacheSharedDefault;
 
+    @Min(1)
+    private int queryResultsCacheSize = 1000;
+
+    @NotNull
+    private Duration queryResultsCacheExpiry = Duration.minutes(5L);
+
+    @Valid
+    @NotNull
+    private Map<String, EntityCacheConfiguration> entityCaches = Map.of();
+
+    /**
+     * Whether EclipseLink keeps prepared statements open for reuse. Connections come from the application's pool,
+     * so statements are only kept until the end of each transaction.
+     */
+    private boolean cacheStatements = false;
+
+    @Min(1)
+    private int statementCacheSize = 50;
+
+    /**
+     * How many times pgjdbc runs the same SQL on a connection before preparing it on the server, so that later runs
+     * skip parsing and planning. {@code 0} never prepares on the server.
+     */
+    @Min(0)
+    private int prepareThreshold = 5;
+
+    /**
+     * How many prepared statements pgjdbc keeps per connection, and how much memory they may use.
+     */
+    @Min(0)
+    private int preparedStatementCacheQueries = 256;
+
+    @Min(0)
+    private int preparedStatementCacheSizeMiB = 5;
+
     public String getJpaLoggingLevel() {
         return jpaLoggingLevel;
     }
@@ -29,4 +70,36 @@ public class JPAConfiguration extends Configuration {
     public String getCacheSharedDefault() {
         return cacheSharedDefault;
     }
+
+    public int getQueryResultsCacheSize() {
+        return queryResultsCacheSize;
+    }
+
+    public Duration getQueryResultsCacheExpiry() {
+        return queryResultsCacheExpiry;
+    }
+
+    public Map<String, EntityCacheConfiguration> getEntityCaches() {
+        return entityCaches;
+    }
+
+    public boolean isCacheStatements() {
+        return cacheStatements;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public int getPrepareThreshold() {
+        return prepareThreshold;
+    }
+
+    public int getPreparedStatementCacheQueries() {
+        return preparedStatementCacheQueries;
+    }
+
+    public int getPreparedStatementCacheSizeMiB() {
+        return preparedStatementCacheSizeMiB;
+    }
 }
@@ -0,0 +1,29 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.constraints.Min;
+
+public class PaymentCreationConfiguration extends Configuration {
+
+    /**
+     * Payment creations allowed in flight at once, including those waiting on publicapi. Requests over the cap are
+     * turned away with a 503 rather than queued.
+     */
+    @Min(1)
+    private int maxConcurrentCreations = 200;
+
+    /**
+     * Threads running the database steps either side of the publicapi call.
+     */
+    @Min(1)
+    private int threads = 16;
+
+    public int getMaxConcurrentCreations() {
+        return maxConcurrentCreations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+}
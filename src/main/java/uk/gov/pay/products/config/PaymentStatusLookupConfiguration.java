@@ -0,0 +1,66 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class PaymentStatusLookupConfiguration extends Configuration {
+
+    @Min(1)
+    private int parallelism = 10;
+
+    @Min(1)
+    private int maxQueuedLookups = 1000;
+
+    @NotNull
+    private Duration deadline = Duration.seconds(5L);
+
+    @NotNull
+    private Duration freshnessWindow = Duration.minutes(1L);
+
+    @NotNull
+    private Duration reconciliationInterval = Duration.seconds(30L);
+
+    @Min(1)
+    private int reconciliationBatchSize = 100;
+
+    @Min(0)
+    private long stateCacheMaximumSize = 10_000L;
+
+    @NotNull
+    private Duration stateCacheUnfinishedTtl = Duration.seconds(2L);
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getMaxQueuedLookups() {
+        return maxQueuedLookups;
+    }
+
+    public Duration getDeadline() {
+        return deadline;
+    }
+
+    public Duration getFreshnessWindow() {
+        return freshnessWindow;
+    }
+
+    public Duration getReconciliationInterval() {
+        return reconciliationInterval;
+    }
+
+    public int getReconciliationBatchSize() {
+        return reconciliationBatchSize;
+    }
+
+    public long getStateCacheMaximumSize() {
+        return stateCacheMaximumSize;
+    }
+
+    public Duration getStateCacheUnfinishedTtl() {
+        return stateCacheUnfinishedTtl;
+    }
+}
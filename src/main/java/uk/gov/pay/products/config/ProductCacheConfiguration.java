@@ -0,0 +1,38 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ProductCacheConfiguration extends Configuration {
+
+    @Min(0)
+    private long maximumSize = 10_000L;
+
+    @NotNull
+    private Duration expireAfterWrite = Duration.minutes(5L);
+
+    @NotNull
+    private Duration productPathIndexRebuildInterval = Duration.minutes(10L);
+
+    @NotNull
+    private Duration productPathIndexMissExpiry = Duration.minutes(1L);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public Duration getProductPathIndexRebuildInterval() {
+        return productPathIndexRebuildInterval;
+    }
+
+    public Duration getProductPathIndexMissExpiry() {
+        return productPathIndexMissExpiry;
+    }
+}
@@ -13,6 +13,7 @@ public class ProductsConfiguration extends Configuration {
     private String graphiteHost;
     @NotNull
     private Integer graphitePort;
+    private boolean graphiteEnabled = true;
 
     @Valid
     @NotNull
@@ -22,6 +23,9 @@ public class ProductsConfiguration extends Configuration {
     @NotNull
     private JPAConfiguration jpaConfiguration;
 
+    @Valid
+    private ReadReplicaConfiguration readReplicaConfiguration;
+
     @NotNull
     private String baseUrl;
 
@@ -46,6 +50,9 @@ public class ProductsConfiguration extends Configuration {
     @NotNull
     private String emailAddressForReplacingApiTokens;
 
+    @NotNull
+    private String paymentReferenceKey;
+
     public String getVcapServices() {
         return System.getenv("VCAP_SERVICES");
     }
@@ -55,6 +62,26 @@ public class ProductsConfiguration extends Configuration {
     @JsonProperty("jerseyClientConfiguration")
     private RestClientConfiguration restClientConfiguration;
 
+    @Valid
+    @NotNull
+    private ProductCacheConfiguration productCacheConfiguration = new ProductCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private PaymentStatusLookupConfiguration paymentStatusLookupConfiguration = new PaymentStatusLookupConfiguration();
+
+    @Valid
+    @NotNull
+    private PaymentCreationConfiguration paymentCreationConfiguration = new PaymentCreationConfiguration();
+
+    @Valid
+    @NotNull
+    private ProfilingConfiguration profilingConfiguration = new ProfilingConfiguration();
+
+    @Valid
+    @NotNull
+    private SlowRequestConfiguration slowRequestConfiguration = new SlowRequestConfiguration();
+
     public String getGraphiteHost() {
         return graphiteHost;
     }
@@ -63,6 +90,13 @@ public class ProductsConfiguration extends Configuration {
         return graphitePort;
     }
 
+    /**
+     * Whether metrics are pushed to Graphite as well as served in Prometheus format from the admin connector.
+     */
+    public boolean isGraphiteEnabled() {
+        return graphiteEnabled;
+    }
+
     @JsonProperty("database")
     public DataSourceFactory getDataSourceFactory() {
         return dataSourceFactory;
@@ -73,6 +107,15 @@ public class ProductsConfiguration extends Configuration {
         return jpaConfiguration;
     }
 
+    /**
+     * The read replica queried by read-only service methods, or {@code null} when there is none and every read goes
+     * to {@code database:}.
+     */
+    @JsonProperty("readReplicaDatabase")
+    public ReadReplicaConfiguration getReadReplicaConfiguration() {
+        return readReplicaConfiguration;
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
@@ -105,4 +148,33 @@ public class ProductsConfiguration extends Configuration {
     public String getEmailAddressForReplacingApiTokens() {
         return emailAddressForReplacingApiTokens;
     }
+
+    public String getPaymentReferenceKey() {
+        return paymentReferenceKey;
+    }
+
+    @JsonProperty("productCache")
+    public ProductCacheConfiguration getProductCacheConfiguration() {
+        return productCacheConfiguration;
+    }
+
+    @JsonProperty("paymentStatusLookup")
+    public PaymentStatusLookupConfiguration getPaymentStatusLookupConfiguration() {
+        return paymentStatusLookupConfiguration;
+    }
+
+    @JsonProperty("paymentCreation")
+    public PaymentCreationConfiguration getPaymentCreationConfiguration() {
+        return paymentCreationConfiguration;
+    }
+
+    @JsonProperty("profiling")
+    public ProfilingConfiguration getProfilingConfiguration() {
+        return profilingConfiguration;
+    }
+
+    @JsonProperty("slowRequests")
+    public SlowRequestConfiguration getSlowRequestConfiguration() {
+        return slowRequestConfiguration;
+    }
 }
@@ -4,25 +4,54 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.name.Names;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
 import io.dropwizard.setup.Environment;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
 import uk.gov.pay.products.client.RestClientFactory;
 import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
+import uk.gov.pay.products.persistence.InstrumentedDataSource;
+import uk.gov.pay.products.persistence.ReadOnly;
+import uk.gov.pay.products.persistence.ReadReplica;
+import uk.gov.pay.products.persistence.ReadReplicaInterceptor;
 import uk.gov.pay.products.service.LinksDecorator;
+import uk.gov.pay.products.service.PaymentCreationLimiter;
 import uk.gov.pay.products.service.PaymentFactory;
 import uk.gov.pay.products.service.PaymentFinder;
+import uk.gov.pay.products.service.PaymentReferenceAllocator;
+import uk.gov.pay.products.service.PaymentStatusReconciler;
 import uk.gov.pay.products.service.ProductApiTokenManager;
 import uk.gov.pay.products.service.ProductFactory;
 import uk.gov.pay.products.service.ProductFinder;
+import uk.gov.pay.products.service.cache.PaymentStateCache;
+import uk.gov.pay.products.service.cache.ProductCache;
+import uk.gov.pay.products.service.cache.ProductCacheInvalidationListener;
+import uk.gov.pay.products.service.cache.ProductEntityCacheInvalidator;
+import uk.gov.pay.products.service.cache.ProductPathIndex;
 import uk.gov.pay.products.validations.ProductRequestValidator;
 import uk.gov.pay.products.validations.RequestValidations;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
 import javax.ws.rs.client.Client;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+import static uk.gov.pay.products.service.PaymentCreator.PAYMENT_CREATION_EXECUTOR;
+import static uk.gov.pay.products.service.PaymentFinder.PAYMENT_STATUS_LOOKUP_EXECUTOR;
 
 public class ProductsModule extends AbstractModule {
 
+    public static final String DATA_SOURCE_NAME = "products";
+    public static final String READ_REPLICA_DATA_SOURCE_NAME = "products-replica";
+
     private final ProductsConfiguration configuration;
     private final Environment environment;
 
@@ -33,7 +62,8 @@ public class ProductsModule extends AbstractModule {
 
     @Override
     protected void configure() {
-        final Client client = RestClientFactory.buildClient(configuration.getRestClientConfiguration());
+        final Client client = RestClientFactory.buildClient(configuration.getRestClientConfiguration(), environment,
+                configuration.getPublicApiUrl(), configuration.getPublicAuthUrl());
 
         bind(Client.class).toInstance(client);
         bind(ProductsConfiguration.class).toInstance(configuration);
@@ -47,41 +77,142 @@ public class ProductsModule extends AbstractModule {
                         configuration.getBaseUrl(),
                         configuration.getProductsUiPayUrl(),
                         configuration.getFriendlyBaseUri()));
+        bind(ProductCacheConfiguration.class).toInstance(configuration.getProductCacheConfiguration());
+        bind(ProductCache.class).in(Singleton.class);
+        bind(ProductEntityCacheInvalidator.class).in(Singleton.class);
+        bind(ProductCacheInvalidationListener.class).in(Singleton.class);
+        bind(ProductPathIndex.class).in(Singleton.class);
         bind(ProductFinder.class).in(Singleton.class);
+        bind(PaymentStatusLookupConfiguration.class).toInstance(configuration.getPaymentStatusLookupConfiguration());
+        bind(ExecutorService.class)
+                .annotatedWith(Names.named(PAYMENT_STATUS_LOOKUP_EXECUTOR))
+                .toInstance(paymentStatusLookupExecutor(configuration.getPaymentStatusLookupConfiguration()));
+        bind(PaymentCreationConfiguration.class).toInstance(configuration.getPaymentCreationConfiguration());
+        bind(ExecutorService.class)
+                .annotatedWith(Names.named(PAYMENT_CREATION_EXECUTOR))
+                .toInstance(paymentCreationExecutor(configuration.getPaymentCreationConfiguration()));
+        bind(PaymentCreationLimiter.class).in(Singleton.class);
         bind(PaymentFinder.class).in(Singleton.class);
+        bind(PaymentStateCache.class).in(Singleton.class);
+        bind(PaymentStatusReconciler.class).in(Singleton.class);
         bind(ProductApiTokenManager.class).in(Singleton.class);
+        bind(PaymentReferenceAllocator.class).in(Singleton.class);
 
         bind(PublicApiRestClient.class).toInstance(
-                new PublicApiRestClient(client, configuration.getPublicApiUrl()));
+                new PublicApiRestClient(client, configuration.getPublicApiUrl(), environment.metrics()));
+
+        ManagedDataSource dataSource = dataSource(configuration, environment.metrics());
+        environment.lifecycle().manage(dataSource);
+        install(jpaModule(configuration, dataSource, environment.metrics()));
 
-        install(jpaModule(configuration));
+        ReadReplicaConfiguration readReplicaConfiguration = configuration.getReadReplicaConfiguration();
+        if (readReplicaConfiguration != null) {
+            ReadReplica readReplica = readReplica(readReplicaConfiguration, dataSource);
+            environment.lifecycle().manage(readReplica);
+            bind(ReadReplica.class).toInstance(readReplica);
+            bindInterceptor(Matchers.any(), Matchers.annotatedWith(ReadOnly.class),
+                    new ReadReplicaInterceptor(readReplica, environment.metrics()));
+        }
         install(new FactoryModuleBuilder().build(ProductFactory.class));
         install(new FactoryModuleBuilder().build(PaymentFactory.class));
     }
 
-    private JpaPersistModule jpaModule(ProductsConfiguration configuration) {
-        DataSourceFactory dbConfig = configuration.getDataSourceFactory();
+    // Each creation has at most one step waiting at a time, so a queue the size of the concurrency cap never fills
+    private ExecutorService paymentCreationExecutor(PaymentCreationConfiguration paymentCreationConfiguration) {
+        return environment.lifecycle()
+                .executorService("payment-creation-%d")
+                .minThreads(paymentCreationConfiguration.getThreads())
+                .maxThreads(paymentCreationConfiguration.getThreads())
+                .workQueue(new ArrayBlockingQueue<>(paymentCreationConfiguration.getMaxConcurrentCreations()))
+                .build();
+    }
+
+    private ExecutorService paymentStatusLookupExecutor(PaymentStatusLookupConfiguration lookupConfiguration) {
+        return environment.lifecycle()
+                .executorService("payment-status-lookup-%d")
+                .minThreads(lookupConfiguration.getParallelism())
+                .maxThreads(lookupConfiguration.getParallelism())
+                .workQueue(new ArrayBlockingQueue<>(lookupConfiguration.getMaxQueuedLookups()))
+                .build();
+    }
+
+    private ReadReplica readReplica(ReadReplicaConfiguration readReplicaConfiguration, ManagedDataSource primaryDataSource) {
+        readReplicaConfiguration.setReadOnlyByDefault(true);
+        ManagedDataSource replicaDataSource = dataSource(readReplicaConfiguration, configuration.getJpaConfiguration(),
+                environment.metrics(), READ_REPLICA_DATA_SOURCE_NAME);
+        return new ReadReplica(
+                readReplicaConfiguration,
+                primaryDataSource,
+                replicaDataSource,
+                readReplicaEntityManagerFactory(configuration.getJpaConfiguration(), replicaDataSource),
+                environment.lifecycle().scheduledExecutorService("read-replica-lag-%d").build(),
+                environment.metrics());
+    }
+
+    /**
+     * Builds the application's connection pool from {@code database:}, with pgjdbc's server-side prepared statement
+     * settings taken from {@code jpa:}. The pool keeps connections open, so statements prepared on them are reused
+     * across requests.
+     */
+    public static ManagedDataSource dataSource(ProductsConfiguration configuration, MetricRegistry metricRegistry) {
+        return dataSource(configuration.getDataSourceFactory(), configuration.getJpaConfiguration(), metricRegistry,
+                DATA_SOURCE_NAME);
+    }
+
+    private static ManagedDataSource dataSource(DataSourceFactory dataSourceFactory, JPAConfiguration jpaConfiguration,
+                                                MetricRegistry metricRegistry, String poolName) {
+        Map<String, String> driverProperties = new HashMap<>(dataSourceFactory.getProperties());
+        driverProperties.put("prepareThreshold", String.valueOf(jpaConfiguration.getPrepareThreshold()));
+        driverProperties.put("preparedStatementCacheQueries", String.valueOf(jpaConfiguration.getPreparedStatementCacheQueries()));
+        driverProperties.put("preparedStatementCacheSizeMiB", String.valueOf(jpaConfiguration.getPreparedStatementCacheSizeMiB()));
+        dataSourceFactory.setProperties(driverProperties);
+        return InstrumentedDataSource.build(dataSourceFactory, metricRegistry, poolName);
+    }
+
+    /**
+     * The module gives EclipseLink the application's pooled data source, so JPA shares the pool sized and
+     * instrumented from {@code database:} rather than opening connections through a pool of its own. Entity and
+     * query results caches are set up from {@code jpa:} by {@link ProductsSessionCustomiser}, which reports their
+     * statistics to the given registry.
+     */
+    public static JpaPersistModule jpaModule(ProductsConfiguration configuration, DataSource dataSource,
+                                             MetricRegistry metricRegistry) {
         final Properties properties = new Properties();
-        properties.put("javax.persistence.jdbc.driver", dbConfig.getDriverClass());
-        properties.put("javax.persistence.jdbc.url", dbConfig.getUrl());
-        if (dbConfig.getUser() != null) {
-            properties.put("javax.persistence.jdbc.user", dbConfig.getUser());
-        }
-        if (dbConfig.getPassword() != null) {
-            properties.put("javax.persistence.jdbc.password", dbConfig.getPassword());
-        }
+        properties.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, dataSource);
+        properties.put(ProductsSessionCustomiser.JPA_CONFIGURATION, configuration.getJpaConfiguration());
+        properties.put(ProductsSessionCustomiser.METRIC_REGISTRY, metricRegistry);
 
         JPAConfiguration jpaConfiguration = configuration.getJpaConfiguration();
         properties.put("eclipselink.logging.level", jpaConfiguration.getJpaLoggingLevel());
         properties.put("eclipselink.logging.level.sql", jpaConfiguration.getSqlLoggingLevel());
-        properties.put("eclipselink.query-results-cache", jpaConfiguration.getCacheSharedDefault());
         properties.put("eclipselink.cache.shared.default", jpaConfiguration.getCacheSharedDefault());
         properties.put("eclipselink.ddl-generation.output-mode", jpaConfiguration.getDdlGenerationOutputMode());
         properties.put("eclipselink.session.customizer", ProductsSessionCustomiser.class.getCanonicalName());
+        properties.put(PersistenceUnitProperties.CACHE_STATEMENTS, String.valueOf(jpaConfiguration.isCacheStatements()));
+        properties.put(PersistenceUnitProperties.CACHE_STATEMENTS_SIZE, String.valueOf(jpaConfiguration.getStatementCacheSize()));
 
         final JpaPersistModule jpaModule = new JpaPersistModule("ProductsUnit");
         jpaModule.properties(properties);
 
         return jpaModule;
     }
+
+    /**
+     * A second EclipseLink session over the read replica. Nothing read from the replica goes in a shared cache, as
+     * changes made through the primary's session only invalidate that session's cache, and the replica's statistics
+     * are not reported.
+     */
+    private static EntityManagerFactory readReplicaEntityManagerFactory(JPAConfiguration jpaConfiguration,
+                                                                        DataSource dataSource) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, dataSource);
+        properties.put(PersistenceUnitProperties.SESSION_NAME, "ProductsUnit-replica");
+        properties.put("eclipselink.logging.level", jpaConfiguration.getJpaLoggingLevel());
+        properties.put("eclipselink.logging.level.sql", jpaConfiguration.getSqlLoggingLevel());
+        properties.put("eclipselink.cache.shared.default", "false");
+        properties.put("eclipselink.session.customizer", ProductsSessionCustomiser.class.getCanonicalName());
+        properties.put(PersistenceUnitProperties.CACHE_STATEMENTS, String.valueOf(jpaConfiguration.isCacheStatements()));
+        properties.put(PersistenceUnitProperties.CACHE_STATEMENTS_SIZE, String.valueOf(jpaConfiguration.getStatementCacheSize()));
+        return Persistence.createEntityManagerFactory("ProductsUnit", properties);
+    }
 }
@@ -1,11 +1,40 @@
 package uk.gov.pay.products.config;
 
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.internal.jpa.JPAQuery;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
 import org.eclipse.persistence.sessions.DatabaseLogin;
 import org.eclipse.persistence.sessions.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.persistence.JpaStatistics;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.lang.String.format;
 
 public class ProductsSessionCustomiser implements SessionCustomizer {
 
+    /**
+     * Persistence unit property holding the {@link JPAConfiguration} whose caches are applied to the session.
+     */
+    public static final String JPA_CONFIGURATION = "uk.gov.pay.products.jpa-configuration";
+
+    /**
+     * Persistence unit property holding the {@link MetricRegistry} cache statistics are reported to.
+     */
+    public static final String METRIC_REGISTRY = "uk.gov.pay.products.metric-registry";
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductsSessionCustomiser.class);
     private static final int QUERY_RETRY_ATTEMPT_COUNT_ZERO_BASED_INDEX = 0;
     private static final int DELAY_BETWEEN_CONNECTION_ATTEMPTS_MILLIS = 2000;
 
@@ -14,5 +43,66 @@ public class ProductsSessionCustomiser implements SessionCustomizer {
         DatabaseLogin datasourceLogin = (DatabaseLogin) session.getDatasourceLogin();
         datasourceLogin.setQueryRetryAttemptCount(QUERY_RETRY_ATTEMPT_COUNT_ZERO_BASED_INDEX);
         datasourceLogin.setDelayBetweenConnectionAttempts(DELAY_BETWEEN_CONNECTION_ATTEMPTS_MILLIS);
+
+        JPAConfiguration jpaConfiguration = (JPAConfiguration) session.getProperty(JPA_CONFIGURATION);
+        if (jpaConfiguration == null) {
+            return;
+        }
+        AbstractSession abstractSession = (AbstractSession) session;
+        jpaConfiguration.getEntityCaches().forEach((entityName, cacheConfiguration) ->
+                configureEntityCache(descriptorFor(abstractSession, entityName), cacheConfiguration));
+        if (Boolean.parseBoolean(jpaConfiguration.getQueryResultsCache())) {
+            configureQueryResultsCaches(abstractSession, jpaConfiguration);
+        }
+
+        MetricRegistry metricRegistry = (MetricRegistry) session.getProperty(METRIC_REGISTRY);
+        if (metricRegistry != null) {
+            JpaStatistics jpaStatistics = new JpaStatistics(metricRegistry);
+            abstractSession.setProfiler(jpaStatistics);
+            jpaConfiguration.getEntityCaches().forEach((entityName, cacheConfiguration) -> {
+                if (cacheConfiguration.isShared()) {
+                    jpaStatistics.registerSizeGauge(abstractSession, descriptorFor(abstractSession, entityName));
+                }
+            });
+        }
+    }
+
+    private static void configureEntityCache(ClassDescriptor descriptor, EntityCacheConfiguration cacheConfiguration) {
+        if (!cacheConfiguration.isShared()) {
+            descriptor.setCacheIsolation(CacheIsolationType.ISOLATED);
+            return;
+        }
+        descriptor.setCacheIsolation(cacheConfiguration.getIsolation());
+        descriptor.setIdentityMapSize(cacheConfiguration.getSize());
+        descriptor.setCacheInvalidationPolicy(
+                new TimeToLiveCacheInvalidationPolicy(cacheConfiguration.getExpiry().toMilliseconds()));
+    }
+
+    // Named queries are still unprocessed JPA queries at this point, so the cache is set up through their hints
+    private static void configureQueryResultsCaches(AbstractSession session, JPAConfiguration jpaConfiguration) {
+        if (descriptorFor(session, "ProductEntity").isIsolated()) {
+            logger.warn("Not caching product query results because ProductEntity is not in the shared cache");
+            return;
+        }
+        for (DatabaseQuery query : session.getJPAQueries()) {
+            if (query instanceof JPAQuery && ProductEntity.CACHEABLE_QUERIES.contains(query.getName())) {
+                JPAQuery jpaQuery = (JPAQuery) query;
+                Map<String, Object> hints = jpaQuery.getHints() == null ? new HashMap<>() : new HashMap<>(jpaQuery.getHints());
+                hints.put(QueryHints.QUERY_RESULTS_CACHE, HintValues.TRUE);
+                hints.put(QueryHints.QUERY_RESULTS_CACHE_SIZE, String.valueOf(jpaConfiguration.getQueryResultsCacheSize()));
+                hints.put(QueryHints.QUERY_RESULTS_CACHE_EXPIRY,
+                        String.valueOf(jpaConfiguration.getQueryResultsCacheExpiry().toMilliseconds()));
+                hints.put(QueryHints.QUERY_RESULTS_CACHE_INVALIDATE, HintValues.TRUE);
+                jpaQuery.setHints(hints);
+            }
+        }
+    }
+
+    private static ClassDescriptor descriptorFor(AbstractSession session, String entityName) {
+        ClassDescriptor descriptor = session.getDescriptorForAlias(entityName);
+        if (descriptor == null) {
+            throw new IllegalStateException(format("No entity named %s to configure a cache for", entityName));
+        }
+        return descriptor;
     }
 }
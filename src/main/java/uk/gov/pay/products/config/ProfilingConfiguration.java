@@ -0,0 +1,30 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.DataSize;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.NotNull;
+
+public class ProfilingConfiguration extends Configuration {
+
+    /**
+     * The longest flight recording that can be asked for from the admin connector.
+     */
+    @NotNull
+    private Duration maxDuration = Duration.minutes(2);
+
+    /**
+     * Flight recordings are kept on disk to at most this size, with the oldest events dropped beyond it.
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.mebibytes(50);
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,30 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * The {@code readReplicaDatabase:} section: a connection pool to a Postgres streaming replica, set up like
+ * {@code database:}, and how far behind the primary it may fall before reads go back to the primary.
+ */
+public class ReadReplicaConfiguration extends DataSourceFactory {
+
+    /**
+     * Reads go to the primary while the replica is further behind than this.
+     */
+    @NotNull
+    private Duration maxLag = Duration.seconds(5L);
+
+    @NotNull
+    private Duration lagCheckInterval = Duration.seconds(1L);
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public Duration getLagCheckInterval() {
+        return lagCheckInterval;
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.pay.products.config;
 import io.dropwizard.Configuration;
 import io.dropwizard.util.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class RestClientConfiguration extends Configuration {
@@ -14,6 +15,39 @@ public class RestClientConfiguration extends Configuration {
     @NotNull
     private Duration readTimeout = Duration.seconds(50L);
 
+    @Min(1)
+    private int maxConnections = 100;
+
+    @Min(1)
+    private int maxConnectionsPerRoute = 50;
+
+    /**
+     * How long a request waits to lease a pooled connection before failing.
+     */
+    @NotNull
+    private Duration connectionRequestTimeout = Duration.seconds(5L);
+
+    /**
+     * Kept-alive connections idle for longer than this are closed by a background evictor.
+     */
+    @NotNull
+    private Duration idleConnectionTimeout = Duration.seconds(30L);
+
+    /**
+     * Connections are not reused once this old, so that DNS changes behind a downstream host are picked up.
+     */
+    @NotNull
+    private Duration connectionTimeToLive = Duration.minutes(5L);
+
+    @NotNull
+    private Duration validateAfterInactivity = Duration.seconds(2L);
+
+    @Min(0)
+    private int tlsSessionCacheSize = 100;
+
+    @NotNull
+    private Duration tlsSessionTimeout = Duration.hours(1L);
+
     public Boolean isDisabledSecureConnection() {
         return "true".equals(disabledSecureConnection);
     }
@@ -25,4 +59,36 @@ public class RestClientConfiguration extends Configuration {
     public Duration getReadTimeout() {
         return readTimeout;
     }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public Duration getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    public Duration getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    public Duration getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
 }
@@ -0,0 +1,47 @@
+package uk.gov.pay.products.config;
+
+import io.dropwizard.Configuration;
+import io.dropwizard.util.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SlowRequestConfiguration extends Configuration {
+
+    /**
+     * Requests still running after this long have stacks sampled from the thread working on them.
+     */
+    @NotNull
+    private Duration threshold = Duration.seconds(2);
+
+    @Min(1)
+    private int samples = 3;
+
+    /**
+     * The pause between samples, which is also how often in-flight requests are checked against the threshold.
+     */
+    @NotNull
+    private Duration sampleInterval = Duration.milliseconds(250);
+
+    /**
+     * Slow requests sampled and logged each minute at most. Any more are only counted.
+     */
+    @Min(0)
+    private int maxReportsPerMinute = 6;
+
+    public Duration getThreshold() {
+        return threshold;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public Duration getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public int getMaxReportsPerMinute() {
+        return maxReportsPerMinute;
+    }
+}
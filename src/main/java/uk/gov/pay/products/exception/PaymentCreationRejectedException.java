@@ -0,0 +1,14 @@
+package uk.gov.pay.products.exception;
+
+public class PaymentCreationRejectedException extends RuntimeException {
+
+    private final String productExternalId;
+
+    public PaymentCreationRejectedException(String productExternalId) {
+        this.productExternalId = productExternalId;
+    }
+
+    public String getProductExternalId() {
+        return productExternalId;
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.pay.products.exception.mapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.exception.PaymentCreationRejectedException;
+import uk.gov.pay.products.util.Errors;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+public class PaymentCreationRejectedExceptionMapper implements ExceptionMapper<PaymentCreationRejectedException> {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public Response toResponse(PaymentCreationRejectedException exception) {
+        logger.warn("Too many payment creations in flight, rejected payment for product {}", exception.getProductExternalId());
+
+        return Response
+                .status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .entity(Errors.from("Too many payments are being created, please try again."))
+                .build();
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.pay.products.filters;
 
 import org.slf4j.MDC;
+import uk.gov.pay.products.persistence.DatabaseUsage;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
@@ -15,9 +16,16 @@ import static uk.gov.pay.logging.LoggingKeys.SERVICE_PAYMENT_REFERENCE;
 public class LoggingMDCRequestFilter implements ContainerRequestFilter {
     
     public static final String PRODUCT_EXTERNAL_ID= "product_external_id";
+
+    /**
+     * Request property holding the {@link DatabaseUsage} started for the request.
+     */
+    public static final String DATABASE_USAGE = "uk.gov.pay.products.database-usage";
     
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
+        requestContext.setProperty(DATABASE_USAGE, DatabaseUsage.start());
+
         getPathParameterFromRequest("gatewayAccountId", requestContext)
                 .ifPresent(gatewayAccountId -> MDC.put(GATEWAY_ACCOUNT_ID, gatewayAccountId));
 
@@ -1,23 +1,77 @@
 package uk.gov.pay.products.filters;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
 import org.slf4j.MDC;
+import uk.gov.pay.products.persistence.DatabaseUsage;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
 import java.io.IOException;
 import java.util.List;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static uk.gov.pay.logging.LoggingKeys.GATEWAY_ACCOUNT_ID;
 import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
 import static uk.gov.pay.logging.LoggingKeys.SERVICE_PAYMENT_REFERENCE;
+import static uk.gov.pay.products.filters.LoggingMDCRequestFilter.DATABASE_USAGE;
 import static uk.gov.pay.products.filters.LoggingMDCRequestFilter.PRODUCT_EXTERNAL_ID;
 
+/**
+ * Finishes the request's {@link DatabaseUsage} and records it in {@code <resource class>.<method>.db-statements} and
+ * {@code db-rows} histograms and a {@code db-time} timer, next to the resource method's own timer. The totals are
+ * also set as the {@value #DB_STATEMENTS}, {@value #DB_ROWS} and {@value #DB_TIME_MS} request attributes, which the
+ * access log layout's {@code requestAttributes} writes onto the request's access log line.
+ */
 public class LoggingMDCResponseFilter implements ContainerResponseFilter {
-    
+
+    public static final String DB_STATEMENTS = "db_statements";
+    public static final String DB_ROWS = "db_rows";
+    public static final String DB_TIME_MS = "db_time_ms";
+
+    private final MetricRegistry metricRegistry;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Inject
+    public LoggingMDCResponseFilter(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    LoggingMDCResponseFilter(MetricRegistry metricRegistry, ResourceInfo resourceInfo) {
+        this.metricRegistry = metricRegistry;
+        this.resourceInfo = resourceInfo;
+    }
+
     @Override
     public void filter(ContainerRequestContext containerRequestContext, ContainerResponseContext containerResponseContext) throws IOException {
         List.of(GATEWAY_ACCOUNT_ID, PAYMENT_EXTERNAL_ID, PRODUCT_EXTERNAL_ID, SERVICE_PAYMENT_REFERENCE)
                 .forEach(MDC::remove);
+
+        DatabaseUsage usage = (DatabaseUsage) containerRequestContext.getProperty(DATABASE_USAGE);
+        if (usage != null) {
+            usage.finish();
+            recordDatabaseUsage(containerRequestContext, usage);
+        }
+    }
+
+    private void recordDatabaseUsage(ContainerRequestContext containerRequestContext, DatabaseUsage usage) {
+        containerRequestContext.setProperty(DB_STATEMENTS, usage.getStatements());
+        containerRequestContext.setProperty(DB_ROWS, usage.getRows());
+        containerRequestContext.setProperty(DB_TIME_MS, usage.getTime(MILLISECONDS));
+
+        // Requests that matched no resource method, such as 404s, are not recorded per endpoint
+        if (resourceInfo == null || resourceInfo.getResourceMethod() == null) {
+            return;
+        }
+        String endpoint = MetricRegistry.name(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod().getName());
+        metricRegistry.histogram(MetricRegistry.name(endpoint, "db-statements")).update(usage.getStatements());
+        metricRegistry.histogram(MetricRegistry.name(endpoint, "db-rows")).update(usage.getRows());
+        metricRegistry.timer(MetricRegistry.name(endpoint, "db-time")).update(usage.getTime(NANOSECONDS), NANOSECONDS);
     }
 }
@@ -0,0 +1,141 @@
+package uk.gov.pay.products.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * A reservoir that keeps every value in an HdrHistogram rather than a sample, so high percentiles such as the 99.9th
+ * are read from all of the values recorded, to within 1%.
+ * <p>
+ * Snapshots cover the values recorded in the last full window and the window in progress, so between one and two
+ * windows' worth, and are the same whichever reporter asks for them. Recording does not lock.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private final Clock clock;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private Histogram interval;
+    private Histogram currentWindow = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+    private Histogram lastWindow = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+    private long currentWindowStart;
+
+    public HdrHistogramReservoir() {
+        this(Clock.defaultClock());
+    }
+
+    HdrHistogramReservoir(Clock clock) {
+        this.clock = clock;
+        this.currentWindowStart = clock.getTick();
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        // HdrHistogram rejects negative values, which a timer can only see if the clock goes backwards
+        recorder.recordValue(Math.max(0L, value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        long now = clock.getTick();
+        if (now - currentWindowStart >= 2 * WINDOW_NANOS) {
+            // Nobody read the reservoir for a whole window, so the window in progress is over too
+            currentWindow.reset();
+            lastWindow.reset();
+            currentWindowStart = now;
+        } else if (now - currentWindowStart >= WINDOW_NANOS) {
+            Histogram finished = currentWindow;
+            currentWindow = lastWindow;
+            currentWindow.reset();
+            lastWindow = finished;
+            currentWindowStart = now;
+        }
+
+        // Values are only taken from the recorder here, so they count towards the window they are read in
+        interval = recorder.getIntervalHistogram(interval);
+        currentWindow.add(interval);
+
+        Histogram histogram = lastWindow.copy();
+        histogram.add(currentWindow);
+        return new HdrSnapshot(histogram);
+    }
+
+    static class HdrSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HdrSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * Each distinct value recorded, to the histogram's precision, once.
+         */
+        @Override
+        public long[] getValues() {
+            return StreamSupport.stream(histogram.recordedValues().spliterator(), false)
+                    .mapToLong(HistogramIterationValue::getValueIteratedTo)
+                    .toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
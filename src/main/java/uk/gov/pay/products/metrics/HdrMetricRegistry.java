@@ -0,0 +1,25 @@
+package uk.gov.pay.products.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * A metric registry whose histograms and timers are backed by an {@link HdrHistogramReservoir}, unless they are
+ * registered with a reservoir of their own.
+ * <p>
+ * It replaces Dropwizard's registry before the application is set up, so it is used for every histogram and timer
+ * created by name, including those Dropwizard creates for Jetty and the connection pool.
+ */
+public class HdrMetricRegistry extends MetricRegistry {
+
+    @Override
+    public Histogram histogram(String name) {
+        return histogram(name, () -> new Histogram(new HdrHistogramReservoir()));
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return timer(name, () -> new Timer(new HdrHistogramReservoir()));
+    }
+}
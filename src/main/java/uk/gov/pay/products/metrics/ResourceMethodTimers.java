@@ -0,0 +1,46 @@
+package uk.gov.pay.products.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.lang.reflect.Method;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Times every request that matched a resource method in a {@code <resource class>.<method>} timer, from the request
+ * arriving at Jersey until its response has been written, so suspended requests are timed until they are resumed
+ * and answered. Unlike Dropwizard's own timers these need no {@code @Timed} annotation.
+ */
+public class ResourceMethodTimers implements ApplicationEventListener {
+
+    private final MetricRegistry metricRegistry;
+
+    public ResourceMethodTimers(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        long start = System.nanoTime();
+        return event -> {
+            if (event.getType() != RequestEvent.Type.FINISHED) {
+                return;
+            }
+            ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+            if (resourceMethod != null) {
+                Method method = resourceMethod.getInvocable().getDefinitionMethod();
+                metricRegistry.timer(MetricRegistry.name(method.getDeclaringClass(), method.getName()))
+                        .update(System.nanoTime() - start, NANOSECONDS);
+            }
+        };
+    }
+}
@@ -18,6 +18,7 @@ public class Link {
         self,
         pay,
         next,
+        next_page,
         friendly
     }
 
@@ -0,0 +1,75 @@
+package uk.gov.pay.products.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Position in a product's payments, newest first: the creation time and id of the last payment already returned.
+ * Clients only ever see it {@link #encode() encoded}, and must pass it back unchanged.
+ */
+public class PaymentCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final ZonedDateTime dateCreated;
+    private final Integer id;
+
+    public PaymentCursor(ZonedDateTime dateCreated, Integer id) {
+        this.dateCreated = dateCreated;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String encode() {
+        String position = dateCreated.toInstant() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Optional<PaymentCursor> decode(String encoded) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = position.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            Instant dateCreated = Instant.parse(position.substring(0, separator));
+            Integer id = Integer.valueOf(position.substring(separator + 1));
+            return Optional.of(new PaymentCursor(ZonedDateTime.ofInstant(dateCreated, ZoneId.of("UTC")), id));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PaymentCursor that = (PaymentCursor) o;
+        return Objects.equals(dateCreated, that.dateCreated) && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dateCreated, id);
+    }
+
+    @Override
+    public String toString() {
+        return format("PaymentCursor{dateCreated=%s, id=%s}", dateCreated, id);
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.pay.products.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class PaymentPage {
+
+    private final List<Payment> results;
+    @JsonIgnore
+    private final PaymentCursor nextCursor;
+    private final List<Link> links = new ArrayList<>();
+
+    public PaymentPage(List<Payment> results, PaymentCursor nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Payment> getResults() {
+        return results;
+    }
+
+    public PaymentCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    @JsonProperty("_links")
+    public List<Link> getLinks() {
+        return links;
+    }
+}
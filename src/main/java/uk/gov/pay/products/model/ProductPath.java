@@ -0,0 +1,40 @@
+package uk.gov.pay.products.model;
+
+import java.util.Objects;
+
+public final class ProductPath {
+
+    private final String serviceNamePath;
+    private final String productNamePath;
+
+    public ProductPath(String serviceNamePath, String productNamePath) {
+        this.serviceNamePath = Objects.requireNonNull(serviceNamePath);
+        this.productNamePath = Objects.requireNonNull(productNamePath);
+    }
+
+    public String getServiceNamePath() {
+        return serviceNamePath;
+    }
+
+    public String getProductNamePath() {
+        return productNamePath;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProductPath that = (ProductPath) o;
+        return serviceNamePath.equals(that.serviceNamePath) && productNamePath.equals(that.productNamePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(serviceNamePath, productNamePath);
+    }
+
+    @Override
+    public String toString() {
+        return serviceNamePath + "/" + productNamePath;
+    }
+}
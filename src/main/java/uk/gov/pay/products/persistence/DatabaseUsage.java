@@ -0,0 +1,84 @@
+package uk.gov.pay.products.persistence;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Totals the SQL statements executed for one request, the rows read from their results and the time spent executing
+ * them.
+ * <p>
+ * A usage is started on the thread handling the request, and connections handed out by {@link InstrumentedDataSource}
+ * while it is current on a thread count into it. Steps of the request run on other threads carry it along with
+ * {@link #callWith(DatabaseUsage, Supplier)}, through {@link uk.gov.pay.products.util.RequestContext}, so it can be
+ * added to from several threads at once. Once finished a
+ * usage is no longer current anywhere, even on a thread that let go of the request without finishing it.
+ */
+public class DatabaseUsage {
+
+    private static final ThreadLocal<DatabaseUsage> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private volatile boolean finished;
+
+    /**
+     * Starts a usage and makes it current on this thread.
+     */
+    public static DatabaseUsage start() {
+        DatabaseUsage usage = new DatabaseUsage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    public static Optional<DatabaseUsage> current() {
+        DatabaseUsage usage = CURRENT.get();
+        return usage == null || usage.finished ? Optional.empty() : Optional.of(usage);
+    }
+
+    /**
+     * Runs the step with the given usage, which may be null, current on this thread.
+     */
+    public static <T> T callWith(DatabaseUsage usage, Supplier<T> step) {
+        DatabaseUsage previous = CURRENT.get();
+        CURRENT.set(usage);
+        try {
+            return step.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Stops the usage being current, here or on any thread it was left on.
+     */
+    public void finish() {
+        finished = true;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    void statementExecuted(long nanos) {
+        statements.increment();
+        executionNanos.add(nanos);
+    }
+
+    void rowRead() {
+        rows.increment();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getTime(TimeUnit unit) {
+        return unit.convert(executionNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,127 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.db.ManagedPooledDataSource;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * A Dropwizard pooled data source that also records how long callers wait to be handed a connection.
+ * <p>
+ * The pool itself reports {@code active}, {@code idle}, {@code waiting} and {@code size} gauges under
+ * {@code io.dropwizard.db.ManagedPooledDataSource.<pool name>} once started. The wait is recorded alongside them
+ * in a {@code wait} timer, and connections not handed out within {@code maxWaitForConnection} in a
+ * {@code wait-timeouts} meter. Connections that could not be handed out for any other reason, such as the database
+ * refusing a new one, are counted in a {@code connection-failures} meter instead.
+ * <p>
+ * A connection handed out while a {@link DatabaseUsage} is current on the calling thread adds the statements
+ * executed on it to that usage.
+ */
+public class InstrumentedDataSource implements ManagedDataSource {
+
+    private final ManagedDataSource delegate;
+    private final Timer wait;
+    private final Meter waitTimeouts;
+    private final Meter connectionFailures;
+
+    public static InstrumentedDataSource build(DataSourceFactory dataSourceFactory, MetricRegistry metricRegistry,
+                                               String poolName) {
+        return new InstrumentedDataSource(dataSourceFactory.build(metricRegistry, poolName), metricRegistry, poolName);
+    }
+
+    InstrumentedDataSource(ManagedDataSource delegate, MetricRegistry metricRegistry, String poolName) {
+        this.delegate = delegate;
+        this.wait = metricRegistry.timer(MetricRegistry.name(ManagedPooledDataSource.class, poolName, "wait"));
+        this.waitTimeouts = metricRegistry.meter(MetricRegistry.name(ManagedPooledDataSource.class, poolName, "wait-timeouts"));
+        this.connectionFailures = metricRegistry.meter(MetricRegistry.name(ManagedPooledDataSource.class, poolName, "connection-failures"));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try (Timer.Context ignored = wait.time()) {
+            return accounted(delegate.getConnection());
+        } catch (SQLException e) {
+            recordFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        try (Timer.Context ignored = wait.time()) {
+            return accounted(delegate.getConnection(username, password));
+        } catch (SQLException e) {
+            recordFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        delegate.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        delegate.stop();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    // The pool raises PoolExhaustedException only once maxWaitForConnection has passed without a free connection
+    private void recordFailure(SQLException e) {
+        if (e instanceof PoolExhaustedException) {
+            waitTimeouts.mark();
+        } else {
+            connectionFailures.mark();
+        }
+    }
+
+    private static Connection accounted(Connection connection) {
+        return DatabaseUsage.current()
+                .map(usage -> StatementAccounting.account(connection, usage))
+                .orElse(connection);
+    }
+}
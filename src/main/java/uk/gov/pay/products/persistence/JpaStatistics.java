@@ -0,0 +1,104 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements EclipseLink executes into a {@code jpa.statements} counter, times them per query in
+ * {@code jpa.queries.<entity>.<query name>} timers, and counts shared cache and query results cache hits and misses
+ * into {@code jpa.cache.*} counters, which are served from the admin connector with the rest of the application's
+ * metrics.
+ * <p>
+ * Counters are kept per entity, {@code jpa.cache.<entity>.hits}, and per named query,
+ * {@code jpa.cache.<entity>.<query name>.hits} with the entity name dropped from the front of the query name.
+ * Queries without a name, such as inserts and updates, are timed under the name of their query class.
+ * Only statement and cache events are looked at, so this costs a counter increment per cache lookup and a timer
+ * update per statement rather than the timing of every operation that a full profiler does.
+ */
+public class JpaStatistics extends SessionProfilerAdapter {
+
+    private static final String METRICS_PREFIX = "jpa.cache";
+    private static final String QUERY_METRICS_PREFIX = "jpa.queries";
+
+    private final MetricRegistry metricRegistry;
+    private final Counter statements;
+    private final ThreadLocal<long[]> statementStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    public JpaStatistics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.statements = metricRegistry.counter("jpa.statements");
+    }
+
+    /**
+     * Registers a {@code jpa.cache.<entity>.size} gauge of the number of instances in the shared cache.
+     */
+    public void registerSizeGauge(AbstractSession session, ClassDescriptor descriptor) {
+        metricRegistry.gauge(MetricRegistry.name(METRICS_PREFIX, descriptor.getAlias(), "size"),
+                () -> (Gauge<Integer>) () -> session.getIdentityMapAccessorInstance().getIdentityMap(descriptor).getSize());
+    }
+
+    @Override
+    public void startOperationProfile(String operationName, DatabaseQuery query, int weight) {
+        if (SessionProfiler.StatementExecute.equals(operationName)) {
+            statements.inc();
+            statementStart.get()[0] = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void endOperationProfile(String operationName, DatabaseQuery query, int weight) {
+        if (SessionProfiler.StatementExecute.equals(operationName)) {
+            long elapsed = System.nanoTime() - statementStart.get()[0];
+            metricRegistry.timer(queryTimerName(query)).update(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void occurred(String operationName, DatabaseQuery query, AbstractSession session) {
+        String outcome = outcome(operationName);
+        if (outcome == null || query == null || query.getDescriptor() == null) {
+            return;
+        }
+        String entity = query.getDescriptor().getAlias();
+        metricRegistry.counter(MetricRegistry.name(METRICS_PREFIX, entity, outcome)).inc();
+        String queryName = query.getName();
+        if (queryName != null && !queryName.isEmpty()) {
+            if (queryName.startsWith(entity + ".")) {
+                queryName = queryName.substring(entity.length() + 1);
+            }
+            metricRegistry.counter(MetricRegistry.name(METRICS_PREFIX, entity, queryName, outcome)).inc();
+        }
+    }
+
+    private static String queryTimerName(DatabaseQuery query) {
+        if (query == null) {
+            return MetricRegistry.name(QUERY_METRICS_PREFIX, "unknown");
+        }
+        String entity = query.getDescriptor() == null ? "none" : query.getDescriptor().getAlias();
+        String queryName = query.getName();
+        if (queryName == null || queryName.isEmpty()) {
+            queryName = query.getClass().getSimpleName();
+        } else if (queryName.startsWith(entity + ".")) {
+            queryName = queryName.substring(entity.length() + 1);
+        }
+        return MetricRegistry.name(QUERY_METRICS_PREFIX, entity, queryName);
+    }
+
+    private static String outcome(String operationName) {
+        if (SessionProfiler.CacheHits.equals(operationName)) {
+            return "hits";
+        }
+        if (SessionProfiler.CacheMisses.equals(operationName)) {
+            return "misses";
+        }
+        return null;
+    }
+}
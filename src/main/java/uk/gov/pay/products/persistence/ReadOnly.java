@@ -0,0 +1,18 @@
+package uk.gov.pay.products.persistence;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method whose queries may run on the read replica, when one is configured and is not too far
+ * behind the primary. Only for reads that can tolerate that lag, and never for a method that writes or is called
+ * while a write is in progress, as the replica cannot see uncommitted changes.
+ *
+ * @see ReadReplicaInterceptor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnly {
+}
@@ -0,0 +1,121 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.config.ReadReplicaConfiguration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The read replica {@link ReadOnly} methods query, with its own connection pool and entity manager factory.
+ * <p>
+ * How far the replica is behind the primary is checked every {@code lagCheckInterval} and reported in a
+ * {@code read-replica.lag-millis} gauge, which is -1 when the last check failed. Each check first stamps the time on
+ * the primary's {@code replication_heartbeat} row, then reads how old the replica's copy of that row is, so the lag
+ * keeps growing however the replica stops keeping up, whether it is replaying slowly or no longer receiving anything.
+ * The replica is only used while the last check succeeded and found it no more than {@code maxLag} behind.
+ */
+public class ReadReplica implements Managed {
+
+    public static final String LAG_GAUGE = "read-replica.lag-millis";
+
+    static final String HEARTBEAT_UPDATE = "UPDATE replication_heartbeat SET beat_at = now() WHERE id = 1";
+
+    // A server that is not a replica at all is never behind. A replica with no WAL receiver is not streaming from the
+    // primary, so its lag is unknown; only pg_read_all_stats members can see a receiver's status, so for anyone else a
+    // running receiver counts and a stalled one shows up as the heartbeat getting older
+    static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE COALESCE(status, 'streaming') = 'streaming') THEN NULL " +
+            "ELSE GREATEST(EXTRACT(EPOCH FROM now() - beat_at) * 1000, 0) END::bigint " +
+            "FROM replication_heartbeat WHERE id = 1";
+
+    static final long UNKNOWN_LAG = -1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplica.class);
+
+    private final DataSource primaryDataSource;
+    private final ManagedDataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ScheduledExecutorService lagCheckExecutor;
+    private final long maxLagMillis;
+    private final long lagCheckIntervalMillis;
+    private volatile long lagMillis = UNKNOWN_LAG;
+
+    public ReadReplica(ReadReplicaConfiguration configuration, DataSource primaryDataSource, ManagedDataSource dataSource,
+                       EntityManagerFactory entityManagerFactory, ScheduledExecutorService lagCheckExecutor,
+                       MetricRegistry metricRegistry) {
+        this.primaryDataSource = primaryDataSource;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+        this.lagCheckExecutor = lagCheckExecutor;
+        this.maxLagMillis = configuration.getMaxLag().toMilliseconds();
+        this.lagCheckIntervalMillis = configuration.getLagCheckInterval().toMilliseconds();
+        metricRegistry.gauge(LAG_GAUGE, () -> (Gauge<Long>) () -> lagMillis);
+    }
+
+    @Override
+    public void start() throws Exception {
+        dataSource.start();
+        lagCheckExecutor.scheduleWithFixedDelay(this::checkLag, 0L, lagCheckIntervalMillis, MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        entityManagerFactory.close();
+        dataSource.stop();
+    }
+
+    public boolean isUsable() {
+        long lag = lagMillis;
+        return lag != UNKNOWN_LAG && lag <= maxLagMillis;
+    }
+
+    public EntityManager createEntityManager() {
+        return entityManagerFactory.createEntityManager();
+    }
+
+    void checkLag() {
+        beat();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            lagMillis = resultSet.next() ? lagOf(resultSet) : UNKNOWN_LAG;
+        } catch (SQLException | RuntimeException e) {
+            // Caught so that the next scheduled check still runs
+            logger.warn("Unable to check read replica lag, reading from the primary until it can be checked: {}", e.getMessage());
+            lagMillis = UNKNOWN_LAG;
+        }
+    }
+
+    private static long lagOf(ResultSet resultSet) throws SQLException {
+        long lag = resultSet.getLong(1);
+        return resultSet.wasNull() ? UNKNOWN_LAG : lag;
+    }
+
+    // Another node's heartbeat serves just as well, so a failure here is left to show up as a growing lag
+    private void beat() {
+        try (Connection connection = primaryDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(HEARTBEAT_UPDATE);
+            // Pooled connections keep whatever auto-commit mode their last user left them in
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Unable to write the replication heartbeat to the primary: {}", e.getMessage());
+        }
+    }
+}
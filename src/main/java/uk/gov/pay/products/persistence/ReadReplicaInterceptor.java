@@ -0,0 +1,55 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+/**
+ * Runs {@link ReadOnly} methods with an entity manager on the read replica, which DAOs query in place of the
+ * primary's for as long as the method runs. When the replica is too far behind, or its lag is unknown, the method
+ * runs on the primary and is counted in a {@code read-replica.primary-fallbacks} counter.
+ */
+public class ReadReplicaInterceptor implements MethodInterceptor {
+
+    public static final String PRIMARY_FALLBACKS_COUNTER = "read-replica.primary-fallbacks";
+
+    private static final ThreadLocal<EntityManager> replicaEntityManager = new ThreadLocal<>();
+
+    private final ReadReplica readReplica;
+    private final Counter primaryFallbacks;
+
+    public ReadReplicaInterceptor(ReadReplica readReplica, MetricRegistry metricRegistry) {
+        this.readReplica = readReplica;
+        this.primaryFallbacks = metricRegistry.counter(PRIMARY_FALLBACKS_COUNTER);
+    }
+
+    /**
+     * The replica entity manager of the {@link ReadOnly} method running on this thread, if it is using the replica.
+     */
+    public static Optional<EntityManager> currentEntityManager() {
+        return Optional.ofNullable(replicaEntityManager.get());
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (replicaEntityManager.get() != null) {
+            return invocation.proceed();
+        }
+        if (!readReplica.isUsable()) {
+            primaryFallbacks.inc();
+            return invocation.proceed();
+        }
+        EntityManager entityManager = readReplica.createEntityManager();
+        replicaEntityManager.set(entityManager);
+        try {
+            return invocation.proceed();
+        } finally {
+            replicaEntityManager.remove();
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.pay.products.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Wraps a connection so that the statements executed on it, the rows read from their results and the time spent
+ * executing them are added to a {@link DatabaseUsage}. A batch counts as one statement, and the time is only that of
+ * the {@code execute} calls, which with pgjdbc's default fetch size includes reading every row from Postgres.
+ */
+final class StatementAccounting {
+
+    static Connection account(Connection connection, DatabaseUsage usage) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result != null && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return account((Statement) result, method.getReturnType(), usage);
+            }
+            return result;
+        });
+    }
+
+    private static Object account(Statement statement, Class<?> type, DatabaseUsage usage) {
+        return proxy(type, statement, (method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return accountRows(invoke(statement, method, args), usage);
+            }
+            long start = System.nanoTime();
+            try {
+                return accountRows(invoke(statement, method, args), usage);
+            } finally {
+                usage.statementExecuted(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static Object accountRows(Object result, DatabaseUsage usage) {
+        if (!(result instanceof ResultSet)) {
+            return result;
+        }
+        ResultSet resultSet = (ResultSet) result;
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            Object next = invoke(resultSet, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(next)) {
+                usage.rowRead();
+            }
+            return next;
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return method.getParameterCount() == 1 && proxy == args[0];
+                case "hashCode":
+                    return method.getParameterCount() == 0 ? System.identityHashCode(proxy) : handler.handle(method, args);
+                default:
+                    return handler.handle(method, args);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(StatementAccounting.class.getClassLoader(), new Class<?>[]{type},
+                invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private StatementAccounting() {
+    }
+}
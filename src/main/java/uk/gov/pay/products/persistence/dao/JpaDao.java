@@ -2,6 +2,7 @@ package uk.gov.pay.products.persistence.dao;
 
 import com.google.inject.Provider;
 import com.google.inject.persist.Transactional;
+import uk.gov.pay.products.persistence.ReadReplicaInterceptor;
 
 import javax.persistence.EntityManager;
 
@@ -9,23 +10,26 @@ import javax.persistence.EntityManager;
 public abstract class JpaDao<T> {
 
     final Provider<EntityManager> entityManager;
+    private final Provider<EntityManager> primaryEntityManager;
 
+    // Queries made while a ReadOnly method is using the read replica go to it, but writes always go to the primary
     JpaDao(Provider<EntityManager> entityManager) {
-        this.entityManager = entityManager;
+        this.primaryEntityManager = entityManager;
+        this.entityManager = () -> ReadReplicaInterceptor.currentEntityManager().orElseGet(entityManager::get);
     }
 
     public void persist(final T object) {
-        entityManager.get().persist(object);
+        primaryEntityManager.get().persist(object);
     }
 
     public void remove(T object) {
-        if (!entityManager.get().contains(object)) {
-            object = entityManager.get().merge(object);
+        if (!primaryEntityManager.get().contains(object)) {
+            object = primaryEntityManager.get().merge(object);
         }
-        entityManager.get().remove(object);
+        primaryEntityManager.get().remove(object);
     }
 
     public T merge(final T object) {
-        return entityManager.get().merge(object);
+        return primaryEntityManager.get().merge(object);
     }
 }
@@ -2,9 +2,13 @@ package uk.gov.pay.products.persistence.dao;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import uk.gov.pay.products.model.PaymentCursor;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,32 +20,83 @@ public class PaymentDao extends JpaDao<PaymentEntity> {
     }
 
     public Optional<PaymentEntity> findByExternalId(String externalId) {
-        String query = "SELECT payment FROM PaymentEntity payment " +
-                "WHERE payment.externalId = :externalId";
-
         return entityManager.get()
-                .createQuery(query, PaymentEntity.class)
+                .createNamedQuery(PaymentEntity.FIND_BY_EXTERNAL_ID, PaymentEntity.class)
                 .setParameter("externalId", externalId)
                 .getResultList().stream().findFirst();
     }
 
     public List<PaymentEntity> findByProductExternalId(String productExternalId){
-        String query = "SELECT payment FROM PaymentEntity payment WHERE payment.product.externalId=:productExternalId";
-
         return entityManager.get()
-                .createQuery(query, PaymentEntity.class)
+                .createNamedQuery(PaymentEntity.FIND_BY_PRODUCT_EXTERNAL_ID, PaymentEntity.class)
+                .setParameter("productExternalId", productExternalId)
+                .getResultList();
+    }
+
+    /**
+     * Returns up to {@code limit} payments of the product, newest first, starting after {@code after} or from the
+     * newest payment when it is null. Walks {@code payments_product_id_date_created_idx} with id as the tie-breaker.
+     */
+    public List<PaymentEntity> findByProductExternalId(String productExternalId, PaymentCursor after, int limit) {
+        TypedQuery<PaymentEntity> typedQuery;
+        if (after == null) {
+            typedQuery = entityManager.get()
+                    .createNamedQuery(PaymentEntity.FIND_FIRST_PAGE_BY_PRODUCT_EXTERNAL_ID, PaymentEntity.class);
+        } else {
+            typedQuery = entityManager.get()
+                    .createNamedQuery(PaymentEntity.FIND_PAGE_BY_PRODUCT_EXTERNAL_ID, PaymentEntity.class)
+                    .setParameter("dateCreated", after.getDateCreated())
+                    .setParameter("id", after.getId());
+        }
+        return typedQuery
                 .setParameter("productExternalId", productExternalId)
+                .setMaxResults(limit)
                 .getResultList();
     }
-    
+
     public Optional<PaymentEntity> findByGatewayAccountIdAndReferenceNumber(Integer gatewayAccountId, String referenceNumber) {
-        String query = "SELECT payment FROM PaymentEntity payment " +
-                "WHERE payment.gatewayAccountId = :gatewayAccountId " +
-                "AND payment.referenceNumber =:referenceNumber";
         return entityManager.get()
-                .createQuery(query, PaymentEntity.class)
+                .createNamedQuery(PaymentEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_REFERENCE_NUMBER, PaymentEntity.class)
                 .setParameter("gatewayAccountId", gatewayAccountId)
                 .setParameter("referenceNumber", referenceNumber)
                 .getResultList().stream().findFirst();
     }
+
+    /**
+     * Reserves the next block of payment reference sequence numbers and returns the first of them. Each call moves
+     * the sequence on by its increment, so blocks never overlap, even across nodes.
+     */
+    public long nextReferenceBlock() {
+        return ((Number) entityManager.get()
+                .createNamedQuery(PaymentEntity.NEXT_REFERENCE_BLOCK)
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Claims up to {@code limit} SUBMITTED payments whose govuk status is unfinished and was last checked before
+     * {@code staleBefore}, oldest check first, until {@code claimedUntil}, and returns them. Payments still claimed
+     * at {@code now} are left alone, and rows another node is claiming at the same time are skipped rather than
+     * waited for. The claim does not count as a check, so a payment whose lookup fails is claimed again once the
+     * claim runs out.
+     */
+    public List<PaymentEntity> claimForGovukStatusReconciliation(ZonedDateTime staleBefore, ZonedDateTime now,
+                                                                 ZonedDateTime claimedUntil, int limit) {
+        @SuppressWarnings("unchecked")
+        List<Integer> claimedIds = entityManager.get()
+                .createNamedQuery(PaymentEntity.CLAIM_FOR_GOVUK_STATUS_RECONCILIATION)
+                .setParameter(1, Timestamp.from(claimedUntil.toInstant()))
+                .setParameter(2, Timestamp.from(staleBefore.toInstant()))
+                .setParameter(3, Timestamp.from(now.toInstant()))
+                .setParameter(4, limit)
+                .getResultList();
+
+        if (claimedIds.isEmpty()) {
+            return List.of();
+        }
+
+        return entityManager.get()
+                .createNamedQuery(PaymentEntity.FIND_BY_IDS, PaymentEntity.class)
+                .setParameter("ids", claimedIds)
+                .getResultList();
+    }
 }
@@ -2,15 +2,19 @@ package uk.gov.pay.products.persistence.dao;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import uk.gov.pay.products.model.ProductPath;
 import uk.gov.pay.products.model.ProductUsageStat;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.persistence.entity.ProductUsageEntity;
 import uk.gov.pay.products.util.ProductStatus;
 import uk.gov.pay.products.util.ProductType;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ProductDao extends JpaDao<ProductEntity> {
 
@@ -20,57 +24,38 @@ public class ProductDao extends JpaDao<ProductEntity> {
     }
 
     public Optional<ProductEntity> findByExternalId(String externalId) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.externalId = :externalId";
-
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_EXTERNAL_ID, ProductEntity.class)
                 .setParameter("externalId", externalId)
                 .getResultList().stream().findFirst();
     }
 
     public Optional<ProductEntity> findById(Integer id) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.id = :id";
-        
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_ID, ProductEntity.class)
                 .setParameter("id", id)
                 .getResultList().stream().findFirst();
     }
 
     public Optional<ProductEntity> findByGatewayAccountIdAndExternalId(Integer gatewayAccountId, String externalId) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.externalId = :externalId " +
-                "AND product.gatewayAccountId = :gatewayAccountId";
-
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_EXTERNAL_ID, ProductEntity.class)
                 .setParameter("externalId", externalId)
                 .setParameter("gatewayAccountId", gatewayAccountId)
                 .getResultList().stream().findFirst();
     }
 
     public List<ProductEntity> findByGatewayAccountId(Integer gatewayAccountId) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.gatewayAccountId = :gatewayAccountId " +
-                "AND product.status = :status";
-
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID, ProductEntity.class)
                 .setParameter("gatewayAccountId", gatewayAccountId)
                 .setParameter("status", ProductStatus.ACTIVE)
                 .getResultList();
     }
 
     public List<ProductEntity> findByGatewayAccountIdAndType(Integer gatewayAccountId, ProductType type) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.gatewayAccountId = :gatewayAccountId " +
-                "AND product.type = :type " +
-                "AND product.status = :status";
-
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_TYPE, ProductEntity.class)
                 .setParameter("gatewayAccountId", gatewayAccountId)
                 .setParameter("type", type)
                 .setParameter("status", ProductStatus.ACTIVE)
@@ -78,42 +63,55 @@ public class ProductDao extends JpaDao<ProductEntity> {
     }
 
     public Optional<ProductEntity> findByProductPath(String serviceNamePath, String productNamePath) {
-        String query = "SELECT product FROM ProductEntity product " +
-                "WHERE product.serviceNamePath = :serviceNamePath " +
-                "AND product.productNamePath = :productNamePath";
-
         return entityManager.get()
-                .createQuery(query, ProductEntity.class)
+                .createNamedQuery(ProductEntity.FIND_BY_PRODUCT_PATH, ProductEntity.class)
                 .setParameter("serviceNamePath", serviceNamePath)
                 .setParameter("productNamePath", productNamePath)
                 .getResultList().stream().findFirst();
     }
 
-    public List<ProductUsageStat> findProductsAndUsage(Integer gatewayAccountId) {
-        return findProductsAndUsageQuery(gatewayAccountId);
+    public Map<String, ProductPath> findAllProductPaths() {
+        return entityManager.get()
+                .createNamedQuery(ProductEntity.FIND_ALL_PRODUCT_PATHS, Object[].class)
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(
+                        row -> (String) row[0],
+                        row -> new ProductPath((String) row[1], (String) row[2])));
     }
 
-    private List<ProductUsageStat> findProductsAndUsageQuery(Integer gatewayAccountId) {
-        Boolean shouldFilterGatewayAccount = gatewayAccountId != null;
-        String conditionalFilter = shouldFilterGatewayAccount ?
-                "AND payments.product.gatewayAccountId = :gatewayAccountId " :
-                "";
-        String query = "SELECT new uk.gov.pay.products.model.ProductUsageStat(" +
-                "COUNT(1)," +
-                "MAX(payments.dateCreated)," +
-                "payments.product) " +
-                "FROM PaymentEntity payments " +
-                "WHERE payments.product.type = :type " +
-                conditionalFilter +
-                "GROUP BY payments.product";
-
-        TypedQuery<ProductUsageStat> queryBuilder = entityManager.get()
-                .createQuery(query, ProductUsageStat.class)
-                .setParameter("type", ProductType.ADHOC);
+    /**
+     * Reads the {@code product_usage} rollup, so the cost grows with the number of products rather than payments.
+     * The products, their metadata and their usage are each read in one statement, however many products there are.
+     */
+    public List<ProductUsageStat> findProductsAndUsage(Integer gatewayAccountId) {
+        Map<Integer, ProductUsageEntity> usageByProductId = usedProductsQuery(
+                ProductUsageEntity.FIND_USED, ProductUsageEntity.FIND_USED_BY_GATEWAY_ACCOUNT_ID, gatewayAccountId, ProductUsageEntity.class)
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(ProductUsageEntity::getProductId, productUsage -> productUsage));
+
+        return usedProductsQuery(ProductEntity.FIND_USED, ProductEntity.FIND_USED_BY_GATEWAY_ACCOUNT_ID, gatewayAccountId, ProductEntity.class)
+                .getResultList()
+                .stream()
+                .filter(product -> usageByProductId.containsKey(product.getId()))
+                .map(product -> {
+                    ProductUsageEntity productUsage = usageByProductId.get(product.getId());
+                    return new ProductUsageStat(productUsage.getPaymentCount(), productUsage.getLastPaymentDate(), product);
+                })
+                .collect(Collectors.toList());
+    }
 
-        if (shouldFilterGatewayAccount) {
-            queryBuilder.setParameter("gatewayAccountId", gatewayAccountId);
+    private <T> TypedQuery<T> usedProductsQuery(String allAccountsQuery, String gatewayAccountQuery,
+                                                Integer gatewayAccountId, Class<T> resultClass) {
+        if (gatewayAccountId == null) {
+            return entityManager.get()
+                    .createNamedQuery(allAccountsQuery, resultClass)
+                    .setParameter("type", ProductType.ADHOC);
         }
-        return queryBuilder.getResultList();
+        return entityManager.get()
+                .createNamedQuery(gatewayAccountQuery, resultClass)
+                .setParameter("type", ProductType.ADHOC)
+                .setParameter("gatewayAccountId", gatewayAccountId);
     }
 }
@@ -16,32 +16,23 @@ public class ProductMetadataDao extends JpaDao<ProductMetadataEntity> {
     }
 
     public List<ProductMetadataEntity> findByProductsExternalId(String productExternalId) {
-        String query = "SELECT metadata FROM ProductMetadataEntity metadata " +
-                "WHERE metadata.productEntity.externalId = :productExternalId ";
-
         return entityManager.get()
-                .createQuery(query, ProductMetadataEntity.class)
+                .createNamedQuery(ProductMetadataEntity.FIND_BY_PRODUCT_EXTERNAL_ID, ProductMetadataEntity.class)
                 .setParameter("productExternalId", productExternalId)
                 .getResultList();
     }
 
     public Optional<ProductMetadataEntity> findByProductsExternalIdAndKey(String productExternalId, String key) {
-        String query = "SELECT metadata FROM ProductMetadataEntity metadata " +
-                "WHERE metadata.productEntity.externalId = :productExternalId " +
-                "AND lower(metadata.metadataKey) = :key";
         return entityManager.get()
-                .createQuery(query, ProductMetadataEntity.class)
+                .createNamedQuery(ProductMetadataEntity.FIND_BY_PRODUCT_EXTERNAL_ID_AND_KEY, ProductMetadataEntity.class)
                 .setParameter("productExternalId", productExternalId)
                 .setParameter("key", key.toLowerCase())
                 .getResultList().stream().findFirst();
     }
 
     public void deleteForProductExternalId(String productExternalId) {
-        String query = "delete FROM ProductMetadataEntity metadata " +
-                "WHERE metadata.productEntity.externalId = :productExternalId ";
-
         entityManager.get()
-                .createQuery(query, ProductMetadataEntity.class)
+                .createNamedQuery(ProductMetadataEntity.DELETE_BY_PRODUCT_EXTERNAL_ID)
                 .setParameter("productExternalId", productExternalId)
                 .executeUpdate();
     }
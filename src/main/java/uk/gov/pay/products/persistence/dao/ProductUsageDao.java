@@ -0,0 +1,54 @@
+package uk.gov.pay.products.persistence.dao;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import uk.gov.pay.products.persistence.entity.ProductUsageEntity;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public class ProductUsageDao extends JpaDao<ProductUsageEntity> {
+
+    @Inject
+    ProductUsageDao(Provider<EntityManager> entityManager) {
+        super(entityManager);
+    }
+
+    /**
+     * Counts a newly inserted payment. Must run in the transaction that inserts it, so the two commit together.
+     */
+    public void recordPayment(Integer productId, ZonedDateTime dateCreated) {
+        entityManager.get()
+                .createNamedQuery(ProductUsageEntity.RECORD_PAYMENT)
+                .setParameter(1, productId)
+                .setParameter(2, Timestamp.from(dateCreated.toInstant()))
+                .executeUpdate();
+    }
+
+    public List<Integer> findAllProductIds() {
+        return entityManager.get()
+                .createNamedQuery(ProductUsageEntity.FIND_ALL_PRODUCT_IDS, Integer.class)
+                .getResultList();
+    }
+
+    /**
+     * Recounts a product's usage from its payments. The usage row is locked before counting, so a payment being
+     * created concurrently is either already committed and counted here, or waits and is added on top afterwards.
+     */
+    public void recount(Integer productId) {
+        entityManager.get()
+                .createNamedQuery(ProductUsageEntity.INSERT_IF_MISSING)
+                .setParameter(1, productId)
+                .executeUpdate();
+        entityManager.get()
+                .createNamedQuery(ProductUsageEntity.LOCK)
+                .setParameter(1, productId)
+                .getResultList();
+        entityManager.get()
+                .createNamedQuery(ProductUsageEntity.RECOUNT)
+                .setParameter(1, productId)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.pay.products.persistence.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.util.PGobject;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps product metadata to and from the {@code products.metadata} JSONB column. Products without metadata are
+ * stored as {@code NULL} rather than an empty object.
+ */
+@Converter
+public class MetadataJsonConverter implements AttributeConverter<Map<String, String>, PGobject> {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, String>> METADATA_TYPE = new TypeReference<>() {};
+
+    @Override
+    public PGobject convertToDatabaseColumn(Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            PGobject json = new PGobject();
+            json.setType("jsonb");
+            json.setValue(objectMapper.writeValueAsString(metadata));
+            return json;
+        } catch (JsonProcessingException | SQLException e) {
+            throw new IllegalArgumentException("Unable to convert product metadata to JSON", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(PGobject json) {
+        if (json == null || json.getValue() == null) {
+            return null;
+        }
+        try {
+            return Collections.unmodifiableMap(objectMapper.readValue(json.getValue(), METADATA_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to read product metadata from JSON", e);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package uk.gov.pay.products.persistence.entity;
 import uk.gov.pay.products.model.Payment;
 import uk.gov.pay.products.util.PaymentStatus;
 
-import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
@@ -11,14 +10,66 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 @Entity
 @Table(name = "payments")
+@NamedQueries({
+        @NamedQuery(name = PaymentEntity.FIND_BY_EXTERNAL_ID,
+                query = "SELECT payment FROM PaymentEntity payment WHERE payment.externalId = :externalId"),
+        @NamedQuery(name = PaymentEntity.FIND_BY_PRODUCT_EXTERNAL_ID,
+                query = "SELECT payment FROM PaymentEntity payment " +
+                        "WHERE payment.product.externalId = :productExternalId"),
+        @NamedQuery(name = PaymentEntity.FIND_FIRST_PAGE_BY_PRODUCT_EXTERNAL_ID,
+                query = "SELECT payment FROM PaymentEntity payment " +
+                        "WHERE payment.product.externalId = :productExternalId " +
+                        "ORDER BY payment.dateCreated DESC, payment.id DESC"),
+        @NamedQuery(name = PaymentEntity.FIND_PAGE_BY_PRODUCT_EXTERNAL_ID,
+                query = "SELECT payment FROM PaymentEntity payment " +
+                        "WHERE payment.product.externalId = :productExternalId " +
+                        "AND payment.dateCreated <= :dateCreated " +
+                        "AND (payment.dateCreated < :dateCreated OR payment.id < :id) " +
+                        "ORDER BY payment.dateCreated DESC, payment.id DESC"),
+        @NamedQuery(name = PaymentEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_REFERENCE_NUMBER,
+                query = "SELECT payment FROM PaymentEntity payment " +
+                        "WHERE payment.gatewayAccountId = :gatewayAccountId " +
+                        "AND payment.referenceNumber = :referenceNumber"),
+        @NamedQuery(name = PaymentEntity.FIND_BY_IDS,
+                query = "SELECT payment FROM PaymentEntity payment WHERE payment.id IN :ids")
+})
+@NamedNativeQueries({
+        @NamedNativeQuery(name = PaymentEntity.NEXT_REFERENCE_BLOCK,
+                query = "SELECT nextval('payment_reference_block_seq')"),
+        @NamedNativeQuery(name = PaymentEntity.CLAIM_FOR_GOVUK_STATUS_RECONCILIATION,
+                query = "UPDATE payments SET govuk_status_claimed_until = ?1 " +
+                        "WHERE id IN (" +
+                        "SELECT id FROM payments " +
+                        "WHERE status = 'SUBMITTED' " +
+                        "AND govuk_status_finished = false " +
+                        "AND (govuk_status_checked_at IS NULL OR govuk_status_checked_at < ?2) " +
+                        "AND (govuk_status_claimed_until IS NULL OR govuk_status_claimed_until < ?3) " +
+                        "ORDER BY govuk_status_checked_at NULLS FIRST, id " +
+                        "LIMIT ?4 " +
+                        "FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id")
+})
 public class PaymentEntity extends AbstractEntity {
 
+    public static final String FIND_BY_EXTERNAL_ID = "PaymentEntity.findByExternalId";
+    public static final String FIND_BY_PRODUCT_EXTERNAL_ID = "PaymentEntity.findByProductExternalId";
+    public static final String FIND_FIRST_PAGE_BY_PRODUCT_EXTERNAL_ID = "PaymentEntity.findFirstPageByProductExternalId";
+    public static final String FIND_PAGE_BY_PRODUCT_EXTERNAL_ID = "PaymentEntity.findPageByProductExternalId";
+    public static final String FIND_BY_GATEWAY_ACCOUNT_ID_AND_REFERENCE_NUMBER = "PaymentEntity.findByGatewayAccountIdAndReferenceNumber";
+    public static final String FIND_BY_IDS = "PaymentEntity.findByIds";
+    public static final String NEXT_REFERENCE_BLOCK = "PaymentEntity.nextReferenceBlock";
+    public static final String CLAIM_FOR_GOVUK_STATUS_RECONCILIATION = "PaymentEntity.claimForGovukStatusReconciliation";
+
     @Column(name = "external_id")
     private String externalId;
 
@@ -35,8 +86,12 @@ public class PaymentEntity extends AbstractEntity {
     @Convert(converter = UTCDateTimeConverter.class)
     private ZonedDateTime dateCreated = ZonedDateTime.now(ZoneId.of("UTC"));
 
-    @ManyToOne(cascade = CascadeType.MERGE)
-    @JoinColumn(name = "product_id", updatable = false)
+    @Column(name = "product_id", updatable = false)
+    private Integer productId;
+
+    // Read only, so a payment can be written with just the id of a product that is not loaded
+    @ManyToOne
+    @JoinColumn(name = "product_id", insertable = false, updatable = false)
     private ProductEntity product;
 
     @Column(name = "status")
@@ -49,6 +104,16 @@ public class PaymentEntity extends AbstractEntity {
     @Column(name = "reference_number")
     private String referenceNumber;
 
+    @Column(name = "govuk_status")
+    private String govukStatus;
+
+    @Column(name = "govuk_status_finished")
+    private boolean govukStatusFinished;
+
+    @Column(name = "govuk_status_checked_at")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime govukStatusCheckedAt;
+
     public PaymentEntity() {
     }
 
@@ -98,6 +163,15 @@ public class PaymentEntity extends AbstractEntity {
 
     public void setProductEntity(ProductEntity productEntity) {
         this.product = productEntity;
+        this.productId = productEntity != null ? productEntity.getId() : null;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
     }
 
     public PaymentStatus getStatus() { return status; }
@@ -105,14 +179,21 @@ public class PaymentEntity extends AbstractEntity {
     public void setStatus(PaymentStatus status) { this.status = status; }
 
     public Payment toPayment() {
+        return toPayment(this.product != null ? this.product.getExternalId() : null);
+    }
+
+    /**
+     * For a payment written with only {@link #setProductId(Integer)}, whose product entity is not loaded.
+     */
+    public Payment toPayment(String productExternalId) {
         Payment payment = new Payment(
                 this.getExternalId(),
                 this.getGovukPaymentId(),
                 this.getNextUrl(),
                 this.getAmount(),
-                this.product != null ? this.product.getExternalId() : null,
+                productExternalId,
                 this.status,
-                this.product != null ? this.product.getId() : null,
+                this.productId,
                 this.getReferenceNumber()
         );
         payment.setDateCreated(this.dateCreated);
@@ -147,4 +228,28 @@ public class PaymentEntity extends AbstractEntity {
     public void setReferenceNumber(String referenceNumber) {
         this.referenceNumber = referenceNumber;
     }
+
+    public String getGovukStatus() {
+        return govukStatus;
+    }
+
+    public void setGovukStatus(String govukStatus) {
+        this.govukStatus = govukStatus;
+    }
+
+    public boolean isGovukStatusFinished() {
+        return govukStatusFinished;
+    }
+
+    public void setGovukStatusFinished(boolean govukStatusFinished) {
+        this.govukStatusFinished = govukStatusFinished;
+    }
+
+    public ZonedDateTime getGovukStatusCheckedAt() {
+        return govukStatusCheckedAt;
+    }
+
+    public void setGovukStatusCheckedAt(ZonedDateTime govukStatusCheckedAt) {
+        this.govukStatusCheckedAt = govukStatusCheckedAt;
+    }
 }
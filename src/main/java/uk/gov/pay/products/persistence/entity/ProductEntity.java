@@ -13,18 +13,80 @@ import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Entity
 @Table(name = "products")
+@NamedQueries({
+        @NamedQuery(name = ProductEntity.FIND_BY_EXTERNAL_ID,
+                query = "SELECT product FROM ProductEntity product WHERE product.externalId = :externalId"),
+        @NamedQuery(name = ProductEntity.FIND_BY_ID,
+                query = "SELECT product FROM ProductEntity product WHERE product.id = :id"),
+        @NamedQuery(name = ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_EXTERNAL_ID,
+                query = "SELECT product FROM ProductEntity product " +
+                        "WHERE product.externalId = :externalId " +
+                        "AND product.gatewayAccountId = :gatewayAccountId"),
+        @NamedQuery(name = ProductEntity.FIND_BY_PRODUCT_PATH,
+                query = "SELECT product FROM ProductEntity product " +
+                        "WHERE product.serviceNamePath = :serviceNamePath " +
+                        "AND product.productNamePath = :productNamePath"),
+        @NamedQuery(name = ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID,
+                query = "SELECT product FROM ProductEntity product " +
+                        "WHERE product.gatewayAccountId = :gatewayAccountId " +
+                        "AND product.status = :status"),
+        @NamedQuery(name = ProductEntity.FIND_BY_GATEWAY_ACCOUNT_ID_AND_TYPE,
+                query = "SELECT product FROM ProductEntity product " +
+                        "WHERE product.gatewayAccountId = :gatewayAccountId " +
+                        "AND product.type = :type " +
+                        "AND product.status = :status"),
+        @NamedQuery(name = ProductEntity.FIND_ALL_PRODUCT_PATHS,
+                query = "SELECT product.externalId, product.serviceNamePath, product.productNamePath " +
+                        "FROM ProductEntity product " +
+                        "WHERE product.serviceNamePath IS NOT NULL " +
+                        "AND product.productNamePath IS NOT NULL"),
+        @NamedQuery(name = ProductEntity.FIND_USED,
+                query = "SELECT product FROM ProductUsageEntity productUsage, ProductEntity product " +
+                        "WHERE productUsage.productId = product.id " +
+                        "AND productUsage.paymentCount > 0 " +
+                        "AND product.type = :type " +
+                        "ORDER BY product.id"),
+        @NamedQuery(name = ProductEntity.FIND_USED_BY_GATEWAY_ACCOUNT_ID,
+                query = "SELECT product FROM ProductUsageEntity productUsage, ProductEntity product " +
+                        "WHERE productUsage.productId = product.id " +
+                        "AND productUsage.paymentCount > 0 " +
+                        "AND product.type = :type " +
+                        "AND product.gatewayAccountId = :gatewayAccountId " +
+                        "ORDER BY product.id")
+})
 public class ProductEntity extends AbstractEntity {
 
+    public static final String FIND_BY_EXTERNAL_ID = "ProductEntity.findByExternalId";
+    public static final String FIND_BY_ID = "ProductEntity.findById";
+    public static final String FIND_BY_GATEWAY_ACCOUNT_ID_AND_EXTERNAL_ID = "ProductEntity.findByGatewayAccountIdAndExternalId";
+    public static final String FIND_BY_PRODUCT_PATH = "ProductEntity.findByProductPath";
+    public static final String FIND_BY_GATEWAY_ACCOUNT_ID = "ProductEntity.findByGatewayAccountId";
+    public static final String FIND_BY_GATEWAY_ACCOUNT_ID_AND_TYPE = "ProductEntity.findByGatewayAccountIdAndType";
+    public static final String FIND_ALL_PRODUCT_PATHS = "ProductEntity.findAllProductPaths";
+    public static final String FIND_USED = "ProductEntity.findUsed";
+    public static final String FIND_USED_BY_GATEWAY_ACCOUNT_ID = "ProductEntity.findUsedByGatewayAccountId";
+
+    /**
+     * The read-heavy queries given a query results cache when {@code jpa.queryResultsCache} is on.
+     */
+    public static final Set<String> CACHEABLE_QUERIES = Set.of(
+            FIND_BY_EXTERNAL_ID, FIND_BY_PRODUCT_PATH, FIND_BY_GATEWAY_ACCOUNT_ID);
+
     @Column(name = "external_id")
     private String externalId;
 
@@ -77,6 +139,12 @@ public class ProductEntity extends AbstractEntity {
     @Convert(converter = SupportedLanguageJpaConverter.class)
     private SupportedLanguage language;
 
+    @Column(name = "metadata")
+    @Convert(converter = MetadataJsonConverter.class)
+    private Map<String, String> metadata;
+
+    // Still written alongside the metadata column until products_metadata is dropped, so nodes yet to be upgraded
+    // read the same metadata
     @OneToMany(mappedBy = "productEntity", targetEntity = ProductMetadataEntity.class, cascade = CascadeType.ALL)
     private List<ProductMetadataEntity> metadataEntityList;
 
@@ -195,8 +263,23 @@ public class ProductEntity extends AbstractEntity {
         this.language = language;
     }
 
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Sets the metadata rows and the metadata column from them. The column value is replaced rather than changed in
+     * place, which is what EclipseLink needs to notice the change.
+     */
     public void setMetadataEntityList(List<ProductMetadataEntity> metadataEntityList) {
         this.metadataEntityList = metadataEntityList;
+        if (metadataEntityList == null || metadataEntityList.isEmpty()) {
+            this.metadata = null;
+        } else {
+            Map<String, String> metadata = new LinkedHashMap<>();
+            metadataEntityList.forEach(entity -> metadata.put(entity.getMetadataKey(), entity.getMetadataValue()));
+            this.metadata = Collections.unmodifiableMap(metadata);
+        }
     }
 
     public static ProductEntity from(Product product) {
@@ -242,15 +325,17 @@ public class ProductEntity extends AbstractEntity {
                 this.referenceLabel,
                 this.referenceHint,
                 this.language, 
-                this.metadataEntityList == null ? null : this.metadataEntityList
-                        .stream()
-                        .map(ProductMetadata::from)
-                        .collect(Collectors.toList()));
+                toProductMetadataList());
     }
 
-    public Map<String, String> toProductMetadataMap() {
-        return metadataEntityList == null ? Map.of() : metadataEntityList
+    public List<ProductMetadata> toProductMetadataList() {
+        return metadata == null || metadata.isEmpty() ? null : metadata.entrySet()
                 .stream()
-                .collect(Collectors.toMap(metadata -> metadata.getMetadataKey(), metadata -> metadata.getMetadataValue()));
+                .map(entry -> new ProductMetadata(getId(), entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public Map<String, String> toProductMetadataMap() {
+        return metadata == null ? Map.of() : metadata;
     }
 }
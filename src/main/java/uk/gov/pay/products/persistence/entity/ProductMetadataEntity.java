@@ -6,12 +6,30 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 @Entity
 @Table(name = "products_metadata")
+@NamedQueries({
+        @NamedQuery(name = ProductMetadataEntity.FIND_BY_PRODUCT_EXTERNAL_ID,
+                query = "SELECT metadata FROM ProductMetadataEntity metadata " +
+                        "WHERE metadata.productEntity.externalId = :productExternalId"),
+        @NamedQuery(name = ProductMetadataEntity.FIND_BY_PRODUCT_EXTERNAL_ID_AND_KEY,
+                query = "SELECT metadata FROM ProductMetadataEntity metadata " +
+                        "WHERE metadata.productEntity.externalId = :productExternalId " +
+                        "AND lower(metadata.metadataKey) = :key"),
+        @NamedQuery(name = ProductMetadataEntity.DELETE_BY_PRODUCT_EXTERNAL_ID,
+                query = "DELETE FROM ProductMetadataEntity metadata " +
+                        "WHERE metadata.productEntity.externalId = :productExternalId")
+})
 public class ProductMetadataEntity extends AbstractEntity {
 
+    public static final String FIND_BY_PRODUCT_EXTERNAL_ID = "ProductMetadataEntity.findByProductExternalId";
+    public static final String FIND_BY_PRODUCT_EXTERNAL_ID_AND_KEY = "ProductMetadataEntity.findByProductExternalIdAndKey";
+    public static final String DELETE_BY_PRODUCT_EXTERNAL_ID = "ProductMetadataEntity.deleteByProductExternalId";
+
     @ManyToOne()
     @JoinColumn(name = "product_id", referencedColumnName = "id")
     private ProductEntity productEntity;
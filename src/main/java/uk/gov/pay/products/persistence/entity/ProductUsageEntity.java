@@ -0,0 +1,87 @@
+package uk.gov.pay.products.persistence.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+
+/**
+ * Running payment count and latest payment date of a product, kept up to date as payments are created.
+ */
+@Entity
+@Table(name = "product_usage")
+@NamedQueries({
+        @NamedQuery(name = ProductUsageEntity.FIND_USED,
+                query = "SELECT productUsage FROM ProductUsageEntity productUsage, ProductEntity product " +
+                        "WHERE productUsage.productId = product.id " +
+                        "AND productUsage.paymentCount > 0 " +
+                        "AND product.type = :type"),
+        @NamedQuery(name = ProductUsageEntity.FIND_USED_BY_GATEWAY_ACCOUNT_ID,
+                query = "SELECT productUsage FROM ProductUsageEntity productUsage, ProductEntity product " +
+                        "WHERE productUsage.productId = product.id " +
+                        "AND productUsage.paymentCount > 0 " +
+                        "AND product.type = :type " +
+                        "AND product.gatewayAccountId = :gatewayAccountId"),
+        @NamedQuery(name = ProductUsageEntity.FIND_ALL_PRODUCT_IDS,
+                query = "SELECT product.id FROM ProductEntity product ORDER BY product.id")
+})
+@NamedNativeQueries({
+        @NamedNativeQuery(name = ProductUsageEntity.RECORD_PAYMENT,
+                query = "INSERT INTO product_usage (product_id, payment_count, last_payment_date) " +
+                        "VALUES (?1, 1, ?2) " +
+                        "ON CONFLICT (product_id) DO UPDATE SET " +
+                        "payment_count = product_usage.payment_count + 1, " +
+                        "last_payment_date = GREATEST(product_usage.last_payment_date, EXCLUDED.last_payment_date)"),
+        @NamedNativeQuery(name = ProductUsageEntity.INSERT_IF_MISSING,
+                query = "INSERT INTO product_usage (product_id) VALUES (?1) ON CONFLICT (product_id) DO NOTHING"),
+        @NamedNativeQuery(name = ProductUsageEntity.LOCK,
+                query = "SELECT product_id FROM product_usage WHERE product_id = ?1 FOR UPDATE"),
+        @NamedNativeQuery(name = ProductUsageEntity.RECOUNT,
+                query = "UPDATE product_usage SET (payment_count, last_payment_date) = " +
+                        "(SELECT COUNT(1), MAX(date_created) FROM payments WHERE product_id = ?1) " +
+                        "WHERE product_id = ?1")
+})
+public class ProductUsageEntity implements Serializable {
+
+    public static final String FIND_USED = "ProductUsageEntity.findUsed";
+    public static final String FIND_USED_BY_GATEWAY_ACCOUNT_ID = "ProductUsageEntity.findUsedByGatewayAccountId";
+    public static final String FIND_ALL_PRODUCT_IDS = "ProductUsageEntity.findAllProductIds";
+    public static final String RECORD_PAYMENT = "ProductUsageEntity.recordPayment";
+    public static final String INSERT_IF_MISSING = "ProductUsageEntity.insertIfMissing";
+    public static final String LOCK = "ProductUsageEntity.lock";
+    public static final String RECOUNT = "ProductUsageEntity.recount";
+
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "payment_count")
+    private Long paymentCount;
+
+    @Column(name = "last_payment_date")
+    @Convert(converter = UTCDateTimeConverter.class)
+    private ZonedDateTime lastPaymentDate;
+
+    public ProductUsageEntity() {
+        //for jpa
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public Long getPaymentCount() {
+        return paymentCount;
+    }
+
+    public ZonedDateTime getLastPaymentDate() {
+        return lastPaymentDate;
+    }
+}
@@ -0,0 +1,114 @@
+package uk.gov.pay.products.profiling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * An API request being watched by the {@link SlowRequestSampler}, with the threads currently working on it.
+ * <p>
+ * The request thread works on it until the resource method returns, and the thread writing the response once
+ * response filters start. Steps of the request run on other threads are attached to it with
+ * {@link #callWith(InFlightRequest, Supplier)}, through {@link uk.gov.pay.products.util.RequestContext}, so a
+ * suspended request can be followed onto them; steps fanned out in parallel, such as payment status lookups, attach
+ * several threads at once. In between, while it waits on something asynchronous such as a publicapi call, no thread
+ * is working on it.
+ */
+public class InFlightRequest {
+
+    private static final ThreadLocal<InFlightRequest> CURRENT = new ThreadLocal<>();
+
+    enum State {
+        WATCHING, SAMPLING, SUPPRESSED, REPORTED
+    }
+
+    private final String description;
+    private final Map<String, String> loggingContext;
+    private final long startNanos;
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this
+    private final List<String> samples = new ArrayList<>();
+    private State state = State.WATCHING;
+
+    InFlightRequest(String description, Map<String, String> loggingContext, long startNanos) {
+        this.description = description;
+        this.loggingContext = loggingContext;
+        this.startNanos = startNanos;
+    }
+
+    public static Optional<InFlightRequest> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Runs the step with the given request, which may be null, attached to this thread.
+     */
+    public static <T> T callWith(InFlightRequest request, Supplier<T> step) {
+        InFlightRequest previous = CURRENT.get();
+        if (request == null || request == previous) {
+            return step.get();
+        }
+        request.attach();
+        try {
+            return step.get();
+        } finally {
+            request.detach();
+            if (previous != null) {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    void attach() {
+        CURRENT.set(this);
+        workers.add(Thread.currentThread());
+    }
+
+    void detach() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        workers.remove(Thread.currentThread());
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    Map<String, String> getLoggingContext() {
+        return loggingContext;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    List<Thread> getWorkers() {
+        return List.copyOf(workers);
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized boolean transition(State from, State to) {
+        if (state != from) {
+            return false;
+        }
+        state = to;
+        return true;
+    }
+
+    synchronized List<String> getSamples() {
+        return List.copyOf(samples);
+    }
+
+    synchronized void addSample(String sample) {
+        samples.add(sample);
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.pay.products.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import uk.gov.pay.products.config.ProfilingConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.String.format;
+
+/**
+ * Takes Java Flight Recordings of the running application, one at a time, using one of the JDK's own settings:
+ * {@code default}, which costs about 1% CPU, or {@code profile}, which samples allocations too and costs about 2%.
+ * <p>
+ * Recordings are limited to the configured {@code maxDuration}, and JFR drops their oldest events beyond
+ * {@code maxSize}, so a recording cannot fill the disk. JFR keeps 64 frames of each stack unless the JVM is started
+ * with a different {@code -XX:FlightRecorderOptions=stackdepth}.
+ */
+public class JfrProfiler {
+
+    static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private final Duration maxDuration;
+    private final long maxSizeBytes;
+    private final Semaphore recording = new Semaphore(1);
+
+    public JfrProfiler(ProfilingConfiguration profilingConfiguration) {
+        this.maxDuration = Duration.ofMillis(profilingConfiguration.getMaxDuration().toMilliseconds());
+        this.maxSizeBytes = profilingConfiguration.getMaxSize().toBytes();
+    }
+
+    /**
+     * Records for the given duration, blocking until the recording is written to a temporary file, which the caller
+     * deletes once done with it.
+     *
+     * @throws IllegalArgumentException if the settings are unknown or the duration is out of bounds
+     * @throws IllegalStateException    if a recording is already running
+     */
+    public Path record(Duration duration, String settings) throws IOException, InterruptedException {
+        if (!SETTINGS.contains(settings)) {
+            throw new IllegalArgumentException(format("Settings must be one of %s", SETTINGS));
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException(format("Duration must be more than 0 and at most %s seconds",
+                    maxDuration.toSeconds()));
+        }
+        if (!recording.tryAcquire()) {
+            throw new IllegalStateException("A recording is already running");
+        }
+        try (Recording jfrRecording = new Recording(configuration(settings))) {
+            jfrRecording.setName("products-on-demand");
+            jfrRecording.setToDisk(true);
+            jfrRecording.setMaxSize(maxSizeBytes);
+            jfrRecording.start();
+            try {
+                Thread.sleep(duration.toMillis());
+            } finally {
+                jfrRecording.stop();
+            }
+            Path file = Files.createTempFile("products-", ".jfr");
+            jfrRecording.dump(file);
+            return file;
+        } finally {
+            recording.release();
+        }
+    }
+
+    private static Configuration configuration(String settings) throws IOException {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (ParseException e) {
+            throw new IOException(format("JDK settings %s could not be read", settings), e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.gov.pay.products.profiling;
+
+import uk.gov.pay.products.service.PaymentCreator;
+import uk.gov.pay.products.service.ProductFinder;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Takes a flight recording when posted to, served from the admin connector. It takes these parameters:
+ * <ul>
+ *     <li>{@code seconds}: how long to record for, by default 30</li>
+ *     <li>{@code settings}: {@code default} or {@code profile}, the default, which also samples allocations</li>
+ *     <li>{@code format}: {@code jfr}, the default, for the recording itself, or {@code summary} for its hottest
+ *     stacks and top allocation sites as text</li>
+ *     <li>{@code path}: for a summary, {@code payment-creation}, {@code product-lookup} or {@code all}, the default,
+ *     to count only stacks through the payment creator, the product finder or any of the application's code</li>
+ * </ul>
+ * For example {@code curl -X POST -o products.jfr 'localhost:8081/profiling/jfr?seconds=60'}.
+ */
+public class JfrProfilingServlet extends HttpServlet {
+
+    private static final Map<String, String> PATHS = Map.of(
+            "payment-creation", PaymentCreator.class.getName(),
+            "product-lookup", ProductFinder.class.getName(),
+            "all", "uk.gov.pay.products.");
+
+    private final JfrProfiler profiler;
+
+    public JfrProfilingServlet(JfrProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String format = parameter(request, "format", "jfr");
+        String classNamePrefix = PATHS.get(parameter(request, "path", "all"));
+        if (!"jfr".equals(format) && !"summary".equals(format)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Format must be jfr or summary");
+            return;
+        }
+        if (classNamePrefix == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, format("Path must be one of %s", PATHS.keySet()));
+            return;
+        }
+
+        Path recording;
+        try {
+            recording = profiler.record(Duration.ofSeconds(Long.parseLong(parameter(request, "seconds", "30"))),
+                    parameter(request, "settings", "profile"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Interrupted while recording");
+            return;
+        }
+
+        try {
+            if ("summary".equals(format)) {
+                response.setContentType("text/plain;charset=utf-8");
+                JfrSummary.write(recording, classNamePrefix, response.getWriter());
+            } else {
+                response.setContentType("application/octet-stream");
+                response.setHeader("Content-Disposition", "attachment; filename=\"products.jfr\"");
+                response.setContentLengthLong(Files.size(recording));
+                Files.copy(recording, response.getOutputStream());
+            }
+        } finally {
+            Files.deleteIfExists(recording);
+        }
+    }
+
+    private static String parameter(HttpServletRequest request, String name, String defaultValue) {
+        return Optional.ofNullable(request.getParameter(name)).orElse(defaultValue);
+    }
+}
@@ -0,0 +1,113 @@
+package uk.gov.pay.products.profiling;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Summarises a flight recording as its hottest stacks, by CPU samples, and its top allocation sites, by bytes
+ * allocated, counting only the stacks that pass through classes whose names start with a given prefix.
+ * <p>
+ * Stacks are grouped by their innermost {@value #STACK_DEPTH} frames. Allocations are only in recordings taken with
+ * the {@code profile} settings, and are weighed the way JFR samples them: by the size of the new TLAB for allocations
+ * that needed one, and by the object's own size otherwise.
+ */
+public class JfrSummary {
+
+    static final int STACK_DEPTH = 5;
+    private static final int TOP = 10;
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final Map<String, String> ALLOCATION_WEIGHTS = Map.of(
+            "jdk.ObjectAllocationInNewTLAB", "tlabSize",
+            "jdk.ObjectAllocationOutsideTLAB", "allocationSize",
+            "jdk.ObjectAllocationSample", "weight");
+
+    private final Map<String, Long> samplesByStack = new HashMap<>();
+    private final Map<String, Long> bytesBySite = new HashMap<>();
+    private long samples;
+    private long matchingSamples;
+
+    public static void write(Path recording, String classNamePrefix, PrintWriter output) throws IOException {
+        JfrSummary summary = new JfrSummary();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            summary.add(event, classNamePrefix);
+        }
+        summary.write(classNamePrefix, output);
+    }
+
+    private void add(RecordedEvent event, String classNamePrefix) {
+        String eventName = event.getEventType().getName();
+        boolean executionSample = EXECUTION_SAMPLE.equals(eventName);
+        String weightField = ALLOCATION_WEIGHTS.get(eventName);
+        if (!executionSample && weightField == null) {
+            return;
+        }
+        if (executionSample) {
+            samples++;
+        }
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || !passesThrough(stackTrace, classNamePrefix)) {
+            return;
+        }
+        if (executionSample) {
+            matchingSamples++;
+            samplesByStack.merge(stack(stackTrace.getFrames()), 1L, Long::sum);
+        } else {
+            String site = format("%s allocated %s", frame(stackTrace.getFrames().get(0)),
+                    event.getClass("objectClass").getName());
+            bytesBySite.merge(site, event.getLong(weightField), Long::sum);
+        }
+    }
+
+    private void write(String classNamePrefix, PrintWriter output) {
+        output.println(format("%d of %d execution samples passed through %s", matchingSamples, samples, classNamePrefix));
+        output.println();
+        output.println("Hottest stacks:");
+        top(samplesByStack).forEach(entry -> {
+            output.println(format("%6d samples", entry.getValue()));
+            output.println(entry.getKey());
+        });
+        output.println();
+        output.println("Top allocation sites:");
+        top(bytesBySite).forEach(entry ->
+                output.println(format("%,14d bytes  %s", entry.getValue(), entry.getKey())));
+        output.flush();
+    }
+
+    private static boolean passesThrough(RecordedStackTrace stackTrace, String classNamePrefix) {
+        return stackTrace.getFrames().stream()
+                .anyMatch(frame -> frame.getMethod().getType().getName().startsWith(classNamePrefix));
+    }
+
+    private static String stack(List<RecordedFrame> frames) {
+        return frames.stream()
+                .limit(STACK_DEPTH)
+                .map(frame -> "    at " + frame(frame))
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return format("%s.%s:%d", frame.getMethod().getType().getName(), frame.getMethod().getName(),
+                frame.getLineNumber());
+    }
+
+    private static List<Map.Entry<String, Long>> top(Map<String, Long> totals) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(TOP)
+                .collect(Collectors.toList());
+    }
+}
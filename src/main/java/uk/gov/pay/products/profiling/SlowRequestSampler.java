@@ -0,0 +1,196 @@
+package uk.gov.pay.products.profiling;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import uk.gov.pay.products.config.SlowRequestConfiguration;
+import uk.gov.pay.products.profiling.InFlightRequest.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Watches API requests in flight and, for any still running after the configured threshold, samples the stacks of the
+ * threads working on it a few times. The samples are logged with the request's logging context, so the gateway account,
+ * product and payment ids put in the MDC by {@code LoggingMDCRequestFilter} are on the log line.
+ * <p>
+ * Requests are picked up once Jersey's request filters have run, and are checked against the threshold by
+ * {@link #check()}, which the application runs every {@code sampleInterval}. At most {@code maxReportsPerMinute} slow
+ * requests are sampled each minute, so a brownout does not flood the logs. Those logged are counted in
+ * {@code slow-requests.reported} and the rest in {@code slow-requests.suppressed}.
+ */
+public class SlowRequestSampler implements ApplicationEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowRequestSampler.class);
+    private static final int MAX_FRAMES = 50;
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long thresholdNanos;
+    private final int samples;
+    private final int maxReportsPerMinute;
+    private final Clock clock;
+    private final Counter reported;
+    private final Counter suppressed;
+    private final Set<InFlightRequest> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Only used by check(), which runs on one thread at a time
+    private long windowStart;
+    private int reportsInWindow;
+
+    public SlowRequestSampler(SlowRequestConfiguration slowRequestConfiguration, MetricRegistry metricRegistry) {
+        this(slowRequestConfiguration, metricRegistry, Clock.defaultClock());
+    }
+
+    SlowRequestSampler(SlowRequestConfiguration slowRequestConfiguration, MetricRegistry metricRegistry, Clock clock) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestConfiguration.getThreshold().toMilliseconds());
+        this.samples = slowRequestConfiguration.getSamples();
+        this.maxReportsPerMinute = slowRequestConfiguration.getMaxReportsPerMinute();
+        this.clock = clock;
+        this.reported = metricRegistry.counter("slow-requests.reported");
+        this.suppressed = metricRegistry.counter("slow-requests.suppressed");
+        this.windowStart = clock.getTick();
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return new RequestEventListener() {
+            private InFlightRequest request;
+
+            @Override
+            public void onEvent(RequestEvent event) {
+                if (event.getType() == RequestEvent.Type.REQUEST_FILTERED) {
+                    ContainerRequest containerRequest = event.getContainerRequest();
+                    request = started(containerRequest.getMethod() + " " + containerRequest.getRequestUri().getRawPath(),
+                            MDC.getCopyOfContextMap());
+                    request.attach();
+                } else if (request == null) {
+                    return;
+                }
+                switch (event.getType()) {
+                    case RESOURCE_METHOD_FINISHED:
+                        request.detach();
+                        break;
+                    case RESP_FILTERS_START:
+                        request.attach();
+                        break;
+                    case FINISHED:
+                        request.detach();
+                        finished(request);
+                        break;
+                    default:
+                }
+            }
+        };
+    }
+
+    /**
+     * Samples the requests that have been running for longer than the threshold.
+     */
+    public void check() {
+        long now = clock.getTick();
+        for (InFlightRequest request : inFlight) {
+            long elapsedNanos = now - request.getStartNanos();
+            if (elapsedNanos < thresholdNanos) {
+                continue;
+            }
+            if (request.getState() == State.WATCHING) {
+                State next = permitReport(now) ? State.SAMPLING : State.SUPPRESSED;
+                if (request.transition(State.WATCHING, next) && next == State.SUPPRESSED) {
+                    suppressed.inc();
+                }
+            }
+            if (request.getState() == State.SAMPLING) {
+                request.addSample(sample(request, elapsedNanos));
+                if (request.getSamples().size() >= samples) {
+                    report(request, elapsedNanos);
+                }
+            }
+        }
+    }
+
+    InFlightRequest started(String description, Map<String, String> loggingContext) {
+        InFlightRequest request = new InFlightRequest(description, loggingContext, clock.getTick());
+        inFlight.add(request);
+        return request;
+    }
+
+    // A request that finishes while being sampled is reported with the samples taken so far
+    void finished(InFlightRequest request) {
+        inFlight.remove(request);
+        report(request, clock.getTick() - request.getStartNanos());
+    }
+
+    private boolean permitReport(long now) {
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            reportsInWindow = 0;
+        }
+        if (reportsInWindow >= maxReportsPerMinute) {
+            return false;
+        }
+        reportsInWindow++;
+        return true;
+    }
+
+    private static String sample(InFlightRequest request, long elapsedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        List<Thread> workers = request.getWorkers();
+        if (workers.isEmpty()) {
+            return format("At %d ms not running on any thread, so waiting on an asynchronous step", elapsedMillis);
+        }
+        StringBuilder sample = new StringBuilder();
+        for (Thread worker : workers) {
+            StackTraceElement[] stackTrace = worker.getStackTrace();
+            if (sample.length() > 0) {
+                sample.append(System.lineSeparator());
+            }
+            sample.append(format("At %d ms on thread %s", elapsedMillis, worker.getName()));
+            for (int i = 0; i < Math.min(stackTrace.length, MAX_FRAMES); i++) {
+                sample.append(System.lineSeparator()).append("\tat ").append(stackTrace[i]);
+            }
+            if (stackTrace.length > MAX_FRAMES) {
+                sample.append(System.lineSeparator()).append(format("\t... %d more", stackTrace.length - MAX_FRAMES));
+            }
+        }
+        return sample.toString();
+    }
+
+    private void report(InFlightRequest request, long elapsedNanos) {
+        if (!request.transition(State.SAMPLING, State.REPORTED)) {
+            return;
+        }
+        reported.inc();
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (request.getLoggingContext() != null) {
+            MDC.setContextMap(request.getLoggingContext());
+        }
+        try {
+            logger.warn(format("Slow request %s had been running for %d ms. Stack samples:%n%s",
+                    request.getDescription(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    String.join(System.lineSeparator(), request.getSamples())));
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
+}
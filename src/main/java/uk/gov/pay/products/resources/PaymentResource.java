@@ -5,7 +5,10 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.PaymentCursor;
+import uk.gov.pay.products.model.PaymentPage;
 import uk.gov.pay.products.service.PaymentFactory;
+import uk.gov.pay.products.util.Errors;
 import uk.gov.pay.products.validations.PaymentRequestValidator;
 
 import javax.ws.rs.Consumes;
@@ -14,11 +17,17 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 import static java.lang.String.format;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.CREATED;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
@@ -27,6 +36,8 @@ import static javax.ws.rs.core.Response.Status.OK;
 public class PaymentResource {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentResource.class);
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
 
     private final PaymentFactory paymentFactory;
     private final PaymentRequestValidator requestValidator;
@@ -54,14 +65,23 @@ public class PaymentResource {
     @POST
     @Produces(APPLICATION_JSON)
     @Consumes(APPLICATION_JSON)
-    public Response createPayment(@PathParam("productExternalId") String productExternalId, JsonNode payload) {
+    public void createPayment(@PathParam("productExternalId") String productExternalId, JsonNode payload,
+                              @Suspended AsyncResponse asyncResponse) {
         logger.info("Create a payment for product id - [ {} ]", productExternalId);
-        return requestValidator.validatePriceOverrideRequest(payload)
-                .map(errors -> Response.status(Response.Status.BAD_REQUEST).entity(errors).build())
-                .orElseGet(() -> {
-                    Payment payment = paymentFactory.paymentCreator()
-                            .doCreate(productExternalId, extractAmountIfAvailable(payload), extractReferenceIfAvailable(payload));
-                    return Response.status(CREATED).entity(payment).build();
+        Optional<Errors> errors = requestValidator.validatePriceOverrideRequest(payload);
+        if (errors.isPresent()) {
+            asyncResponse.resume(Response.status(BAD_REQUEST).entity(errors.get()).build());
+            return;
+        }
+        paymentFactory.paymentCreator()
+                .doCreateAsync(productExternalId, extractAmountIfAvailable(payload), extractReferenceIfAvailable(payload))
+                .whenComplete((payment, failure) -> {
+                    if (failure == null) {
+                        asyncResponse.resume(Response.status(CREATED).entity(payment).build());
+                    } else {
+                        asyncResponse.resume(failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure);
+                    }
                 });
     }
 
@@ -84,10 +104,36 @@ public class PaymentResource {
     @GET
     @Produces(APPLICATION_JSON)
     @Consumes(APPLICATION_JSON)
-    public Response findPaymentsByProductExternalId(@PathParam("productExternalId") String productExternalId) {
-        logger.info("Find a list of payments for product id - [ {} ]", productExternalId);
-        List<Payment> payments = paymentFactory.paymentFinder().findByProductExternalId(productExternalId);
-        return payments.size() > 0 ? Response.status(OK).entity(payments).build() : Response.status(NOT_FOUND).build();
+    public Response findPaymentsByProductExternalId(@PathParam("productExternalId") String productExternalId,
+                                                    @QueryParam("page_size") Integer pageSize,
+                                                    @QueryParam("cursor") String cursor) {
+        // Existing consumers expect every payment as an array, so only a caller asking for a page gets one
+        if (pageSize == null && cursor == null) {
+            logger.info("Find a list of payments for product id - [ {} ]", productExternalId);
+            List<Payment> payments = paymentFactory.paymentFinder().findByProductExternalId(productExternalId);
+            return payments.size() > 0 ? Response.status(OK).entity(payments).build() : Response.status(NOT_FOUND).build();
+        }
+
+        logger.info("Find a page of payments for product id - [ {} ]", productExternalId);
+        int size = pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Response.status(BAD_REQUEST)
+                    .entity(Errors.from(format("Field [ page_size ] must be between 1 and %d", MAX_PAGE_SIZE)))
+                    .build();
+        }
+        PaymentCursor after = null;
+        if (cursor != null) {
+            Optional<PaymentCursor> decoded = PaymentCursor.decode(cursor);
+            if (decoded.isEmpty()) {
+                return Response.status(BAD_REQUEST).entity(Errors.from("Field [ cursor ] is not valid")).build();
+            }
+            after = decoded.get();
+        }
+        PaymentPage paymentPage = paymentFactory.paymentFinder().findPageByProductExternalId(productExternalId, after, size);
+        if (after == null && paymentPage.getResults().isEmpty()) {
+            return Response.status(NOT_FOUND).build();
+        }
+        return Response.status(OK).entity(paymentPage).build();
     }
 
     @Path("/payments/{gatewayAccountId}/{referenceNumber}")
@@ -2,6 +2,7 @@ package uk.gov.pay.products.service;
 
 import uk.gov.pay.products.model.Link;
 import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.PaymentPage;
 import uk.gov.pay.products.model.Product;
 
 import java.io.UnsupportedEncodingException;
@@ -50,6 +51,18 @@ public class LinksDecorator {
         return payment;
     }
 
+    public PaymentPage decorate(PaymentPage paymentPage, String productExternalId, int pageSize) {
+        if (paymentPage.getNextCursor() != null) {
+            URI nextPageUri = fromUri(productsBaseUrl)
+                    .path("v1/api/products").path(productExternalId).path("payments")
+                    .queryParam("page_size", pageSize)
+                    .queryParam("cursor", paymentPage.getNextCursor().encode())
+                    .build();
+            paymentPage.getLinks().add(Link.from(Link.Rel.next_page, GET, nextPageUri.toString()));
+        }
+        return paymentPage;
+    }
+
     private Link makeSelfLink(String method, String resourcePath, String externalId){
         URI uri = fromUri(productsBaseUrl).path(resourcePath).path(externalId).build();
         return Link.from(Link.Rel.self, method, uri.toString());
@@ -0,0 +1,40 @@
+package uk.gov.pay.products.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import uk.gov.pay.products.config.PaymentCreationConfiguration;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of payment creations in flight across the application, so that a slow publicapi backs up into
+ * fast 503s instead of an ever-growing pile of pending requests.
+ */
+public class PaymentCreationLimiter {
+
+    private final Semaphore permits;
+    private final Meter rejected;
+
+    @Inject
+    public PaymentCreationLimiter(PaymentCreationConfiguration configuration, MetricRegistry metricRegistry) {
+        int maxConcurrentCreations = configuration.getMaxConcurrentCreations();
+        this.permits = new Semaphore(maxConcurrentCreations);
+        this.rejected = metricRegistry.meter("payment-creation.rejected");
+        metricRegistry.gauge("payment-creation.in-flight",
+                () -> (Gauge<Integer>) () -> maxConcurrentCreations - permits.availablePermits());
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejected.mark();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.pay.products.service;
 
 import com.google.inject.Provider;
+import com.google.inject.name.Named;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.commons.model.Source;
@@ -10,14 +11,16 @@ import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
 import uk.gov.pay.products.config.ProductsConfiguration;
 import uk.gov.pay.products.exception.BadPaymentRequestException;
 import uk.gov.pay.products.exception.PaymentCreationException;
+import uk.gov.pay.products.exception.PaymentCreationRejectedException;
 import uk.gov.pay.products.exception.PaymentCreatorNotFoundException;
 import uk.gov.pay.products.exception.PublicApiResponseErrorException;
 import uk.gov.pay.products.model.Payment;
 import uk.gov.pay.products.persistence.dao.PaymentDao;
-import uk.gov.pay.products.persistence.dao.ProductDao;
+import uk.gov.pay.products.persistence.dao.ProductUsageDao;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
-import uk.gov.pay.products.persistence.entity.ProductEntity;
-import uk.gov.pay.products.service.transaction.NonTransactionalOperation;
+import uk.gov.pay.products.service.cache.ProductCache;
+import uk.gov.pay.products.service.cache.ProductSnapshot;
+import uk.gov.pay.products.service.transaction.AsyncOperation;
 import uk.gov.pay.products.service.transaction.TransactionContext;
 import uk.gov.pay.products.service.transaction.TransactionFlow;
 import uk.gov.pay.products.service.transaction.TransactionalOperation;
@@ -25,128 +28,156 @@ import uk.gov.pay.products.util.PaymentStatus;
 import uk.gov.pay.products.util.ProductType;
 
 import javax.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
 
 import static java.lang.String.format;
 import static net.logstash.logback.argument.StructuredArguments.kv;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static uk.gov.pay.logging.LoggingKeys.PAYMENT_EXTERNAL_ID;
-import static uk.gov.pay.products.util.RandomIdGenerator.randomUserFriendlyReference;
 import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
 
 public class PaymentCreator {
 
+    public static final String PAYMENT_CREATION_EXECUTOR = "paymentCreationExecutor";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Provider<TransactionFlow> transactionFlowProvider;
-    private final ProductDao productDao;
+    private final ProductCache productCache;
     private final PaymentDao paymentDao;
+    private final ProductUsageDao productUsageDao;
+    private final PaymentReferenceAllocator paymentReferenceAllocator;
     private final PublicApiRestClient publicApiRestClient;
     private final LinksDecorator linksDecorator;
     private final ProductsConfiguration productsConfiguration;
-    private static final int MAX_NUMBER_OF_RETRY_FOR_UNIQUE_REF_NUMBER = 3;
+    private final PaymentCreationLimiter paymentCreationLimiter;
+    private final ExecutorService paymentCreationExecutor;
 
     @Inject
-    public PaymentCreator(Provider<TransactionFlow> transactionFlowProvider, ProductDao productDao, PaymentDao paymentDao,
-                          PublicApiRestClient publicApiRestClient, LinksDecorator linksDecorator,
-                          ProductsConfiguration productsConfiguration) {
+    public PaymentCreator(Provider<TransactionFlow> transactionFlowProvider, ProductCache productCache,
+                          PaymentDao paymentDao, ProductUsageDao productUsageDao,
+                          PaymentReferenceAllocator paymentReferenceAllocator, PublicApiRestClient publicApiRestClient,
+                          LinksDecorator linksDecorator, ProductsConfiguration productsConfiguration,
+                          PaymentCreationLimiter paymentCreationLimiter,
+                          @Named(PAYMENT_CREATION_EXECUTOR) ExecutorService paymentCreationExecutor) {
         this.transactionFlowProvider = transactionFlowProvider;
-        this.productDao = productDao;
+        this.productCache = productCache;
         this.paymentDao = paymentDao;
+        this.productUsageDao = productUsageDao;
+        this.paymentReferenceAllocator = paymentReferenceAllocator;
         this.publicApiRestClient = publicApiRestClient;
         this.linksDecorator = linksDecorator;
         this.productsConfiguration = productsConfiguration;
+        this.paymentCreationLimiter = paymentCreationLimiter;
+        this.paymentCreationExecutor = paymentCreationExecutor;
     }
 
-    public Payment doCreate(String productExternalId, Long priceOverride, String reference) {
-        PaymentEntity paymentEntity = transactionFlowProvider.get()
-                .executeNext(beforePaymentCreation(productExternalId, reference))
-                .executeNext(paymentCreation(priceOverride))
-                .executeNext(afterPaymentCreation())
-                .complete().get(PaymentEntity.class);
+    /**
+     * Creates a payment without holding the calling thread while publicapi responds. The database steps run on the
+     * payment creation executor, and the stage fails with a {@link PaymentCreationRejectedException} straight away
+     * if {@link PaymentCreationLimiter} has no room for another creation.
+     */
+    public CompletionStage<Payment> doCreateAsync(String productExternalId, Long priceOverride, String reference) {
+        if (!paymentCreationLimiter.tryAcquire()) {
+            return CompletableFuture.failedFuture(new PaymentCreationRejectedException(productExternalId));
+        }
+        try {
+            return transactionFlowProvider.get()
+                    .executeNextAsync("payment-creation.product-lookup", productLookup(productExternalId), paymentCreationExecutor)
+                    .executeNextAsync("payment-creation.before-payment-creation", beforePaymentCreation(reference), paymentCreationExecutor)
+                    .executeNextAsync("payment-creation.publicapi-create-payment", paymentCreation(priceOverride))
+                    .executeNextAsync("payment-creation.after-payment-creation", afterPaymentCreation(), paymentCreationExecutor)
+                    .completeAsync()
+                    .thenApply(context -> toPayment(context.get(PaymentEntity.class), context.get(ProductSnapshot.class)))
+                    .whenComplete((payment, failure) -> paymentCreationLimiter.release());
+        } catch (RuntimeException e) {
+            paymentCreationLimiter.release();
+            throw e;
+        }
+    }
 
+    private Payment toPayment(PaymentEntity paymentEntity, ProductSnapshot product) {
         if (paymentEntity.getStatus() == PaymentStatus.ERROR) {
-            throw new PaymentCreationException(paymentEntity.getProductEntity().getExternalId());
+            throw new PaymentCreationException(product.getExternalId());
         }
-        return linksDecorator.decorate(paymentEntity.toPayment());
+        return linksDecorator.decorate(paymentEntity.toPayment(product.getExternalId()));
     }
 
-    private TransactionalOperation<TransactionContext, PaymentEntity> beforePaymentCreation(String productExternalId, String reference) {
+    private TransactionalOperation<TransactionContext, ProductSnapshot> productLookup(String productExternalId) {
         return context -> {
             logger.info("Creating a new payment for product external id {}", productExternalId);
-            ProductEntity productEntity = productDao.findByExternalId(productExternalId)
+            return productCache.findByExternalId(productExternalId)
                     .orElseThrow(() -> new PaymentCreatorNotFoundException(productExternalId));
-            if (productEntity.getReferenceEnabled()) {
+        };
+    }
+
+    private TransactionalOperation<TransactionContext, PaymentEntity> beforePaymentCreation(String reference) {
+        return context -> {
+            ProductSnapshot product = context.get(ProductSnapshot.class);
+            if (product.getReferenceEnabled()) {
                 if (isEmpty(reference)) {
                     throw new BadPaymentRequestException("User defined reference is enabled but missing");
                 }
-                return mergePaymentEntityWithoutReferenceCheck(setupPaymentEntity(productEntity, reference));
+                return recordUsage(product, persist(setupPaymentEntity(product, reference)));
             }
-            
-            PaymentEntity paymentEntity = setupPaymentEntity(productEntity, randomUserFriendlyReference());
-            
-            return mergePaymentEntityWithReferenceNumberCheck(paymentEntity);
+
+            return recordUsage(product, persist(setupPaymentEntity(product, paymentReferenceAllocator.allocate())));
         };
     }
 
-    private PaymentEntity mergePaymentEntityWithoutReferenceCheck(PaymentEntity paymentEntity) { 
-        paymentDao.persist(paymentEntity);
+    private PaymentEntity recordUsage(ProductSnapshot product, PaymentEntity paymentEntity) {
+        productUsageDao.recordPayment(product.getId(), paymentEntity.getDateCreated());
         return paymentEntity;
     }
 
-    private PaymentEntity mergePaymentEntityWithReferenceNumberCheck(PaymentEntity paymentEntity) {
-        for (int i = 0; i < MAX_NUMBER_OF_RETRY_FOR_UNIQUE_REF_NUMBER; i++) {
-            String reference = randomUserFriendlyReference();
-            if (paymentDao.findByGatewayAccountIdAndReferenceNumber(paymentEntity.getGatewayAccountId(), reference).isEmpty()) {
-                paymentEntity.setReferenceNumber(reference);
-                paymentDao.persist(paymentEntity);
-                return paymentEntity;
-            }
-        }
-
-        String exceptionMsg = format("Too many conflicts generating unique user friendly reference numbers for gateway account %s", paymentEntity.getGatewayAccountId());
-        RuntimeException runtimeException = new RuntimeException(exceptionMsg);
-        logger.error(exceptionMsg, runtimeException);
-        throw runtimeException;
+    private PaymentEntity persist(PaymentEntity paymentEntity) {
+        paymentDao.persist(paymentEntity);
+        return paymentEntity;
     }
 
-    private NonTransactionalOperation<TransactionContext, PaymentEntity> paymentCreation(Long priceOverride) {
+    private AsyncOperation<TransactionContext, PaymentEntity> paymentCreation(Long priceOverride) {
         return context -> {
             PaymentEntity paymentEntity = context.get(PaymentEntity.class);
-            ProductEntity productEntity = paymentEntity.getProductEntity();
+            ProductSnapshot product = context.get(ProductSnapshot.class);
             String returnUrl = format("%s/%s", productsConfiguration.getProductsUiConfirmUrl(), paymentEntity.getExternalId());
-            Long paymentPrice = priceOverride != null ? priceOverride : productEntity.getPrice();
-            boolean isMoto = productEntity.getType() == ProductType.AGENT_INITIATED_MOTO;
-            Source source = productEntity.getType() == ProductType.AGENT_INITIATED_MOTO ? Source.CARD_AGENT_INITIATED_MOTO : Source.CARD_PAYMENT_LINK;
+            Long paymentPrice = priceOverride != null ? priceOverride : product.getPrice();
+            boolean isMoto = product.getType() == ProductType.AGENT_INITIATED_MOTO;
+            Source source = product.getType() == ProductType.AGENT_INITIATED_MOTO ? Source.CARD_AGENT_INITIATED_MOTO : Source.CARD_PAYMENT_LINK;
 
             PaymentRequest paymentRequest = new PaymentRequest(
                     paymentPrice,
                     paymentEntity.getReferenceNumber(),
-                    productEntity.getName(),
+                    product.getName(),
                     returnUrl,
-                    productEntity.getLanguage(),
+                    product.getLanguage(),
                     isMoto,
-                    productEntity.toProductMetadataMap(),
+                    product.toProductMetadataMap(),
                     source);
 
-            try {
-                PaymentResponse paymentResponse = publicApiRestClient.createPayment(productEntity.getPayApiToken(), paymentRequest);
-
-                paymentEntity.setGovukPaymentId(paymentResponse.getPaymentId());
-                paymentEntity.setNextUrl(getNextUrl(paymentResponse));
-                paymentEntity.setStatus(PaymentStatus.SUBMITTED);
-                paymentEntity.setAmount(paymentResponse.getAmount());
-                logger.info(
-                        "Payment creation for product external id {} successful",
-                        paymentEntity.getProductEntity().getExternalId(),
-                        kv(PAYMENT_EXTERNAL_ID, paymentEntity.getGovukPaymentId()),
-                        kv("product_external_id", paymentEntity.getProductEntity().getExternalId())
-                );
-            } catch (PublicApiResponseErrorException e) {
-                logger.error("Payment creation for product external id {} failed {}", paymentEntity.getProductEntity().getExternalId(), e);
-                paymentEntity.setStatus(PaymentStatus.ERROR);
-            }
-
-            return paymentEntity;
+            return publicApiRestClient.createPaymentAsync(product.getPayApiToken(), paymentRequest)
+                    .handle((paymentResponse, failure) -> {
+                        if (failure == null) {
+                            paymentEntity.setGovukPaymentId(paymentResponse.getPaymentId());
+                            paymentEntity.setNextUrl(getNextUrl(paymentResponse));
+                            paymentEntity.setStatus(PaymentStatus.SUBMITTED);
+                            paymentEntity.setAmount(paymentResponse.getAmount());
+                            logger.info(
+                                    "Payment creation for product external id {} successful",
+                                    product.getExternalId(),
+                                    kv(PAYMENT_EXTERNAL_ID, paymentEntity.getGovukPaymentId()),
+                                    kv("product_external_id", product.getExternalId())
+                            );
+                        } else if (unwrap(failure) instanceof PublicApiResponseErrorException) {
+                            logger.error("Payment creation for product external id {} failed {}", product.getExternalId(), unwrap(failure));
+                            paymentEntity.setStatus(PaymentStatus.ERROR);
+                        } else {
+                            throw new CompletionException(unwrap(failure));
+                        }
+                        return paymentEntity;
+                    });
         };
     }
 
@@ -155,11 +186,15 @@ public class PaymentCreator {
             PaymentEntity paymentEntity = context.get(PaymentEntity.class);
             paymentDao.merge(paymentEntity);
 
-            logger.info("Payment creation for product external id {} completed", paymentEntity.getProductEntity().getExternalId());
+            logger.info("Payment creation for product external id {} completed", context.get(ProductSnapshot.class).getExternalId());
             return paymentEntity;
         };
     }
 
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
     private String getNextUrl(PaymentResponse paymentResponse) {
         if ((paymentResponse.getLinks() != null) &&
                 (paymentResponse.getLinks().getNextUrl() != null)) {
@@ -168,12 +203,12 @@ public class PaymentCreator {
         return "";
     }
 
-    private PaymentEntity setupPaymentEntity(ProductEntity productEntity, String referenceToBeUsed) {
+    private PaymentEntity setupPaymentEntity(ProductSnapshot product, String referenceToBeUsed) {
         PaymentEntity paymentEntity = new PaymentEntity();
         paymentEntity.setExternalId(randomUuid());
-        paymentEntity.setProductEntity(productEntity);
+        paymentEntity.setProductId(product.getId());
         paymentEntity.setStatus(PaymentStatus.CREATED);
-        paymentEntity.setGatewayAccountId(productEntity.getGatewayAccountId());
+        paymentEntity.setGatewayAccountId(product.getGatewayAccountId());
         paymentEntity.setReferenceNumber(referenceToBeUsed);
         return paymentEntity;
     }
@@ -1,44 +1,83 @@
 package uk.gov.pay.products.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import com.google.inject.persist.Transactional;
 import org.slf4j.LoggerFactory;
-import uk.gov.pay.products.client.publicapi.PaymentResponse;
-import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
-import uk.gov.pay.products.exception.PublicApiResponseErrorException;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
 import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.PaymentCursor;
+import uk.gov.pay.products.model.PaymentPage;
+import uk.gov.pay.products.persistence.ReadOnly;
 import uk.gov.pay.products.persistence.dao.PaymentDao;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.util.RequestContext;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static uk.gov.pay.products.util.PaymentStatus.SUBMITTED;
 
 public class PaymentFinder {
 
+    public static final String PAYMENT_STATUS_LOOKUP_EXECUTOR = "paymentStatusLookupExecutor";
+    public static final String GOVUK_STATUS_UNKNOWN = "unknown";
+
     private final PaymentDao paymentDao;
     private final LinksDecorator linksDecorator;
-    private final PublicApiRestClient publicApiRestClient;
+    private final PaymentStatusReconciler paymentStatusReconciler;
+    private final ExecutorService paymentStatusLookupExecutor;
+    private final long lookupDeadlineNanos;
+    private final Timer lookupCallTimer;
+    private final Timer lookupBatchTimer;
+    private final Counter lookupsUnfinished;
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(PaymentFinder.class);
 
     @Inject
-    public PaymentFinder(PaymentDao paymentDao, LinksDecorator linksDecorator, PublicApiRestClient publicApiRestClient) {
+    public PaymentFinder(PaymentDao paymentDao, LinksDecorator linksDecorator, PaymentStatusReconciler paymentStatusReconciler,
+                         @Named(PAYMENT_STATUS_LOOKUP_EXECUTOR) ExecutorService paymentStatusLookupExecutor,
+                         PaymentStatusLookupConfiguration lookupConfiguration, MetricRegistry metricRegistry) {
         this.paymentDao = paymentDao;
         this.linksDecorator = linksDecorator;
-        this.publicApiRestClient = publicApiRestClient;
+        this.paymentStatusReconciler = paymentStatusReconciler;
+        this.paymentStatusLookupExecutor = paymentStatusLookupExecutor;
+        this.lookupDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(lookupConfiguration.getDeadline().toMilliseconds());
+        this.lookupCallTimer = metricRegistry.timer("payment-status-lookup.call");
+        this.lookupBatchTimer = metricRegistry.timer("payment-status-lookup.batch");
+        this.lookupsUnfinished = metricRegistry.counter("payment-status-lookup.unfinished");
     }
 
     public List<Payment> findByProductExternalId(String productExternalId) {
-        return findPaymentEntitiesByProductExternalId(productExternalId)
-                .stream()
-                .map(paymentEntity -> {
-                    Payment payment = queryGovUKPaymentStatus(paymentEntity);
-                    return linksDecorator.decorate(payment);
-                })
-                .collect(Collectors.toList());
+        return withGovUKPaymentStatuses(findPaymentEntitiesByProductExternalId(productExternalId));
+    }
+
+    /**
+     * Returns one page of the product's payments, newest first, with a next page link if there are more.
+     */
+    public PaymentPage findPageByProductExternalId(String productExternalId, PaymentCursor after, int pageSize) {
+        List<PaymentEntity> paymentEntities = findPaymentEntitiesPageByProductExternalId(productExternalId, after, pageSize + 1);
+        PaymentCursor nextCursor = null;
+        if (paymentEntities.size() > pageSize) {
+            paymentEntities = paymentEntities.subList(0, pageSize);
+            PaymentEntity last = paymentEntities.get(pageSize - 1);
+            nextCursor = new PaymentCursor(last.getDateCreated(), last.getId());
+        }
+        PaymentPage paymentPage = new PaymentPage(withGovUKPaymentStatuses(paymentEntities), nextCursor);
+        return linksDecorator.decorate(paymentPage, productExternalId, pageSize);
     }
 
     public Optional<Payment> findByExternalId(String paymentExternalId) {
@@ -48,43 +87,101 @@ public class PaymentFinder {
         });
     }
 
+    @ReadOnly
     @Transactional
     public Optional<PaymentEntity> findPaymentEntity(String paymentExternalId) {
         return paymentDao.findByExternalId(paymentExternalId);
     }
 
+    @ReadOnly
     @Transactional
     public List<PaymentEntity> findPaymentEntitiesByProductExternalId(String productExternalId) {
         return paymentDao.findByProductExternalId(productExternalId);
     }
-    
+
+    @ReadOnly
     @Transactional
+    public List<PaymentEntity> findPaymentEntitiesPageByProductExternalId(String productExternalId, PaymentCursor after, int limit) {
+        return paymentDao.findByProductExternalId(productExternalId, after, limit);
+    }
+    
     public Optional<Payment> findByGatewayAccountIdAndReferenceNumber(Integer gatewayAccountId, String referenceNumber) {
-        return paymentDao.findByGatewayAccountIdAndReferenceNumber(gatewayAccountId, referenceNumber)
+        return findPaymentEntityByGatewayAccountIdAndReferenceNumber(gatewayAccountId, referenceNumber)
                 .map(paymentEntity -> {
                     Payment payment = queryGovUKPaymentStatus(paymentEntity);
                     return linksDecorator.decorate(payment);
                 });
     }
 
+    // Kept apart from the status lookup, which may save the status it finds, so that only the read uses the replica
+    @ReadOnly
+    @Transactional
+    public Optional<PaymentEntity> findPaymentEntityByGatewayAccountIdAndReferenceNumber(Integer gatewayAccountId,
+                                                                                        String referenceNumber) {
+        return paymentDao.findByGatewayAccountIdAndReferenceNumber(gatewayAccountId, referenceNumber);
+    }
+
+    /**
+     * Govuk statuses are looked up in parallel on the payment status lookup executor. Any lookup still outstanding
+     * when the deadline passes, or that could not be queued, is reported as {@value #GOVUK_STATUS_UNKNOWN}.
+     */
+    private List<Payment> withGovUKPaymentStatuses(List<PaymentEntity> paymentEntities) {
+        try (Timer.Context ignored = lookupBatchTimer.time()) {
+            long deadline = System.nanoTime() + lookupDeadlineNanos;
+            List<Future<Payment>> lookups = paymentEntities
+                    .stream()
+                    .map(this::submitGovUKPaymentStatusQuery)
+                    .collect(Collectors.toList());
+
+            return IntStream.range(0, paymentEntities.size())
+                    .mapToObj(i -> {
+                        Payment payment = awaitGovUKPaymentStatus(lookups.get(i), paymentEntities.get(i), deadline);
+                        return linksDecorator.decorate(payment);
+                    })
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Future<Payment> submitGovUKPaymentStatusQuery(PaymentEntity paymentEntity) {
+        if (paymentEntity.getStatus() != SUBMITTED) {
+            return CompletableFuture.completedFuture(paymentEntity.toPayment());
+        }
+        FutureTask<Payment> lookup = new FutureTask<>(() -> queryGovUKPaymentStatus(paymentEntity));
+        try {
+            RequestContext.capture().wrap(paymentStatusLookupExecutor).execute(lookup);
+            return lookup;
+        } catch (RejectedExecutionException e) {
+            logger.warn(format("Payment status lookup queue is full, not querying publicapi for %s", paymentEntity.getExternalId()));
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Payment awaitGovUKPaymentStatus(Future<Payment> lookup, PaymentEntity paymentEntity, long deadline) {
+        try {
+            return lookup.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            logger.warn(format("Payment status lookup did not complete for %s: %s", paymentEntity.getExternalId(), e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lookup.cancel(true);
+        lookupsUnfinished.inc();
+        Payment payment = paymentEntity.toPayment();
+        payment.setGovukStatus(GOVUK_STATUS_UNKNOWN);
+        return payment;
+    }
+
     private Payment queryGovUKPaymentStatus(PaymentEntity paymentEntity) {
         Payment payment = paymentEntity.toPayment();
         if (payment.getStatus() == SUBMITTED) {
-            try {
-                Optional<PaymentResponse> paymentResponseOptional =
-                        publicApiRestClient.getPayment(paymentEntity.getProductEntity().getPayApiToken(),
-                                paymentEntity.getGovukPaymentId());
-
-                if (paymentResponseOptional.isPresent()) {
-                    PaymentResponse paymentResponse = paymentResponseOptional.get();
-                    String status = paymentResponse.getState().getStatus();
-                    payment.setGovukStatus(status);
+            if (paymentStatusReconciler.hasFreshGovukStatus(paymentEntity)) {
+                payment.setGovukStatus(paymentEntity.getGovukStatus());
+            } else {
+                try (Timer.Context ignored = lookupCallTimer.time()) {
+                    paymentStatusReconciler.refresh(paymentEntity).ifPresent(payment::setGovukStatus);
                 }
-            } catch (PublicApiResponseErrorException ex) {
-                logger.error(format("Error while trying to query publicapi with %s: %s",paymentEntity.getExternalId(), ex.getMessage()));
             }
         }
         return payment;
-
     }
 }
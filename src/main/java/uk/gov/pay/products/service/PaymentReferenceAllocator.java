@@ -0,0 +1,101 @@
+package uk.gov.pay.products.service;
+
+import com.google.inject.Inject;
+import uk.gov.pay.products.config.ProductsConfiguration;
+import uk.gov.pay.products.persistence.dao.PaymentDao;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hands out user friendly payment references that are unique across all nodes without checking the database.
+ * <p>
+ * Each node reserves blocks of {@value #BLOCK_SIZE} numbers from {@code payment_reference_block_seq} and numbers
+ * payments from its current block. The number is scrambled by a keyed Feistel permutation over 46 bits, which maps
+ * distinct numbers to distinct values, and encoded in the 10 character reference format: 8 characters from
+ * {@value #ALPHABET}, with digits from {@value #DIGITS} in the 3rd and 7th places.
+ * <p>
+ * The key must never change once references have been issued with it.
+ */
+public class PaymentReferenceAllocator {
+
+    // Must match the INCREMENT BY of payment_reference_block_seq
+    static final long BLOCK_SIZE = 1000L;
+
+    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final String DIGITS = "23456789";
+    private static final int REFERENCE_LENGTH = 10;
+    private static final int HALF_BITS = 23;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final long CAPACITY = 1L << (2 * HALF_BITS);
+
+    private final PaymentDao paymentDao;
+    private final long[] roundKeys;
+    private long next;
+    private long blockEnd;
+
+    @Inject
+    public PaymentReferenceAllocator(PaymentDao paymentDao, ProductsConfiguration productsConfiguration) {
+        this.paymentDao = paymentDao;
+        this.roundKeys = roundKeys(productsConfiguration.getPaymentReferenceKey());
+    }
+
+    public synchronized String allocate() {
+        if (next == blockEnd) {
+            long blockStart = paymentDao.nextReferenceBlock();
+            if (blockStart < 0 || blockStart + BLOCK_SIZE > CAPACITY) {
+                throw new IllegalStateException("Payment reference sequence is exhausted");
+            }
+            next = blockStart;
+            blockEnd = blockStart + BLOCK_SIZE;
+        }
+        return encode(permute(next++));
+    }
+
+    private long permute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (long roundKey : roundKeys) {
+            long mixed = left ^ (mix(right ^ roundKey) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static String encode(long value) {
+        char[] reference = new char[REFERENCE_LENGTH];
+        for (int i = REFERENCE_LENGTH - 1; i >= 0; i--) {
+            if (i % 4 == 2) {
+                reference[i] = DIGITS.charAt((int) (value & 7));
+                value >>>= 3;
+            } else {
+                reference[i] = ALPHABET.charAt((int) (value & 31));
+                value >>>= 5;
+            }
+        }
+        return new String(reference);
+    }
+
+    // SplitMix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long[] roundKeys(String key) {
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+            long[] roundKeys = new long[4];
+            for (int i = 0; i < roundKeys.length; i++) {
+                roundKeys[i] = digest.getLong();
+            }
+            return roundKeys;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
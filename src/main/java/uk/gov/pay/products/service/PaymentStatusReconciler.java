@@ -0,0 +1,116 @@
+package uk.gov.pay.products.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.client.publicapi.model.PaymentState;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
+import uk.gov.pay.products.exception.PublicApiResponseErrorException;
+import uk.gov.pay.products.persistence.dao.PaymentDao;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.service.cache.PaymentStateCache;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps the govuk status stored against each SUBMITTED payment up to date.
+ * <p>
+ * {@link #reconcile()} runs on a schedule and refreshes a batch of payments, oldest check first. Reads use
+ * {@link #hasFreshGovukStatus(PaymentEntity)} to decide whether the stored status can be served, and otherwise
+ * {@link #refresh(PaymentEntity)} it themselves. Statuses publicapi reports as finished are never queried again.
+ */
+public class PaymentStatusReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusReconciler.class);
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private final PaymentDao paymentDao;
+    private final PaymentStateCache paymentStateCache;
+    private final Duration freshnessWindow;
+    private final int batchSize;
+    private final Counter reconciledPayments;
+
+    @Inject
+    public PaymentStatusReconciler(PaymentDao paymentDao, PaymentStateCache paymentStateCache,
+                                   PaymentStatusLookupConfiguration lookupConfiguration, MetricRegistry metricRegistry) {
+        this.paymentDao = paymentDao;
+        this.paymentStateCache = paymentStateCache;
+        this.freshnessWindow = Duration.ofMillis(lookupConfiguration.getFreshnessWindow().toMilliseconds());
+        this.batchSize = lookupConfiguration.getReconciliationBatchSize();
+        this.reconciledPayments = metricRegistry.counter("payment-status-reconciler.reconciled");
+    }
+
+    public boolean hasFreshGovukStatus(PaymentEntity paymentEntity) {
+        if (paymentEntity.getGovukStatus() == null || paymentEntity.getGovukStatusCheckedAt() == null) {
+            return false;
+        }
+        return paymentEntity.isGovukStatusFinished() ||
+                paymentEntity.getGovukStatusCheckedAt().isAfter(now().minus(freshnessWindow));
+    }
+
+    public Optional<String> refresh(PaymentEntity paymentEntity) {
+        try {
+            Optional<PaymentState> state = paymentStateCache
+                    .getPaymentState(paymentEntity.getProductEntity().getPayApiToken(), paymentEntity.getGovukPaymentId());
+            state.ifPresent(paymentState -> recordGovukStatus(paymentEntity.getExternalId(), paymentState));
+            return state.map(PaymentState::getStatus);
+        } catch (PublicApiResponseErrorException ex) {
+            logger.error(format("Error while trying to query publicapi with %s: %s", paymentEntity.getExternalId(), ex.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    public void reconcile() {
+        try {
+            List<PaymentEntity> claimed = claimBatch();
+            for (PaymentEntity paymentEntity : claimed) {
+                try {
+                    refresh(paymentEntity);
+                } catch (RuntimeException e) {
+                    logger.warn(format("Failed to reconcile govuk status of %s: %s", paymentEntity.getExternalId(), e.getMessage()));
+                }
+            }
+            reconciledPayments.inc(claimed.size());
+        } catch (RuntimeException e) {
+            logger.error("Payment status reconciliation failed", e);
+        }
+    }
+
+    // Claims for as long as a status stays fresh, so a payment whose lookup fails waits as long as one that was
+    // checked before being tried again
+    @Transactional
+    public List<PaymentEntity> claimBatch() {
+        ZonedDateTime now = now();
+        return paymentDao.claimForGovukStatusReconciliation(now.minus(freshnessWindow), now, now.plus(freshnessWindow), batchSize);
+    }
+
+    private void recordGovukStatus(String paymentExternalId, PaymentState paymentState) {
+        try {
+            saveGovukStatus(paymentExternalId, paymentState);
+        } catch (RuntimeException e) {
+            logger.warn(format("Failed to store govuk status of %s: %s", paymentExternalId, e.getMessage()));
+        }
+    }
+
+    @Transactional
+    public void saveGovukStatus(String paymentExternalId, PaymentState paymentState) {
+        paymentDao.findByExternalId(paymentExternalId).ifPresent(paymentEntity -> {
+            paymentEntity.setGovukStatus(paymentState.getStatus());
+            paymentEntity.setGovukStatusFinished(paymentState.isFinished());
+            paymentEntity.setGovukStatusCheckedAt(now());
+        });
+    }
+
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now(UTC);
+    }
+}
@@ -39,16 +39,17 @@ public class ProductApiTokenManager {
     public String getNewApiTokenFromPublicAuth(Product product) {
         CreateApiTokenRequest tokenRequest = createApiTokenRequest(product);
 
-        Response response = client.target(publicAuthUrl + NEW_API_TOKEN_PATH)
+        try (Response response = client.target(publicAuthUrl + NEW_API_TOKEN_PATH)
                 .request()
-                .post(Entity.entity(tokenRequest, MediaType.APPLICATION_JSON));
+                .post(Entity.entity(tokenRequest, MediaType.APPLICATION_JSON))) {
 
-        return Optional.ofNullable(response.readEntity(NewApiTokenFromPublicAuthResponse.class))
-                .map(NewApiTokenFromPublicAuthResponse::getToken)
-                .orElseThrow(() -> new FailToGetNewApiTokenException(
-                        String.format("Failed to get a new API token for product %s of type %s",
-                                product.getExternalId(),
-                                product.getType())));
+            return Optional.ofNullable(response.readEntity(NewApiTokenFromPublicAuthResponse.class))
+                    .map(NewApiTokenFromPublicAuthResponse::getToken)
+                    .orElseThrow(() -> new FailToGetNewApiTokenException(
+                            String.format("Failed to get a new API token for product %s of type %s",
+                                    product.getExternalId(),
+                                    product.getType())));
+        }
     }
 
     public void replaceApiTokenForAProduct(Product product, String newApiToken) {
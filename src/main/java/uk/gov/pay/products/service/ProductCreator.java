@@ -7,7 +7,9 @@ import uk.gov.pay.products.persistence.dao.ProductDao;
 import uk.gov.pay.products.persistence.dao.ProductMetadataDao;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
 import uk.gov.pay.products.persistence.entity.ProductMetadataEntity;
+import uk.gov.pay.products.service.cache.ProductCache;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -19,12 +21,15 @@ public class ProductCreator {
     private final ProductDao productDao;
     private final ProductMetadataDao productMetadataDao;
     private final LinksDecorator linksDecorator;
+    private final ProductCache productCache;
 
     @Inject
-    public ProductCreator(ProductDao productDao, ProductMetadataDao productMetadataDao, LinksDecorator linksDecorator) {
+    public ProductCreator(ProductDao productDao, ProductMetadataDao productMetadataDao, LinksDecorator linksDecorator,
+                          ProductCache productCache) {
         this.productDao = productDao;
         this.productMetadataDao = productMetadataDao;
         this.linksDecorator = linksDecorator;
+        this.productCache = productCache;
     }
 
     @Transactional
@@ -33,6 +38,8 @@ public class ProductCreator {
         productEntity.setExternalId(randomUuid());
 
         productDao.persist(productEntity);
+        // Routes the product's friendly URL on every node, this one included, once the product is committed
+        productCache.invalidate(productEntity.getExternalId());
 
         return linksDecorator.decorate(productEntity.toProduct());
     }
@@ -54,15 +61,18 @@ public class ProductCreator {
                 });
 
         productMetadataDao.deleteForProductExternalId(productExternalId);
+        productCache.invalidate(productExternalId);
 
+        // The list is always replaced, so a product held in the shared JPA cache does not keep the deleted metadata
         productEntityUpdated.ifPresent(productEntity -> {
+            List<ProductMetadataEntity> productMetadataEntities = new ArrayList<>();
             if (product.getMetadata() != null && !product.getMetadata().isEmpty()) {
-                List<ProductMetadataEntity> productMetadataEntities = product.getMetadata()
+                productMetadataEntities = product.getMetadata()
                         .stream()
                         .map(productMetadata -> ProductMetadataEntity.from(productEntity, productMetadata))
                         .collect(Collectors.toList());
-                productEntity.setMetadataEntityList(productMetadataEntities);
             }
+            productEntity.setMetadataEntityList(productMetadataEntities);
         });
 
         return productEntityUpdated.map(productEntity -> linksDecorator.decorate(productEntity.toProduct()));
@@ -4,8 +4,12 @@ import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import uk.gov.pay.products.model.Product;
 import uk.gov.pay.products.model.ProductUsageStat;
+import uk.gov.pay.products.persistence.ReadOnly;
 import uk.gov.pay.products.persistence.dao.ProductDao;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.ProductCache;
+import uk.gov.pay.products.service.cache.ProductPathIndex;
+import uk.gov.pay.products.service.cache.ProductSnapshot;
 import uk.gov.pay.products.util.ProductStatus;
 import uk.gov.pay.products.util.ProductType;
 
@@ -13,27 +17,37 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Lists of products are read from the read replica when there is one. Single products are not, as they are cached
+ * and a replica that had not caught up with an update could put the old product back in the cache.
+ */
 public class ProductFinder {
     private final ProductDao productDao;
     private final LinksDecorator linksDecorator;
+    private final ProductCache productCache;
+    private final ProductPathIndex productPathIndex;
 
     @Inject
-    public ProductFinder(ProductDao productDao, LinksDecorator linksDecorator) {
+    public ProductFinder(ProductDao productDao, LinksDecorator linksDecorator, ProductCache productCache,
+                         ProductPathIndex productPathIndex) {
         this.productDao = productDao;
         this.linksDecorator = linksDecorator;
+        this.productCache = productCache;
+        this.productPathIndex = productPathIndex;
     }
 
     @Transactional
     public Optional<Product> findByExternalId(String externalId) {
-        return productDao.findByExternalId(externalId)
-                .map(ProductEntity::toProduct)
+        return productCache.findByExternalId(externalId)
+                .map(ProductSnapshot::toProduct)
                 .map(linksDecorator::decorate);
     }
 
     @Transactional
     public Optional<Product> findByGatewayAccountIdAndExternalId(Integer gatewayAccountId, String externalId) {
-        return productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)
-                .map(ProductEntity::toProduct)
+        return productCache.findByExternalId(externalId)
+                .filter(productSnapshot -> gatewayAccountId.equals(productSnapshot.getGatewayAccountId()))
+                .map(ProductSnapshot::toProduct)
                 .map(linksDecorator::decorate);
     }
 
@@ -43,6 +57,7 @@ public class ProductFinder {
         return productDao.findByExternalId(externalId)
                 .map(productEntity -> {
                     productEntity.setStatus(ProductStatus.INACTIVE);
+                    productCache.invalidate(productEntity.getExternalId());
                     return Optional.of(productEntity.toProduct());
                 })
                 .orElseGet(Optional::empty);
@@ -54,6 +69,7 @@ public class ProductFinder {
                 .map(productEntity -> {
                     productEntity.setPayApiToken(payApiToken);
                     productDao.merge(productEntity);
+                    productCache.invalidate(externalId);
                     return Optional.of(productEntity.toProduct());
                 })
                 .orElseGet(Optional::empty);
@@ -64,6 +80,7 @@ public class ProductFinder {
         return productDao.findByExternalId(externalId)
                 .map(productEntity -> {
                     productDao.remove(productEntity);
+                    productCache.invalidate(productEntity.getExternalId());
                     return true;
                 })
                 .orElse(false);
@@ -75,6 +92,7 @@ public class ProductFinder {
         return productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)
                 .map(productEntity -> {
                     productEntity.setStatus(ProductStatus.INACTIVE);
+                    productCache.invalidate(productEntity.getExternalId());
                     return Optional.of(productEntity.toProduct());
                 })
                 .orElseGet(Optional::empty);
@@ -85,11 +103,13 @@ public class ProductFinder {
         return productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)
                 .map(productEntity -> {
                     productDao.remove(productEntity);
+                    productCache.invalidate(productEntity.getExternalId());
                     return true;
                 })
                 .orElse(false);
     }
 
+    @ReadOnly
     @Transactional
     public List<Product> findByGatewayAccountId(Integer gatewayAccountId) {
         return productDao.findByGatewayAccountId(gatewayAccountId)
@@ -99,6 +119,7 @@ public class ProductFinder {
                 .collect(Collectors.toUnmodifiableList());
     }
 
+    @ReadOnly
     @Transactional
     public List<Product> findByGatewayAccountIdAndType(Integer gatewayAccountId, ProductType type) {
         return productDao.findByGatewayAccountIdAndType(gatewayAccountId, type)
@@ -110,11 +131,13 @@ public class ProductFinder {
 
     @Transactional
     public Optional<Product> findByProductPath(String serviceNamePath, String productNamePath) {
-        return productDao.findByProductPath(serviceNamePath, productNamePath)
-                .map(ProductEntity::toProduct)
+        return productPathIndex.findExternalId(serviceNamePath, productNamePath)
+                .flatMap(productCache::findByExternalId)
+                .map(ProductSnapshot::toProduct)
                 .map(linksDecorator::decorate);
     }
 
+    @ReadOnly
     @Transactional
     public List<ProductUsageStat> findProductsAndUsage(Integer gatewayAccountId) {
         return productDao.findProductsAndUsage(gatewayAccountId)
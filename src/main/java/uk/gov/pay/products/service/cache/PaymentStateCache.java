@@ -0,0 +1,127 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.inject.Inject;
+import uk.gov.pay.products.client.publicapi.PaymentResponse;
+import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
+import uk.gov.pay.products.client.publicapi.model.PaymentState;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
+import uk.gov.pay.products.exception.PublicApiResponseErrorException;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cache of publicapi {@link PaymentState}s keyed by govuk payment id.
+ * <p>
+ * Unfinished states expire after a short TTL so polling still sees progress; finished states never change and are
+ * kept until evicted for size. Concurrent lookups of the same payment share one in-flight publicapi call, which runs
+ * on the first caller's thread; the others wait for it no longer than the lookup deadline. Payments publicapi does
+ * not find, and failed calls, are not cached.
+ */
+public class PaymentStateCache {
+
+    private static final String METRIC_PREFIX = "payment-state-cache";
+
+    private final PublicApiRestClient publicApiRestClient;
+    private final AsyncCache<String, PaymentState> cache;
+    private final long lookupDeadlineNanos;
+    private final Counter outboundCalls;
+    private final Counter outboundCallsSaved;
+
+    @Inject
+    public PaymentStateCache(PublicApiRestClient publicApiRestClient, PaymentStatusLookupConfiguration lookupConfiguration,
+                             MetricRegistry metricRegistry) {
+        this.publicApiRestClient = publicApiRestClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(lookupConfiguration.getStateCacheMaximumSize())
+                .expireAfter(new FinishedStatePinningExpiry(
+                        TimeUnit.MILLISECONDS.toNanos(lookupConfiguration.getStateCacheUnfinishedTtl().toMilliseconds())))
+                .buildAsync();
+        this.lookupDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(lookupConfiguration.getDeadline().toMilliseconds());
+        this.outboundCalls = metricRegistry.counter(METRIC_PREFIX + ".outbound-calls");
+        this.outboundCallsSaved = metricRegistry.counter(METRIC_PREFIX + ".outbound-calls-saved");
+        metricRegistry.gauge(METRIC_PREFIX + ".hit-ratio", () -> new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(outboundCallsSaved.getCount(), outboundCallsSaved.getCount() + outboundCalls.getCount());
+            }
+        });
+        metricRegistry.gauge(METRIC_PREFIX + ".size", () -> (Gauge<Long>) () -> cache.synchronous().estimatedSize());
+    }
+
+    public Optional<PaymentState> getPaymentState(String apiToken, String govukPaymentId) {
+        CompletableFuture<PaymentState> lookup = new CompletableFuture<>();
+        CompletableFuture<PaymentState> existing = cache.asMap().putIfAbsent(govukPaymentId, lookup);
+        if (existing != null) {
+            outboundCallsSaved.inc();
+            return Optional.ofNullable(await(existing));
+        }
+
+        outboundCalls.inc();
+        try {
+            PaymentState paymentState = publicApiRestClient.getPayment(apiToken, govukPaymentId)
+                    .map(PaymentResponse::getState)
+                    .orElse(null);
+            lookup.complete(paymentState);
+            return Optional.ofNullable(paymentState);
+        } catch (Throwable t) {
+            lookup.completeExceptionally(t);
+            throw t;
+        } finally {
+            // Whatever the call ended with, nothing is left waiting on it and only a state found stays cached
+            if (lookup.isCompletedExceptionally() || lookup.join() == null) {
+                cache.asMap().remove(govukPaymentId, lookup);
+            }
+        }
+    }
+
+    private PaymentState await(CompletableFuture<PaymentState> lookup) {
+        try {
+            return lookup.get(lookupDeadlineNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new PublicApiResponseErrorException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new PublicApiResponseErrorException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PublicApiResponseErrorException(e);
+        }
+    }
+
+    private static class FinishedStatePinningExpiry implements Expiry<String, PaymentState> {
+
+        private final long unfinishedTtlNanos;
+
+        private FinishedStatePinningExpiry(long unfinishedTtlNanos) {
+            this.unfinishedTtlNanos = unfinishedTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, PaymentState state, long currentTime) {
+            return state.isFinished() ? Long.MAX_VALUE : unfinishedTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, PaymentState state, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, state, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, PaymentState state, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.inject.Inject;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
+import uk.gov.pay.products.persistence.dao.ProductDao;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-evicted cache of {@link ProductSnapshot}s keyed by product external id.
+ * <p>
+ * Lookups that miss load through {@link ProductDao} on the calling thread, so callers must be inside a unit of work.
+ * Anything that changes or removes a product must call {@link #invalidate(String)} inside its transaction, which
+ * evicts locally and tells every other node to do the same once the transaction commits. The TTL bounds staleness
+ * should a notification be lost.
+ */
+public class ProductCache {
+
+    private static final String METRIC_PREFIX = "product-cache";
+
+    private final ProductDao productDao;
+    private final ProductCacheInvalidationPublisher invalidationPublisher;
+    private final Cache<String, ProductSnapshot> cache;
+
+    @Inject
+    public ProductCache(ProductDao productDao, ProductCacheInvalidationPublisher invalidationPublisher,
+                        ProductCacheConfiguration cacheConfiguration, MetricRegistry metricRegistry) {
+        this.productDao = productDao;
+        this.invalidationPublisher = invalidationPublisher;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheConfiguration.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(cacheConfiguration.getExpireAfterWrite().toMilliseconds()))
+                .recordStats()
+                .build();
+        registerMetrics(metricRegistry);
+    }
+
+    public Optional<ProductSnapshot> findByExternalId(String externalId) {
+        return Optional.ofNullable(cache.get(externalId, key -> productDao.findByExternalId(key)
+                .map(ProductSnapshot::from)
+                .orElse(null)));
+    }
+
+    public void invalidate(String externalId) {
+        cache.invalidate(externalId);
+        invalidationPublisher.publish(externalId);
+    }
+
+    void evict(String externalId) {
+        cache.invalidate(externalId);
+    }
+
+    void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private void registerMetrics(MetricRegistry metricRegistry) {
+        metricRegistry.gauge(METRIC_PREFIX + ".hits", () -> (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.gauge(METRIC_PREFIX + ".misses", () -> (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.gauge(METRIC_PREFIX + ".evictions", () -> (Gauge<Long>) () -> cache.stats().evictionCount());
+        metricRegistry.gauge(METRIC_PREFIX + ".size", () -> (Gauge<Long>) cache::estimatedSize);
+    }
+}
@@ -0,0 +1,128 @@
+package uk.gov.pay.products.service.cache;
+
+import com.google.inject.Inject;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.lifecycle.Managed;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.pay.products.service.cache.ProductCacheInvalidationPublisher.CHANNEL;
+
+/**
+ * Evicts entries from this node's {@link ProductCache}, and refreshes their {@link ProductPathIndex} routes, when any
+ * node publishes a change through {@link ProductCacheInvalidationPublisher}. The JPA caches those reload from are
+ * invalidated first through {@link ProductEntityCacheInvalidator}.
+ * <p>
+ * Listens on a dedicated connection outside the pool. Notifications sent while that connection is down are lost,
+ * so the whole cache is flushed whenever the connection drops, and flushed again and the path index reloaded once
+ * {@code LISTEN} is re-established.
+ */
+public class ProductCacheInvalidationListener implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheInvalidationListener.class);
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500L;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+    private final DataSourceFactory dataSourceFactory;
+    private final ProductCache productCache;
+    private final ProductPathIndex productPathIndex;
+    private final ProductEntityCacheInvalidator productEntityCacheInvalidator;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    @Inject
+    public ProductCacheInvalidationListener(DataSourceFactory dataSourceFactory, ProductCache productCache,
+                                            ProductPathIndex productPathIndex,
+                                            ProductEntityCacheInvalidator productEntityCacheInvalidator) {
+        this.dataSourceFactory = dataSourceFactory;
+        this.productCache = productCache;
+        this.productPathIndex = productPathIndex;
+        this.productEntityCacheInvalidator = productEntityCacheInvalidator;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "product-cache-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(POLL_TIMEOUT_MILLIS * 2L);
+    }
+
+    private void listen() {
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        boolean missedNotifications = false;
+        while (running) {
+            try (Connection connection = openConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (missedNotifications) {
+                    productEntityCacheInvalidator.invalidate();
+                    productCache.evictAll();
+                    productPathIndex.reload();
+                    missedNotifications = false;
+                }
+                backoffMillis = INITIAL_BACKOFF_MILLIS;
+                logger.info("Listening for product cache invalidations on channel {}", CHANNEL);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        productEntityCacheInvalidator.invalidate();
+                        for (PGNotification notification : notifications) {
+                            productCache.evict(notification.getParameter());
+                            productPathIndex.refresh(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                productEntityCacheInvalidator.invalidate();
+                productCache.evictAll();
+                missedNotifications = true;
+                logger.warn("Lost product cache invalidation connection, flushed cache and retrying in {}ms: {}",
+                        backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.putAll(dataSourceFactory.getProperties());
+        if (dataSourceFactory.getUser() != null) {
+            properties.put("user", dataSourceFactory.getUser());
+        }
+        if (dataSourceFactory.getPassword() != null) {
+            properties.put("password", dataSourceFactory.getPassword());
+        }
+        return DriverManager.getConnection(dataSourceFactory.getUrl(), properties);
+    }
+}
@@ -0,0 +1,41 @@
+package uk.gov.pay.products.service.cache;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Tells every node that a product has changed by issuing {@code pg_notify} on the current transaction's connection.
+ * Postgres only delivers the notification once that transaction commits, and drops it if it rolls back, so
+ * listeners never evict ahead of the change they are told about.
+ */
+public class ProductCacheInvalidationPublisher {
+
+    static final String CHANNEL = "product_cache_invalidation";
+
+    private final Provider<EntityManager> entityManager;
+
+    @Inject
+    public ProductCacheInvalidationPublisher(Provider<EntityManager> entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public void publish(String externalId) {
+        Connection connection = entityManager.get().unwrap(Connection.class);
+        if (connection == null) {
+            throw new PersistenceException("Product cache invalidation must be published inside a transaction");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, externalId);
+            statement.execute();
+        } catch (SQLException e) {
+            throw new PersistenceException("Failed to publish product cache invalidation for " + externalId, e);
+        }
+    }
+}
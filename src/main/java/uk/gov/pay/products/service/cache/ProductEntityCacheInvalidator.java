@@ -0,0 +1,35 @@
+package uk.gov.pay.products.service.cache;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.IdentityMapAccessor;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.persistence.entity.ProductMetadataEntity;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Invalidates this node's EclipseLink shared cache of products and their metadata, and the query results cached
+ * for product queries.
+ * <p>
+ * EclipseLink keeps its own caches up to date with writes made through this node. Writes made on other nodes
+ * arrive through {@link ProductCacheInvalidationListener}, which calls this before reloading anything.
+ */
+public class ProductEntityCacheInvalidator {
+
+    private final Provider<EntityManagerFactory> entityManagerFactory;
+
+    @Inject
+    public ProductEntityCacheInvalidator(Provider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void invalidate() {
+        IdentityMapAccessor identityMapAccessor = JpaHelper.getServerSession(entityManagerFactory.get())
+                .getIdentityMapAccessor();
+        identityMapAccessor.invalidateClass(ProductEntity.class);
+        identityMapAccessor.invalidateClass(ProductMetadataEntity.class);
+        identityMapAccessor.invalidateQueryCache(ProductEntity.class);
+    }
+}
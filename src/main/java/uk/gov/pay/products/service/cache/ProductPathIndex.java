@@ -0,0 +1,186 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
+import uk.gov.pay.products.model.ProductPath;
+import uk.gov.pay.products.persistence.dao.ProductDao;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory routing table from friendly URL ({@link ProductPath}) to product external id.
+ * <p>
+ * Routes only ever change from committed data: {@link #refresh(String)} re-reads a product when any node, this one
+ * included, publishes a change through {@link ProductCacheInvalidationPublisher}, and {@link #reload()} runs
+ * periodically to rebuild the index from the database, repairing anything missed. A path the index does not know,
+ * such as one for a product committed moments ago whose notification has not arrived yet, is looked up in the
+ * database, and a path found there to be unknown is remembered for a short while so repeated requests for it do not
+ * reach the database again.
+ */
+public class ProductPathIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductPathIndex.class);
+
+    private final ProductDao productDao;
+    private final Cache<ProductPath, Boolean> unknownPaths;
+    private final Object reloadLock = new Object();
+    // Readers do not lock, so a reload swaps in a whole new routing table rather than emptying this one
+    private volatile Map<ProductPath, String> externalIdsByPath = new ConcurrentHashMap<>();
+    private Map<String, ProductPath> pathsByExternalId = new HashMap<>();
+    private Set<String> changedDuringReload;
+    private volatile boolean loaded;
+
+    @Inject
+    public ProductPathIndex(ProductDao productDao, ProductCacheConfiguration cacheConfiguration, MetricRegistry metricRegistry) {
+        this.productDao = productDao;
+        this.unknownPaths = Caffeine.newBuilder()
+                .maximumSize(cacheConfiguration.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(cacheConfiguration.getProductPathIndexMissExpiry().toMilliseconds()))
+                .build();
+        metricRegistry.gauge("product-path-index.size", () -> (Gauge<Integer>) () -> externalIdsByPath.size());
+    }
+
+    public Optional<String> findExternalId(String serviceNamePath, String productNamePath) {
+        if (!loaded) {
+            return productDao.findByProductPath(serviceNamePath, productNamePath).map(ProductEntity::getExternalId);
+        }
+        ProductPath path = toPath(serviceNamePath, productNamePath);
+        if (path == null) {
+            return Optional.empty();
+        }
+        String externalId = externalIdsByPath.get(path);
+        if (externalId != null || unknownPaths.getIfPresent(path) != null) {
+            return Optional.ofNullable(externalId);
+        }
+        Optional<String> found = productDao.findByProductPath(serviceNamePath, productNamePath).map(ProductEntity::getExternalId);
+        if (found.isEmpty()) {
+            unknownPaths.put(path, Boolean.TRUE);
+        }
+        return found;
+    }
+
+    @Transactional
+    public void refresh(String externalId) {
+        try {
+            ProductPath path = findPath(externalId);
+            String owner = path == null ? null : externalIdsByPath.get(path);
+            // Paths are unique in the database, so an index that routes this path elsewhere is out of date for the
+            // other product too, and that product is re-read rather than having its route overwritten
+            ProductPath ownerPath = owner == null || owner.equals(externalId) ? null : findPath(owner);
+            if (path != null) {
+                unknownPaths.invalidate(path);
+            }
+            synchronized (this) {
+                if (owner != null && !owner.equals(externalId)) {
+                    markChanged(owner);
+                    apply(owner, ownerPath);
+                }
+                markChanged(externalId);
+                apply(externalId, path);
+            }
+        } catch (PersistenceException e) {
+            logger.warn("Failed to refresh product path route for {}, it will be picked up by the next reload: {}",
+                    externalId, e.getMessage());
+        }
+    }
+
+    @Transactional
+    public void reload() {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                changedDuringReload = new HashSet<>();
+            }
+            Map<String, ProductPath> loadedPaths;
+            try {
+                loadedPaths = productDao.findAllProductPaths();
+            } catch (PersistenceException e) {
+                logger.warn("Failed to reload product path index: {}", e.getMessage());
+                synchronized (this) {
+                    changedDuringReload = null;
+                }
+                return;
+            }
+            synchronized (this) {
+                Set<String> changed = changedDuringReload;
+                changedDuringReload = null;
+                rebuild(loadedPaths, changed);
+                loaded = true;
+            }
+            unknownPaths.invalidateAll();
+            logger.info("Reloaded product path index with {} routes", externalIdsByPath.size());
+        }
+    }
+
+    // Routes refreshed while the products were being read are newer than what was read, so they are kept as they are
+    private void rebuild(Map<String, ProductPath> loadedPaths, Set<String> changed) {
+        Map<ProductPath, String> rebuiltExternalIdsByPath = new ConcurrentHashMap<>();
+        Map<String, ProductPath> rebuiltPathsByExternalId = new HashMap<>();
+        for (String externalId : changed) {
+            ProductPath path = pathsByExternalId.get(externalId);
+            if (path != null) {
+                rebuiltExternalIdsByPath.put(path, externalId);
+                rebuiltPathsByExternalId.put(externalId, path);
+            }
+        }
+        loadedPaths.forEach((externalId, path) -> {
+            if (!changed.contains(externalId) && rebuiltExternalIdsByPath.putIfAbsent(path, externalId) == null) {
+                rebuiltPathsByExternalId.put(externalId, path);
+            }
+        });
+        pathsByExternalId = rebuiltPathsByExternalId;
+        externalIdsByPath = rebuiltExternalIdsByPath;
+    }
+
+    private ProductPath findPath(String externalId) {
+        return productDao.findByExternalId(externalId)
+                .map(productEntity -> toPath(productEntity.getServiceNamePath(), productEntity.getProductNamePath()))
+                .orElse(null);
+    }
+
+    private void markChanged(String externalId) {
+        if (changedDuringReload != null) {
+            changedDuringReload.add(externalId);
+        }
+    }
+
+    // Readers do not lock, so a route that is unchanged must never be removed and re-added, and a path is only
+    // routed to this product once no other product holds it
+    private void apply(String externalId, ProductPath path) {
+        ProductPath current = pathsByExternalId.get(externalId);
+        if (Objects.equals(current, path)) {
+            return;
+        }
+        if (current != null) {
+            pathsByExternalId.remove(externalId);
+            externalIdsByPath.remove(current, externalId);
+        }
+        if (path != null) {
+            String owner = externalIdsByPath.putIfAbsent(path, externalId);
+            if (owner == null || owner.equals(externalId)) {
+                pathsByExternalId.put(externalId, path);
+            } else {
+                logger.warn("Not routing {} to product {} as it is still routed to product {}", path, externalId, owner);
+            }
+        }
+    }
+
+    private static ProductPath toPath(String serviceNamePath, String productNamePath) {
+        return serviceNamePath == null || productNamePath == null ? null : new ProductPath(serviceNamePath, productNamePath);
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.pay.products.service.cache;
+
+import uk.gov.pay.commons.model.SupportedLanguage;
+import uk.gov.pay.products.model.Product;
+import uk.gov.pay.products.model.ProductMetadata;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.util.ProductStatus;
+import uk.gov.pay.products.util.ProductType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of a {@link ProductEntity} and its metadata, safe to share between requests.
+ * A new {@link Product} is built on every {@link #toProduct()} because {@link uk.gov.pay.products.service.LinksDecorator} mutates it.
+ */
+public final class ProductSnapshot {
+
+    private final Integer id;
+    private final String externalId;
+    private final String name;
+    private final String description;
+    private final String payApiToken;
+    private final Long price;
+    private final ProductStatus status;
+    private final Integer gatewayAccountId;
+    private final ProductType type;
+    private final String returnUrl;
+    private final String serviceNamePath;
+    private final String productNamePath;
+    private final Boolean referenceEnabled;
+    private final String referenceLabel;
+    private final String referenceHint;
+    private final SupportedLanguage language;
+    private final List<ProductMetadata> metadata;
+
+    private ProductSnapshot(ProductEntity productEntity) {
+        this.id = productEntity.getId();
+        this.externalId = productEntity.getExternalId();
+        this.name = productEntity.getName();
+        this.description = productEntity.getDescription();
+        this.payApiToken = productEntity.getPayApiToken();
+        this.price = productEntity.getPrice();
+        this.status = productEntity.getStatus();
+        this.gatewayAccountId = productEntity.getGatewayAccountId();
+        this.type = productEntity.getType();
+        this.returnUrl = productEntity.getReturnUrl();
+        this.serviceNamePath = productEntity.getServiceNamePath();
+        this.productNamePath = productEntity.getProductNamePath();
+        this.referenceEnabled = productEntity.getReferenceEnabled();
+        this.referenceLabel = productEntity.getReferenceLabel();
+        this.referenceHint = productEntity.getReferenceHint();
+        this.language = productEntity.getLanguage();
+        List<ProductMetadata> metadata = productEntity.toProductMetadataList();
+        this.metadata = metadata == null ? null : List.copyOf(metadata);
+    }
+
+    public static ProductSnapshot from(ProductEntity productEntity) {
+        return new ProductSnapshot(productEntity);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPayApiToken() {
+        return payApiToken;
+    }
+
+    public Long getPrice() {
+        return price;
+    }
+
+    public ProductStatus getStatus() {
+        return status;
+    }
+
+    public Integer getGatewayAccountId() {
+        return gatewayAccountId;
+    }
+
+    public ProductType getType() {
+        return type;
+    }
+
+    public String getServiceNamePath() {
+        return serviceNamePath;
+    }
+
+    public String getProductNamePath() {
+        return productNamePath;
+    }
+
+    public Boolean getReferenceEnabled() {
+        return referenceEnabled;
+    }
+
+    public SupportedLanguage getLanguage() {
+        return language;
+    }
+
+    public Product toProduct() {
+        return new Product(
+                this.externalId,
+                this.name,
+                this.description,
+                this.payApiToken,
+                this.price,
+                this.status,
+                this.gatewayAccountId,
+                this.type,
+                this.returnUrl,
+                this.serviceNamePath,
+                this.productNamePath,
+                this.referenceEnabled,
+                this.referenceLabel,
+                this.referenceHint,
+                this.language,
+                this.metadata);
+    }
+
+    public Map<String, String> toProductMetadataMap() {
+        return metadata == null ? Map.of() : metadata
+                .stream()
+                .collect(Collectors.toMap(ProductMetadata::getKey, ProductMetadata::getValue));
+    }
+}
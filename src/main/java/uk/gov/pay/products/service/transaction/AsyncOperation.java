@@ -0,0 +1,14 @@
+package uk.gov.pay.products.service.transaction;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Represents a block of code that should be executed outside of a transaction boundary
+ * and completes later, without holding the thread that started it
+ * @param <TransactionContext>
+ * @param <R> return value
+ */
+@FunctionalInterface
+public interface AsyncOperation<TransactionContext, R> extends ManagedOperation<TransactionContext, CompletionStage<R>> {
+
+}
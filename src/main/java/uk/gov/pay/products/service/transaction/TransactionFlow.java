@@ -1,8 +1,15 @@
 package uk.gov.pay.products.service.transaction;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import uk.gov.pay.products.util.RequestContext;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * <p>Represents and manages a set of transactional (and non-transactional) operations
@@ -31,18 +38,50 @@ import java.util.Objects;
  *
  * }
  * </pre>
+ * <p>
+ * The same steps can be chained with {@code executeNextAsync}, which runs each step once the previous one has
+ * finished, on the given executor or, for an {@link AsyncOperation}, on whatever thread completes it. Each
+ * asynchronous step runs in the {@link RequestContext} of the thread that added it, and is recorded in a
+ * {@code transaction-flow.<operation name>} timer. For a {@link TransactionalOperation} that time includes the
+ * commit, so it is roughly how long the step held a database connection.
+ * </p>
+ * <pre>
+ *  {@code
+ *
+ *  CompletionStage<TransactionContext> result = transactionFlowProvider.get()
+ *   .executeNextAsync("find-charge", (TransactionalOperation<TransactionContext, ChargeEntity>) context-> {
+ *       //do some transactional stuff
+ *       return chargeEntity;
+ *   }, executor)
+ *   .executeNextAsync("authorise", (AsyncOperation<TransactionContext, GatewayResponse>) context-> {
+ *       //start some non transactional stuff
+ *       return gatewayResponseStage;
+ *   })
+ *   .completeAsync();
+ *
+ * }
+ * </pre>
  */
 public class TransactionFlow {
 
+    private static final String METRICS_PREFIX = "transaction-flow";
+
     private final TransactionContext context;
+    private final MetricRegistry metricRegistry;
+    private CompletableFuture<Void> asyncSteps = CompletableFuture.completedFuture(null);
 
-    //for Guice
-    public TransactionFlow() {
-        context = new TransactionContext();
+    @Inject
+    public TransactionFlow(MetricRegistry metricRegistry) {
+        this(new TransactionContext(), metricRegistry);
     }
 
     TransactionFlow(TransactionContext context) {
+        this(context, new MetricRegistry());
+    }
+
+    TransactionFlow(TransactionContext context, MetricRegistry metricRegistry) {
         this.context = context;
+        this.metricRegistry = metricRegistry;
     }
 
     /**
@@ -70,6 +109,91 @@ public class TransactionFlow {
         return this;
     }
 
+    /**
+     * executes the given block of code in a Transactional boundary on the given executor,
+     * once the previous asynchronous step has finished.
+     *
+     * @param operationName name of the timer this step is recorded in
+     * @param op            block of code to be executed
+     * @param executor      executor to run the block of code on
+     * @param <R>           result to be persisted
+     * @return
+     */
+    public <R> TransactionFlow executeNextAsync(String operationName, TransactionalOperation<TransactionContext, R> op,
+                                                Executor executor) {
+        Objects.requireNonNull(op);
+        Timer timer = timer(operationName);
+        asyncSteps = asyncSteps.thenApplyAsync(ignored -> {
+            try (Timer.Context ignoredTime = timer.time()) {
+                executeNext(op);
+            }
+            return null;
+        }, RequestContext.capture().wrap(executor));
+        return this;
+    }
+
+    /**
+     * executes the given block of code outside of a Transactional boundary on the given executor,
+     * once the previous asynchronous step has finished.
+     *
+     * @param operationName name of the timer this step is recorded in
+     * @param op            block of code to be executed
+     * @param executor      executor to run the block of code on
+     * @param <R>           result to be persisted
+     * @return
+     */
+    public <R> TransactionFlow executeNextAsync(String operationName, NonTransactionalOperation<TransactionContext, R> op,
+                                                Executor executor) {
+        Objects.requireNonNull(op);
+        Timer timer = timer(operationName);
+        asyncSteps = asyncSteps.thenApplyAsync(ignored -> {
+            try (Timer.Context ignoredTime = timer.time()) {
+                execute(op);
+            }
+            return null;
+        }, RequestContext.capture().wrap(executor));
+        return this;
+    }
+
+    /**
+     * starts the given block of code outside of a Transactional boundary once the previous asynchronous step has
+     * finished. The next step follows when the returned stage completes.
+     *
+     * @param operationName name of the timer this step is recorded in
+     * @param op            block of code to be executed
+     * @param <R>           result to be persisted
+     * @return
+     */
+    public <R> TransactionFlow executeNextAsync(String operationName, AsyncOperation<TransactionContext, R> op) {
+        Objects.requireNonNull(op);
+        Timer timer = timer(operationName);
+        RequestContext requestContext = RequestContext.capture();
+        asyncSteps = asyncSteps.thenCompose(ignored -> requestContext.call(() -> {
+            Timer.Context time = timer.time();
+            try {
+                return op.execute(context).whenComplete((result, failure) -> time.stop());
+            } catch (RuntimeException e) {
+                time.stop();
+                throw e;
+            }
+        }).thenAccept(result -> {
+            if (result != null) {
+                context.put(result);
+            }
+        }));
+        return this;
+    }
+
+    /**
+     * demarcates the end of an asynchronous transaction flow
+     *
+     * @return stage completing with all result objects persisted during the execution of transaction flow,
+     * or exceptionally with the failure of the first step that failed.
+     */
+    public CompletionStage<TransactionContext> completeAsync() {
+        return asyncSteps.thenApply(ignored -> context);
+    }
+
     /**
      * demarcates the end of transaction flow
      *
@@ -86,4 +210,8 @@ public class TransactionFlow {
             context.put(result);
         }
     }
+
+    private Timer timer(String operationName) {
+        return metricRegistry.timer(MetricRegistry.name(METRICS_PREFIX, Objects.requireNonNull(operationName)));
+    }
 }
@@ -2,6 +2,7 @@ package uk.gov.pay.products.util;
 
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static java.util.stream.IntStream.range;
 
@@ -32,7 +33,7 @@ public class RandomIdGenerator {
      * @return a user friendly reference of the format XXXXXXXXXX
      */
     public static String randomUserFriendlyReference() {
-        Random random = new Random();
+        Random random = ThreadLocalRandom.current();
         StringBuilder sb = new StringBuilder();
         range(0, 10)
                 .forEach(i -> {
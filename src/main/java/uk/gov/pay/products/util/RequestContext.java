@@ -0,0 +1,64 @@
+package uk.gov.pay.products.util;
+
+import org.slf4j.MDC;
+import uk.gov.pay.products.persistence.DatabaseUsage;
+import uk.gov.pay.products.profiling.InFlightRequest;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The per-thread state of a request that must follow its steps onto other threads: the logging context in the MDC,
+ * its {@link DatabaseUsage} and its {@link InFlightRequest}.
+ * <p>
+ * {@link #capture()} takes a snapshot on the thread handing work off, and {@link #wrap(Executor)} or
+ * {@link #call(Supplier)} put it back around each step on the thread that runs it, restoring that thread's own
+ * state afterwards. Anything else a request keeps per thread belongs here, so that every hand-off carries it.
+ */
+public class RequestContext {
+
+    private final Map<String, String> loggingContext;
+    private final DatabaseUsage databaseUsage;
+    private final InFlightRequest inFlightRequest;
+
+    private RequestContext(Map<String, String> loggingContext, DatabaseUsage databaseUsage, InFlightRequest inFlightRequest) {
+        this.loggingContext = loggingContext;
+        this.databaseUsage = databaseUsage;
+        this.inFlightRequest = inFlightRequest;
+    }
+
+    public static RequestContext capture() {
+        return new RequestContext(MDC.getCopyOfContextMap(), DatabaseUsage.current().orElse(null),
+                InFlightRequest.current().orElse(null));
+    }
+
+    /**
+     * Runs the step on this thread with the captured context.
+     */
+    public <T> T call(Supplier<T> step) {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (loggingContext != null) {
+            MDC.setContextMap(loggingContext);
+        }
+        try {
+            return DatabaseUsage.callWith(databaseUsage, () -> InFlightRequest.callWith(inFlightRequest, step));
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
+
+    /**
+     * An executor running each task on the given executor with the captured context.
+     */
+    public Executor wrap(Executor executor) {
+        return task -> executor.execute(() -> call(() -> {
+            task.run();
+            return null;
+        }));
+    }
+}
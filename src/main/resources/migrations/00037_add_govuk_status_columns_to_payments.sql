@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_govuk_status_columns_to_payments
+ALTER TABLE payments ADD COLUMN govuk_status VARCHAR(50);
+ALTER TABLE payments ADD COLUMN govuk_status_finished BOOLEAN DEFAULT false NOT NULL;
+ALTER TABLE payments ADD COLUMN govuk_status_checked_at TIMESTAMP WITH TIME ZONE;
+-- rollback alter table payments drop column govuk_status; alter table payments drop column govuk_status_finished; alter table payments drop column govuk_status_checked_at;
+
+--changeset uk.gov.pay:index_govuk_status_reconciliation_payments runInTransaction:false
+CREATE INDEX CONCURRENTLY payments_govuk_status_reconciliation_idx ON payments(govuk_status_checked_at NULLS FIRST, id)
+    WHERE status = 'SUBMITTED' AND govuk_status_finished = false;
+-- rollback drop index concurrently payments_govuk_status_reconciliation_idx
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table-product_usage
+CREATE TABLE product_usage (
+    product_id INTEGER PRIMARY KEY,
+    payment_count BIGINT DEFAULT 0 NOT NULL,
+    last_payment_date TIMESTAMP WITH TIME ZONE
+);
+--rollback drop table product_usage;
+
+--changeset uk.gov.pay:add_product_usage_products_fk
+ALTER TABLE product_usage ADD CONSTRAINT fk_product_usage_products FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_sequence-payment_reference_block_seq
+CREATE SEQUENCE payment_reference_block_seq MINVALUE 0 START WITH 0 INCREMENT BY 1000;
+--rollback drop sequence payment_reference_block_seq;
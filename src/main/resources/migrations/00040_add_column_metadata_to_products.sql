@@ -0,0 +1,41 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_column_metadata_to_products
+ALTER TABLE products ADD COLUMN metadata JSONB;
+--rollback alter table products drop column metadata;
+
+--changeset uk.gov.pay:add_function_sync_products_metadata_column splitStatements:false
+CREATE OR REPLACE FUNCTION sync_products_metadata_column() RETURNS TRIGGER AS $$
+DECLARE
+    changed_product_id INTEGER;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed_product_id := OLD.product_id;
+    ELSE
+        changed_product_id := NEW.product_id;
+    END IF;
+
+    UPDATE products SET metadata = (
+        SELECT jsonb_object_agg(metadata_key, metadata_value) FROM products_metadata WHERE product_id = changed_product_id
+    ) WHERE id = changed_product_id;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function sync_products_metadata_column();
+
+--changeset uk.gov.pay:add_products_metadata_sync_trigger
+CREATE TRIGGER products_metadata_sync_trigger
+    AFTER INSERT OR UPDATE OR DELETE ON products_metadata
+    FOR EACH ROW EXECUTE PROCEDURE sync_products_metadata_column();
+--rollback drop trigger products_metadata_sync_trigger on products_metadata;
+
+--changeset uk.gov.pay:backfill_column_metadata_on_products
+UPDATE products SET metadata = grouped_metadata.metadata
+FROM (
+    SELECT product_id, jsonb_object_agg(metadata_key, metadata_value) AS metadata
+    FROM products_metadata
+    GROUP BY product_id
+) grouped_metadata
+WHERE products.id = grouped_metadata.product_id;
+--rollback update products set metadata = null;
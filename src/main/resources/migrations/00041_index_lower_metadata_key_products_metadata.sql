@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:index_product_id_lower_metadata_key_products_metadata runInTransaction:false
+CREATE INDEX CONCURRENTLY products_metadata_product_id_lower_metadata_key_idx ON products_metadata(product_id, lower(metadata_key));
+-- rollback drop index concurrently products_metadata_product_id_lower_metadata_key_idx
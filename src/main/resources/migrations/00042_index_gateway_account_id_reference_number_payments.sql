@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:index_gateway_account_id_reference_number_payments runInTransaction:false
+CREATE INDEX CONCURRENTLY payments_gateway_account_id_reference_number_idx ON payments(gateway_account_id, reference_number);
+-- rollback drop index concurrently payments_gateway_account_id_reference_number_idx
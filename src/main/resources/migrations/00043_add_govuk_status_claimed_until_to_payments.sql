@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_govuk_status_claimed_until_to_payments
+ALTER TABLE payments ADD COLUMN govuk_status_claimed_until TIMESTAMP WITH TIME ZONE;
+-- rollback alter table payments drop column govuk_status_claimed_until;
@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:add_table-replication_heartbeat
+CREATE TABLE replication_heartbeat (
+    id INTEGER PRIMARY KEY,
+    beat_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, now());
+--rollback drop table replication_heartbeat;
@@ -1,6 +1,10 @@
 package uk.gov.pay.products.client;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.setup.Environment;
 import io.dropwizard.util.Duration;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +16,9 @@ import javax.net.ssl.SSLContext;
 import javax.ws.rs.client.Client;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.hamcrest.core.IsNot.not;
 import static org.mockito.Mockito.when;
 
@@ -23,20 +29,33 @@ public class RestClientFactoryTest {
     @Mock
     private RestClientConfiguration clientConfiguration;
 
+    @Mock
+    private Environment environment;
+
     @BeforeEach
     public void setUp() {
         when(clientConfiguration.getConnectTimeout()).thenReturn(FIFTY_SECONDS);
         when(clientConfiguration.getReadTimeout()).thenReturn(FIFTY_SECONDS);
+        when(clientConfiguration.getMaxConnections()).thenReturn(10);
+        when(clientConfiguration.getMaxConnectionsPerRoute()).thenReturn(5);
+        when(clientConfiguration.getConnectionRequestTimeout()).thenReturn(Duration.seconds(5));
+        when(clientConfiguration.getIdleConnectionTimeout()).thenReturn(Duration.seconds(30));
+        when(clientConfiguration.getConnectionTimeToLive()).thenReturn(Duration.minutes(5));
+        when(clientConfiguration.getValidateAfterInactivity()).thenReturn(Duration.seconds(2));
     }
 
     @Test
     public void jerseyClient_shouldUseSSLWhenSecureInternalCommunicationIsOn() {
         when(clientConfiguration.isDisabledSecureConnection()).thenReturn(false);
+        when(clientConfiguration.getTlsSessionCacheSize()).thenReturn(100);
+        when(clientConfiguration.getTlsSessionTimeout()).thenReturn(Duration.hours(1));
 
         Client client = RestClientFactory.buildClient(clientConfiguration);
 
         SSLContext sslContext = client.getSslContext();
         assertThat(sslContext.getProtocol(), is("TLSv1.2"));
+        assertThat(sslContext.getClientSessionContext().getSessionCacheSize(), is(100));
+        assertThat(sslContext.getClientSessionContext().getSessionTimeout(), is(3600));
     }
 
     @Test
@@ -48,9 +67,48 @@ public class RestClientFactoryTest {
         assertThat(client.getSslContext().getProtocol(), is(not("TLSv1.2")));
     }
 
+    @Test
+    public void jerseyClient_shouldRegisterConnectionPoolGaugesPerDownstreamHost() {
+        when(clientConfiguration.isDisabledSecureConnection()).thenReturn(true);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        when(environment.metrics()).thenReturn(metricRegistry);
+        when(environment.lifecycle()).thenReturn(new LifecycleEnvironment(metricRegistry));
+
+        RestClientFactory.buildClient(clientConfiguration, environment, "https://publicapi.url", "http://publicauth.url:9600/");
+
+        assertThat(metricRegistry.getGauges().keySet(), hasItems(
+                "rest-client.connection-pool.total.leased",
+                "rest-client.connection-pool.total.pending",
+                "rest-client.connection-pool.total.available",
+                "rest-client.connection-pool.publicapi_url_443.leased",
+                "rest-client.connection-pool.publicapi_url_443.pending",
+                "rest-client.connection-pool.publicapi_url_443.available",
+                "rest-client.connection-pool.publicauth_url_9600.leased"));
+        assertThat(metricRegistry.getGauges().get("rest-client.connection-pool.publicapi_url_443.leased").getValue(), is(0));
+    }
+
+    @Test
+    public void jerseyClient_shouldBeClosedWhenTheApplicationStops() throws Exception {
+        when(clientConfiguration.isDisabledSecureConnection()).thenReturn(true);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        LifecycleEnvironment lifecycle = new LifecycleEnvironment(metricRegistry);
+        when(environment.metrics()).thenReturn(metricRegistry);
+        when(environment.lifecycle()).thenReturn(lifecycle);
+
+        Client client = RestClientFactory.buildClient(clientConfiguration, environment, "https://publicapi.url");
+        for (LifeCycle managed : lifecycle.getManagedObjects()) {
+            managed.start();
+            managed.stop();
+        }
+
+        assertThrows(IllegalStateException.class, () -> client.target("https://publicapi.url"));
+    }
+
     @Test
     public void jerseyClient_shouldHaveConnectTimeoutSetTo10s() {
         Duration connectTimeout = Duration.seconds(10L);
+        when(clientConfiguration.getTlsSessionCacheSize()).thenReturn(100);
+        when(clientConfiguration.getTlsSessionTimeout()).thenReturn(Duration.hours(1));
         when(clientConfiguration.getConnectTimeout()).thenReturn(connectTimeout);
 
         Client client = RestClientFactory.buildClient(clientConfiguration);
@@ -62,6 +120,8 @@ public class RestClientFactoryTest {
     @Test
     public void jerseyClient_shouldHaveReadTimeoutSetTo15s() {
         Duration readTimeout = Duration.seconds(15L);
+        when(clientConfiguration.getTlsSessionCacheSize()).thenReturn(100);
+        when(clientConfiguration.getTlsSessionTimeout()).thenReturn(Duration.hours(1));
         when(clientConfiguration.getReadTimeout()).thenReturn(readTimeout);
 
         Client client = RestClientFactory.buildClient(clientConfiguration);
@@ -1,5 +1,6 @@
 package uk.gov.pay.products.client.publicapi;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import io.dropwizard.util.Duration;
 import org.apache.http.HttpStatus;
@@ -16,6 +17,7 @@ import javax.json.JsonObject;
 import javax.ws.rs.client.Client;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
@@ -40,18 +42,28 @@ public class PublicApiRestClientTest {
 
     private static RestClientConfiguration restClientConfiguration;
     private static Client client;
+    private static MetricRegistry metricRegistry;
     private static PublicApiRestClient publicApiRestClient;
 
     static {
         restClientConfiguration = mock(RestClientConfiguration.class);
         when(restClientConfiguration.getConnectTimeout()).thenReturn(FIFTY_SECONDS);
         when(restClientConfiguration.getReadTimeout()).thenReturn(FIFTY_SECONDS);
+        when(restClientConfiguration.getMaxConnections()).thenReturn(10);
+        when(restClientConfiguration.getMaxConnectionsPerRoute()).thenReturn(5);
+        when(restClientConfiguration.getConnectionRequestTimeout()).thenReturn(Duration.seconds(5));
+        when(restClientConfiguration.getIdleConnectionTimeout()).thenReturn(Duration.seconds(30));
+        when(restClientConfiguration.getConnectionTimeToLive()).thenReturn(Duration.minutes(5));
+        when(restClientConfiguration.getValidateAfterInactivity()).thenReturn(Duration.seconds(2));
+        when(restClientConfiguration.getTlsSessionCacheSize()).thenReturn(100);
+        when(restClientConfiguration.getTlsSessionTimeout()).thenReturn(Duration.hours(1));
         client =  RestClientFactory.buildClient(restClientConfiguration);
-        publicApiRestClient = new PublicApiRestClient(client, "http://localhost:" + PUBLIC_API_PORT);
+        metricRegistry = new MetricRegistry();
+        publicApiRestClient = new PublicApiRestClient(client, "http://localhost:" + PUBLIC_API_PORT, metricRegistry);
     }
 
     @Test
-    public void createPayment_shouldCreateANewPayment() {
+    public void createPaymentAsync_shouldCreateANewPayment() {
         String paymentId = "hu20sqlact5260q2nanm0q8u93";
         long amount = 2000;
         String reference = "a-reference";
@@ -60,53 +72,53 @@ public class PublicApiRestClientTest {
         String nextUrl = "http://next.url";
         String apiToken = "api-token";
         SupportedLanguage language = SupportedLanguage.WELSH;
-        boolean moto = false;
         Map<String, String> metadata = Map.of("key", "value");
 
         JsonObject expectedPaymentRequestPayload = createPaymentRequestPayload(
-                amount, reference, description, returnUrl, language.toString(), moto, metadata);
+                amount, reference, description, returnUrl, language.toString(), false, metadata);
         JsonObject paymentResponsePayload = PublicApiStub.createPaymentResponsePayload(
                 paymentId, amount, reference, description, returnUrl, nextUrl, language.toString(),
                 metadata);
 
         setupResponseToCreatePaymentRequest(apiToken, expectedPaymentRequestPayload, paymentResponsePayload);
 
-        PaymentRequest paymentRequest = new PaymentRequest(amount, reference, description, returnUrl, language, moto, metadata, CARD_PAYMENT_LINK);
-        PaymentResponse actualPaymentResponse = publicApiRestClient.createPayment(apiToken, paymentRequest);
-        
+        PaymentRequest paymentRequest = new PaymentRequest(amount, reference, description, returnUrl, language, false, metadata, CARD_PAYMENT_LINK);
+        PaymentResponse actualPaymentResponse = publicApiRestClient.createPaymentAsync(apiToken, paymentRequest)
+                .toCompletableFuture().join();
+
         assertThat(actualPaymentResponse, hasAllPaymentProperties(paymentResponsePayload));
     }
 
     @Test
-    public void createPayment_shouldThrowAnExceptionWhenBadRequest() throws PublicApiResponseErrorException {
+    public void createPaymentAsync_shouldCompleteExceptionallyWhenBadRequest() {
         long amount = 2000;
         String reference = "a-reference";
         String description = "A Service Description";
         String returnUrl = "http://return.url";
         String apiToken = "api-token";
         SupportedLanguage language = SupportedLanguage.WELSH;
-        boolean moto = false;
 
         JsonObject expectedPaymentRequestPayload = createPaymentRequestPayload(
-                amount, reference, description, returnUrl, language.toString(), false,null);
+                amount, reference, description, returnUrl, language.toString(), false, null);
         JsonObject errorPayload = PublicApiStub.createErrorPayload();
 
         setupResponseToCreatePaymentRequest(apiToken, expectedPaymentRequestPayload, errorPayload, SC_BAD_REQUEST);
 
-        PaymentRequest paymentRequest = new PaymentRequest(amount, reference, description, returnUrl, language, moto, Map.of(), CARD_PAYMENT_LINK);
-
+        PaymentRequest paymentRequest = new PaymentRequest(amount, reference, description, returnUrl, language, false, Map.of(), CARD_PAYMENT_LINK);
         try {
-            publicApiRestClient.createPayment(apiToken, paymentRequest);
+            publicApiRestClient.createPaymentAsync(apiToken, paymentRequest).toCompletableFuture().join();
             fail("Expected an PublicApiResponseErrorException to be thrown");
-        } catch (PublicApiResponseErrorException exception) {
-            assertThat(exception.getErrorStatus(), is(400));
-            assertThat(exception.getCode(), is(errorPayload.getString("code")));
-            assertThat(exception.getDescription(), is(errorPayload.getString("description")));
+        } catch (CompletionException exception) {
+            assertThat(exception.getCause() instanceof PublicApiResponseErrorException, is(true));
+            PublicApiResponseErrorException publicApiException = (PublicApiResponseErrorException) exception.getCause();
+            assertThat(publicApiException.getErrorStatus(), is(400));
+            assertThat(publicApiException.getCode(), is(errorPayload.getString("code")));
+            assertThat(publicApiException.getDescription(), is(errorPayload.getString("description")));
         }
     }
 
     @Test
-    public void createPayment_shouldThrowAnExceptionWhenUnauthorized() {
+    public void createPaymentAsync_shouldCompleteExceptionallyWhenUnauthorized() {
         long amount = 2000;
         String reference = "a-reference";
         String description = "A Service Description";
@@ -122,10 +134,11 @@ public class PublicApiRestClientTest {
 
         PaymentRequest paymentRequest = new PaymentRequest(amount, reference, description, returnUrl, language, moto, Map.of(), CARD_PAYMENT_LINK);
         try {
-            publicApiRestClient.createPayment(apiToken, paymentRequest);
+            publicApiRestClient.createPaymentAsync(apiToken, paymentRequest).toCompletableFuture().join();
             fail("Expected an PublicApiResponseErrorException to be thrown");
-        } catch (PublicApiResponseErrorException exception) {
-            assertThat(exception.getErrorStatus(), is(401));
+        } catch (CompletionException exception) {
+            assertThat(exception.getCause() instanceof PublicApiResponseErrorException, is(true));
+            assertThat(((PublicApiResponseErrorException) exception.getCause()).getErrorStatus(), is(401));
         }
     }
 
@@ -161,6 +174,17 @@ public class PublicApiRestClientTest {
         assertFalse(actualPaymentResponse.isPresent());
     }
 
+    @Test
+    public void findPayment_shouldBeTimed() {
+        String paymentId = "hu20sqlact5260q2nanm0q8u93";
+        long timedCalls = metricRegistry.timer("publicapi.get-payment").getCount();
+
+        setupResponseToGetPaymentRequest(paymentId, HttpStatus.SC_NOT_FOUND);
+        publicApiRestClient.getPayment("api-token", paymentId);
+
+        assertThat(metricRegistry.timer("publicapi.get-payment").getCount(), is(timedCalls + 1));
+    }
+
     @Test
     public void findPayment_shouldThrowAnException() {
         String paymentId = "hu20sqlact5260q2nanm0q8u93";
@@ -0,0 +1,92 @@
+package uk.gov.pay.products.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.eclipse.persistence.config.CacheIsolationType;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.internal.jpa.JPAQuery;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductsSessionCustomiserTest {
+
+    private static final ObjectMapper objectMapper = Jackson.newObjectMapper();
+
+    @Mock
+    private AbstractSession session;
+
+    private ClassDescriptor productDescriptor;
+    private ClassDescriptor metadataDescriptor;
+    private JPAQuery findByExternalId;
+    private JPAQuery uncachedQuery;
+
+    @Before
+    public void setup() {
+        productDescriptor = new ClassDescriptor();
+        metadataDescriptor = new ClassDescriptor();
+        findByExternalId = new JPAQuery(ProductEntity.FIND_BY_EXTERNAL_ID, "select p from ProductEntity p", null, null);
+        uncachedQuery = new JPAQuery("ProductEntity.uncached", "select p from ProductEntity p", null, null);
+        List<DatabaseQuery> jpaQueries = new ArrayList<>(List.of(findByExternalId, uncachedQuery));
+
+        when(session.getDatasourceLogin()).thenReturn(new DatabaseLogin());
+        when(session.getDescriptorForAlias("ProductEntity")).thenReturn(productDescriptor);
+        when(session.getDescriptorForAlias("ProductMetadataEntity")).thenReturn(metadataDescriptor);
+        when(session.getJPAQueries()).thenReturn(jpaQueries);
+    }
+
+    @Test
+    public void shouldSizeAndExpireSharedEntityCachesAndCacheNamedQueryResults() throws Exception {
+        givenJpaConfiguration("{\"queryResultsCache\": \"true\", \"queryResultsCacheSize\": 50, \"queryResultsCacheExpiry\": \"1 minute\"," +
+                "\"entityCaches\": {" +
+                "\"ProductEntity\": {\"shared\": true, \"size\": 500, \"expiry\": \"2 minutes\"}," +
+                "\"ProductMetadataEntity\": {\"shared\": false}}}");
+
+        new ProductsSessionCustomiser().customize(session);
+
+        assertThat(productDescriptor.getCacheIsolation(), is(CacheIsolationType.SHARED));
+        assertThat(productDescriptor.getIdentityMapSize(), is(500));
+        assertThat(productDescriptor.getCacheInvalidationPolicy(), instanceOf(TimeToLiveCacheInvalidationPolicy.class));
+        assertThat(((TimeToLiveCacheInvalidationPolicy) productDescriptor.getCacheInvalidationPolicy()).getTimeToLive(), is(120000L));
+        assertThat(metadataDescriptor.getCacheIsolation(), is(CacheIsolationType.ISOLATED));
+
+        assertThat(findByExternalId.getHints(), hasEntry(QueryHints.QUERY_RESULTS_CACHE, "True"));
+        assertThat(findByExternalId.getHints(), hasEntry(QueryHints.QUERY_RESULTS_CACHE_SIZE, "50"));
+        assertThat(findByExternalId.getHints(), hasEntry(QueryHints.QUERY_RESULTS_CACHE_EXPIRY, "60000"));
+        assertThat(uncachedQuery.getHints(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotCacheQueryResults_whenProductsAreNotInTheSharedCache() throws Exception {
+        givenJpaConfiguration("{\"queryResultsCache\": \"true\", \"entityCaches\": {\"ProductEntity\": {\"shared\": false}}}");
+
+        new ProductsSessionCustomiser().customize(session);
+
+        assertThat(productDescriptor.getCacheIsolation(), is(CacheIsolationType.ISOLATED));
+        assertThat(findByExternalId.getHints(), is(nullValue()));
+    }
+
+    private void givenJpaConfiguration(String json) throws Exception {
+        when(session.getProperty(ProductsSessionCustomiser.JPA_CONFIGURATION))
+                .thenReturn(objectMapper.readValue(json, JPAConfiguration.class));
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.pay.products.filters;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.persistence.DatabaseUsage;
+import uk.gov.pay.products.resources.ProductResource;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.filters.LoggingMDCRequestFilter.DATABASE_USAGE;
+import static uk.gov.pay.products.filters.LoggingMDCResponseFilter.DB_ROWS;
+import static uk.gov.pay.products.filters.LoggingMDCResponseFilter.DB_STATEMENTS;
+import static uk.gov.pay.products.filters.LoggingMDCResponseFilter.DB_TIME_MS;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LoggingMDCResponseFilterTest {
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private ContainerResponseContext responseContext;
+
+    @Mock
+    private ResourceInfo resourceInfo;
+
+    private MetricRegistry metricRegistry;
+    private LoggingMDCResponseFilter filter;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        filter = new LoggingMDCResponseFilter(metricRegistry, resourceInfo);
+    }
+
+    @Test
+    public void shouldFinishDatabaseUsageAndRecordItForTheResourceMethod() throws Exception {
+        DatabaseUsage usage = DatabaseUsage.start();
+        when(requestContext.getProperty(DATABASE_USAGE)).thenReturn(usage);
+        when(resourceInfo.getResourceClass()).thenAnswer(invocation -> ProductResource.class);
+        when(resourceInfo.getResourceMethod())
+                .thenReturn(ProductResource.class.getMethod("findProductByExternalId", String.class));
+        String endpoint = "uk.gov.pay.products.resources.ProductResource.findProductByExternalId";
+
+        filter.filter(requestContext, responseContext);
+
+        assertThat(DatabaseUsage.current(), is(Optional.empty()));
+        verify(requestContext).setProperty(DB_STATEMENTS, 0L);
+        verify(requestContext).setProperty(DB_ROWS, 0L);
+        verify(requestContext).setProperty(DB_TIME_MS, 0L);
+        assertThat(metricRegistry.histogram(MetricRegistry.name(endpoint, "db-statements")).getCount(), is(1L));
+        assertThat(metricRegistry.histogram(MetricRegistry.name(endpoint, "db-rows")).getCount(), is(1L));
+        assertThat(metricRegistry.timer(MetricRegistry.name(endpoint, "db-time")).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotRecordPerEndpoint_whenNoResourceMethodMatched() throws Exception {
+        when(requestContext.getProperty(DATABASE_USAGE)).thenReturn(DatabaseUsage.start());
+
+        filter.filter(requestContext, responseContext);
+
+        verify(requestContext).setProperty(DB_STATEMENTS, 0L);
+        assertThat(metricRegistry.getHistograms().isEmpty(), is(true));
+        assertThat(metricRegistry.getTimers().isEmpty(), is(true));
+    }
+}
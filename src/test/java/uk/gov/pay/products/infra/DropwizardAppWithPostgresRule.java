@@ -1,5 +1,6 @@
 package uk.gov.pay.products.infra;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.ConfigOverride;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import liquibase.Liquibase;
@@ -90,6 +91,10 @@ public class DropwizardAppWithPostgresRule implements TestRule {
         return app.getConfiguration();
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return app.getEnvironment().metrics();
+    }
+
     public DatabaseTestHelper getDatabaseTestHelper() {
         return databaseTestHelper;
     }
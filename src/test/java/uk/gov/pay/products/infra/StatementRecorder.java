@@ -0,0 +1,65 @@
+package uk.gov.pay.products.infra;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Wraps a Postgres data source to record every prepared statement executed on its connections, with the bound
+ * parameters written into the SQL, so tests can see exactly what the application sent to the database.
+ */
+public class StatementRecorder {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    public DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource,
+                result -> result instanceof Connection ? wrap((Connection) result) : result,
+                (method, args) -> {});
+    }
+
+    public List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+
+    public void clear() {
+        statements.clear();
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection,
+                result -> result instanceof PreparedStatement ? wrap((PreparedStatement) result) : result,
+                (method, args) -> {});
+    }
+
+    // pgjdbc writes a prepared statement out with its bound parameters in place of the placeholders
+    private PreparedStatement wrap(PreparedStatement preparedStatement) {
+        return proxy(PreparedStatement.class, preparedStatement, UnaryOperator.identity(), (method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName()) && (args == null || args.length == 0)) {
+                statements.add(preparedStatement.toString());
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, T delegate, UnaryOperator<Object> wrapResult,
+                               BiConsumer<Method, Object[]> beforeInvocation) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            beforeInvocation.accept(method, args);
+            try {
+                return wrapResult.apply(method.invoke(delegate, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+}
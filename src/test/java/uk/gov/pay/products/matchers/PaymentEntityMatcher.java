@@ -20,7 +20,7 @@ public class PaymentEntityMatcher {
                         StringUtils.equals(actualPaymentEntity.getNextUrl(), expectedPaymentEntity.getNextUrl()) &&
                         (actualPaymentEntity.getStatus() == expectedPaymentEntity.getStatus()) &&
                         StringUtils.equals(actualPaymentEntity.getGovukPaymentId(), expectedPaymentEntity.getGovukPaymentId()) &&
-                        (actualPaymentEntity.getProductEntity() == expectedPaymentEntity.getProductEntity()) &&
+                        ObjectUtils.equals(actualPaymentEntity.getProductId(), expectedPaymentEntity.getProductId()) &&
                         (ObjectUtils.equals(actualPaymentEntity.getAmount(), expectedPaymentEntity.getAmount())));
             }
 
@@ -0,0 +1,93 @@
+package uk.gov.pay.products.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class HdrHistogramReservoirTest {
+
+    private long tick;
+    private HdrHistogramReservoir reservoir;
+
+    @Before
+    public void setup() {
+        reservoir = new HdrHistogramReservoir(new Clock() {
+            @Override
+            public long getTick() {
+                return tick;
+            }
+        });
+    }
+
+    @Test
+    public void shouldReportPercentilesOfEveryRecordedValue() {
+        for (long value = 1; value <= 1000; value++) {
+            reservoir.update(value);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        assertThat(snapshot.size(), is(1000));
+        assertThat(snapshot.getMin(), is(1L));
+        assertThat((double) snapshot.getMax(), is(closeTo(1000, 10)));
+        assertThat(snapshot.getMedian(), is(closeTo(500, 5)));
+        assertThat(snapshot.get99thPercentile(), is(closeTo(990, 10)));
+        assertThat(snapshot.get999thPercentile(), is(closeTo(999, 10)));
+    }
+
+    @Test
+    public void shouldKeepValuesUntilTheyAreAFullWindowOld() {
+        reservoir.update(10);
+        assertThat(reservoir.getSnapshot().size(), is(1));
+
+        tick += HdrHistogramReservoir.WINDOW_NANOS;
+        reservoir.update(20);
+        assertThat(reservoir.getSnapshot().size(), is(2));
+
+        tick += HdrHistogramReservoir.WINDOW_NANOS;
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.getMin(), is(20L));
+    }
+
+    @Test
+    public void shouldDropEveryWindow_whenNotReadForTwoWindows() {
+        reservoir.update(10);
+        assertThat(reservoir.getSnapshot().size(), is(1));
+
+        tick += 2 * HdrHistogramReservoir.WINDOW_NANOS;
+        assertThat(reservoir.getSnapshot().size(), is(0));
+
+        reservoir.update(20);
+        tick += HdrHistogramReservoir.WINDOW_NANOS;
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.getMin(), is(20L));
+    }
+
+    @Test
+    public void shouldGiveTheSameSnapshotToEveryReader() {
+        reservoir.update(10);
+
+        assertThat(reservoir.getSnapshot().size(), is(1));
+        assertThat(reservoir.getSnapshot().size(), is(1));
+    }
+
+    @Test
+    public void shouldRecordNegativeValuesAsZero() {
+        reservoir.update(-5);
+
+        assertThat(reservoir.getSnapshot().getMin(), is(0L));
+    }
+
+    @Test
+    public void shouldRejectQuantilesOutsideZeroToOne() {
+        assertThrows(IllegalArgumentException.class, () -> reservoir.getSnapshot().getValue(1.5));
+    }
+}
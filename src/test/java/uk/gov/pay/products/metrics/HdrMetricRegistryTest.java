@@ -0,0 +1,32 @@
+package uk.gov.pay.products.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class HdrMetricRegistryTest {
+
+    private final MetricRegistry metricRegistry = new HdrMetricRegistry();
+
+    @Test
+    public void shouldBackHistogramsAndTimersCreatedByNameWithHdrHistograms() {
+        assertThat(metricRegistry.histogram("a-histogram").getSnapshot(), is(instanceOf(HdrHistogramReservoir.HdrSnapshot.class)));
+        assertThat(metricRegistry.timer("a-timer").getSnapshot(), is(instanceOf(HdrHistogramReservoir.HdrSnapshot.class)));
+    }
+
+    @Test
+    public void shouldKeepReservoirsOfHistogramsAndTimersRegisteredWithTheirOwn() {
+        Histogram histogram = metricRegistry.histogram("a-histogram", () -> new Histogram(new SlidingWindowReservoir(10)));
+        Timer timer = metricRegistry.timer("a-timer", () -> new Timer(new SlidingWindowReservoir(10)));
+
+        assertThat(histogram.getSnapshot(), is(not(instanceOf(HdrHistogramReservoir.HdrSnapshot.class))));
+        assertThat(timer.getSnapshot(), is(not(instanceOf(HdrHistogramReservoir.HdrSnapshot.class))));
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.pay.products.persistence;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DatabaseUsageTest {
+
+    @After
+    public void tearDown() {
+        DatabaseUsage.current().ifPresent(DatabaseUsage::finish);
+    }
+
+    @Test
+    public void shouldTotalStatementsRowsAndTime() {
+        DatabaseUsage usage = DatabaseUsage.start();
+
+        usage.statementExecuted(TimeUnit.MILLISECONDS.toNanos(3));
+        usage.statementExecuted(TimeUnit.MILLISECONDS.toNanos(4));
+        usage.rowRead();
+
+        assertThat(usage.getStatements(), is(2L));
+        assertThat(usage.getRows(), is(1L));
+        assertThat(usage.getTime(TimeUnit.MILLISECONDS), is(7L));
+    }
+
+    @Test
+    public void shouldNoLongerBeCurrent_onceFinished() {
+        DatabaseUsage usage = DatabaseUsage.start();
+        assertThat(DatabaseUsage.current(), is(Optional.of(usage)));
+
+        usage.finish();
+
+        assertThat(DatabaseUsage.current(), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldBeCurrentOnAnotherThread_onlyWhileCalledWith() throws Exception {
+        DatabaseUsage usage = DatabaseUsage.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Optional<DatabaseUsage> during = CompletableFuture.supplyAsync(
+                    () -> DatabaseUsage.callWith(usage, DatabaseUsage::current), executor).get();
+            Optional<DatabaseUsage> after = CompletableFuture.supplyAsync(DatabaseUsage::current, executor).get();
+
+            assertThat(during, is(Optional.of(usage)));
+            assertThat(after, is(Optional.empty()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotBeCurrentOnAThreadItWasLeftOn_onceFinishedElsewhere() throws Exception {
+        DatabaseUsage usage = DatabaseUsage.start();
+
+        CompletableFuture.runAsync(usage::finish).get();
+
+        assertThat(DatabaseUsage.current(), is(Optional.empty()));
+    }
+}
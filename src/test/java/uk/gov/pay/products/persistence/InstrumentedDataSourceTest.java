@@ -0,0 +1,127 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InstrumentedDataSourceTest {
+
+    private static final String WAIT_TIMER = "io.dropwizard.db.ManagedPooledDataSource.products.wait";
+    private static final String WAIT_TIMEOUTS_METER = "io.dropwizard.db.ManagedPooledDataSource.products.wait-timeouts";
+    private static final String CONNECTION_FAILURES_METER = "io.dropwizard.db.ManagedPooledDataSource.products.connection-failures";
+
+    @Mock
+    private ManagedDataSource pool;
+
+    private MetricRegistry metricRegistry;
+    private InstrumentedDataSource dataSource;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        dataSource = new InstrumentedDataSource(pool, metricRegistry, "products");
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseUsage.current().ifPresent(DatabaseUsage::finish);
+    }
+
+    @Test
+    public void shouldRecordWaitForConnection() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(connection);
+
+        assertThat(dataSource.getConnection(), is(connection));
+
+        assertThat(metricRegistry.timer(WAIT_TIMER).getCount(), is(1L));
+        assertThat(metricRegistry.meter(WAIT_TIMEOUTS_METER).getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldRecordWaitTimeout_whenPoolHasNoConnectionToHandOut() throws Exception {
+        SQLException timeout = new PoolExhaustedException("Timeout: Pool empty. Unable to fetch a connection in 1 seconds");
+        when(pool.getConnection()).thenThrow(timeout);
+
+        assertThat(assertThrows(SQLException.class, () -> dataSource.getConnection()), is(timeout));
+
+        assertThat(metricRegistry.timer(WAIT_TIMER).getCount(), is(1L));
+        assertThat(metricRegistry.meter(WAIT_TIMEOUTS_METER).getCount(), is(1L));
+        assertThat(metricRegistry.meter(CONNECTION_FAILURES_METER).getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldRecordConnectionFailure_notWaitTimeout_whenTheDatabaseRefusesAConnection() throws Exception {
+        SQLException refused = new SQLException("Connection to localhost:5432 refused", "08001");
+        when(pool.getConnection()).thenThrow(refused);
+
+        assertThat(assertThrows(SQLException.class, () -> dataSource.getConnection()), is(refused));
+
+        assertThat(metricRegistry.meter(WAIT_TIMEOUTS_METER).getCount(), is(0L));
+        assertThat(metricRegistry.meter(CONNECTION_FAILURES_METER).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldStartAndStopThePool() throws Exception {
+        dataSource.start();
+        dataSource.stop();
+
+        verify(pool).start();
+        verify(pool).stop();
+    }
+
+    @Test
+    public void shouldAddStatementsAndRowsToCurrentDatabaseUsage() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("SELECT 1")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(statement.executeUpdate()).thenReturn(1);
+        when(resultSet.next()).thenReturn(true, true, false);
+        DatabaseUsage usage = DatabaseUsage.start();
+
+        Connection accounted = dataSource.getConnection();
+        assertThat(accounted, is(not(connection)));
+        PreparedStatement accountedStatement = accounted.prepareStatement("SELECT 1");
+        ResultSet accountedResultSet = accountedStatement.executeQuery();
+        while (accountedResultSet.next()) {
+        }
+        assertThat(accountedStatement.executeUpdate(), is(1));
+        accounted.close();
+
+        assertThat(usage.getStatements(), is(2L));
+        assertThat(usage.getRows(), is(2L));
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldNotAddStatementsToFinishedDatabaseUsage() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(connection);
+        DatabaseUsage.start().finish();
+
+        assertThat(dataSource.getConnection(), is(connection));
+    }
+}
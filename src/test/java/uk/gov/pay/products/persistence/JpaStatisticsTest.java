@@ -0,0 +1,102 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.queries.ReadObjectQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class JpaStatisticsTest {
+
+    private MetricRegistry metricRegistry;
+    private JpaStatistics jpaStatistics;
+    private ClassDescriptor descriptor;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        jpaStatistics = new JpaStatistics(metricRegistry);
+        descriptor = new ClassDescriptor();
+        descriptor.setAlias("ProductEntity");
+    }
+
+    @Test
+    public void shouldCountHitsAndMissesPerEntityAndNamedQuery() {
+        ReadAllQuery query = new ReadAllQuery();
+        query.setName("ProductEntity.findByGatewayAccountId");
+        query.setDescriptor(descriptor);
+
+        jpaStatistics.occurred(SessionProfiler.CacheHits, query, null);
+        jpaStatistics.occurred(SessionProfiler.CacheHits, query, null);
+        jpaStatistics.occurred(SessionProfiler.CacheMisses, query, null);
+
+        assertThat(metricRegistry.counter("jpa.cache.ProductEntity.hits").getCount(), is(2L));
+        assertThat(metricRegistry.counter("jpa.cache.ProductEntity.misses").getCount(), is(1L));
+        assertThat(metricRegistry.counter("jpa.cache.ProductEntity.findByGatewayAccountId.hits").getCount(), is(2L));
+        assertThat(metricRegistry.counter("jpa.cache.ProductEntity.findByGatewayAccountId.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCountUnnamedQueriesAgainstTheEntityOnly() {
+        ReadObjectQuery query = new ReadObjectQuery();
+        query.setDescriptor(descriptor);
+
+        jpaStatistics.occurred(SessionProfiler.CacheHits, query, null);
+
+        assertThat(cacheCounterNames(), is(Set.of("jpa.cache.ProductEntity.hits")));
+    }
+
+    @Test
+    public void shouldCountExecutedStatements() {
+        ReadObjectQuery query = new ReadObjectQuery();
+        query.setDescriptor(descriptor);
+
+        jpaStatistics.startOperationProfile(SessionProfiler.StatementExecute, query, SessionProfiler.ALL);
+        jpaStatistics.startOperationProfile(SessionProfiler.StatementExecute, null, SessionProfiler.ALL);
+        jpaStatistics.startOperationProfile(SessionProfiler.RowFetch, query, SessionProfiler.ALL);
+
+        assertThat(metricRegistry.counter("jpa.statements").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldTimeExecutedStatementsPerQuery() {
+        ReadAllQuery namedQuery = new ReadAllQuery();
+        namedQuery.setName("ProductEntity.findByGatewayAccountId");
+        namedQuery.setDescriptor(descriptor);
+        ReadObjectQuery unnamedQuery = new ReadObjectQuery();
+        unnamedQuery.setDescriptor(descriptor);
+
+        jpaStatistics.startOperationProfile(SessionProfiler.StatementExecute, namedQuery, SessionProfiler.ALL);
+        jpaStatistics.endOperationProfile(SessionProfiler.StatementExecute, namedQuery, SessionProfiler.ALL);
+        jpaStatistics.startOperationProfile(SessionProfiler.StatementExecute, unnamedQuery, SessionProfiler.ALL);
+        jpaStatistics.endOperationProfile(SessionProfiler.StatementExecute, unnamedQuery, SessionProfiler.ALL);
+        jpaStatistics.endOperationProfile(SessionProfiler.RowFetch, unnamedQuery, SessionProfiler.ALL);
+
+        assertThat(metricRegistry.timer("jpa.queries.ProductEntity.findByGatewayAccountId").getCount(), is(1L));
+        assertThat(metricRegistry.timer("jpa.queries.ProductEntity.ReadObjectQuery").getCount(), is(1L));
+        assertThat(metricRegistry.getTimers().size(), is(2));
+    }
+
+    @Test
+    public void shouldIgnoreEventsThatAreNotCacheLookups() {
+        ReadObjectQuery query = new ReadObjectQuery();
+        query.setDescriptor(descriptor);
+
+        jpaStatistics.occurred(SessionProfiler.RowFetch, query, null);
+        jpaStatistics.occurred(SessionProfiler.CacheHits, null, null);
+
+        assertThat(cacheCounterNames(), is(empty()));
+    }
+
+    private Set<String> cacheCounterNames() {
+        return metricRegistry.getCounters((name, metric) -> name.startsWith("jpa.cache.")).keySet();
+    }
+}
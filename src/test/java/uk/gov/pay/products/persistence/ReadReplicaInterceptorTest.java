@@ -0,0 +1,90 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadReplicaInterceptorTest {
+
+    @Mock
+    private ReadReplica readReplica;
+    @Mock
+    private EntityManager replicaEntityManager;
+    @Mock
+    private MethodInvocation invocation;
+
+    private MetricRegistry metricRegistry;
+    private ReadReplicaInterceptor interceptor;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        interceptor = new ReadReplicaInterceptor(readReplica, metricRegistry);
+    }
+
+    @Test
+    public void shouldUseReplicaEntityManagerWhileMethodRuns() throws Throwable {
+        when(readReplica.isUsable()).thenReturn(true);
+        when(readReplica.createEntityManager()).thenReturn(replicaEntityManager);
+        when(invocation.proceed()).thenAnswer(invocation -> ReadReplicaInterceptor.currentEntityManager());
+
+        assertThat(interceptor.invoke(invocation), is(Optional.of(replicaEntityManager)));
+
+        assertThat(ReadReplicaInterceptor.currentEntityManager(), is(Optional.empty()));
+        verify(replicaEntityManager).close();
+        assertThat(metricRegistry.counter(ReadReplicaInterceptor.PRIMARY_FALLBACKS_COUNTER).getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldUsePrimaryWhenReplicaIsNotUsable() throws Throwable {
+        when(readReplica.isUsable()).thenReturn(false);
+        when(invocation.proceed()).thenAnswer(invocation -> ReadReplicaInterceptor.currentEntityManager());
+
+        assertThat(interceptor.invoke(invocation), is(Optional.empty()));
+
+        verify(readReplica, never()).createEntityManager();
+        assertThat(metricRegistry.counter(ReadReplicaInterceptor.PRIMARY_FALLBACKS_COUNTER).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldReuseReplicaEntityManagerForNestedMethods() throws Throwable {
+        when(readReplica.isUsable()).thenReturn(true);
+        when(readReplica.createEntityManager()).thenReturn(replicaEntityManager);
+        MethodInvocation nestedInvocation = mock(MethodInvocation.class);
+        when(nestedInvocation.proceed()).thenAnswer(invocation -> ReadReplicaInterceptor.currentEntityManager());
+        when(invocation.proceed()).thenAnswer(invocation -> interceptor.invoke(nestedInvocation));
+
+        assertThat(interceptor.invoke(invocation), is(Optional.of(replicaEntityManager)));
+
+        verify(readReplica).createEntityManager();
+        verify(replicaEntityManager).close();
+    }
+
+    @Test
+    public void shouldCloseReplicaEntityManagerWhenMethodThrows() throws Throwable {
+        when(readReplica.isUsable()).thenReturn(true);
+        when(readReplica.createEntityManager()).thenReturn(replicaEntityManager);
+        when(invocation.proceed()).thenThrow(new IllegalStateException("query failed"));
+
+        assertThrows(IllegalStateException.class, () -> interceptor.invoke(invocation));
+
+        assertThat(ReadReplicaInterceptor.currentEntityManager(), is(Optional.empty()));
+        verify(replicaEntityManager).close();
+    }
+}
@@ -0,0 +1,145 @@
+package uk.gov.pay.products.persistence;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ReadReplicaConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadReplicaTest {
+
+    @Mock
+    private DataSource primaryDataSource;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Statement primaryStatement;
+    @Mock
+    private ManagedDataSource dataSource;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private ScheduledExecutorService lagCheckExecutor;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private MetricRegistry metricRegistry;
+    private ReadReplica readReplica;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        // Defaults to a maximum lag of 5 seconds
+        readReplica = new ReadReplica(new ReadReplicaConfiguration(), primaryDataSource, dataSource, entityManagerFactory,
+                lagCheckExecutor, metricRegistry);
+    }
+
+    @Test
+    public void shouldNotBeUsableBeforeLagIsChecked() {
+        assertThat(readReplica.isUsable(), is(false));
+        assertThat(lagGauge(), is(ReadReplica.UNKNOWN_LAG));
+    }
+
+    @Test
+    public void shouldBeUsableWhenLagIsWithinMaximum() throws Exception {
+        givenLagOf(5000L);
+
+        readReplica.checkLag();
+
+        assertThat(readReplica.isUsable(), is(true));
+        assertThat(lagGauge(), is(5000L));
+    }
+
+    @Test
+    public void shouldNotBeUsableWhenLagIsOverMaximum() throws Exception {
+        givenLagOf(5001L);
+
+        readReplica.checkLag();
+
+        assertThat(readReplica.isUsable(), is(false));
+        assertThat(lagGauge(), is(5001L));
+    }
+
+    @Test
+    public void shouldNotBeUsableWhenLagCannotBeChecked() throws Exception {
+        givenLagOf(0L);
+        readReplica.checkLag();
+        when(dataSource.getConnection()).thenThrow(new SQLException("replica unavailable"));
+
+        readReplica.checkLag();
+
+        assertThat(readReplica.isUsable(), is(false));
+        assertThat(lagGauge(), is(ReadReplica.UNKNOWN_LAG));
+    }
+
+    @Test
+    public void shouldNotBeUsableWhenReplicaHasNoActiveWalReceiver() throws Exception {
+        givenLagOf(0L);
+        when(resultSet.wasNull()).thenReturn(true);
+
+        readReplica.checkLag();
+
+        assertThat(readReplica.isUsable(), is(false));
+        assertThat(lagGauge(), is(ReadReplica.UNKNOWN_LAG));
+    }
+
+    @Test
+    public void shouldWriteHeartbeatToThePrimary_beforeCheckingLag() throws Exception {
+        givenLagOf(100L);
+
+        readReplica.checkLag();
+
+        InOrder inOrder = inOrder(primaryStatement, statement);
+        inOrder.verify(primaryStatement).executeUpdate(ReadReplica.HEARTBEAT_UPDATE);
+        inOrder.verify(statement).executeQuery(ReadReplica.LAG_QUERY);
+        verify(primaryConnection).commit();
+    }
+
+    @Test
+    public void shouldStillCheckLag_whenHeartbeatCannotBeWritten() throws Exception {
+        givenLagOf(6000L);
+        when(primaryStatement.executeUpdate(ReadReplica.HEARTBEAT_UPDATE)).thenThrow(new SQLException("primary unavailable"));
+
+        readReplica.checkLag();
+
+        assertThat(readReplica.isUsable(), is(false));
+        assertThat(lagGauge(), is(6000L));
+    }
+
+    private void givenLagOf(long lagMillis) throws SQLException {
+        when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+        when(primaryConnection.createStatement()).thenReturn(primaryStatement);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReadReplica.LAG_QUERY)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+    }
+
+    private Object lagGauge() {
+        return metricRegistry.getGauges().get(ReadReplica.LAG_GAUGE).getValue();
+    }
+}
@@ -4,12 +4,16 @@ import org.junit.Before;
 import org.junit.Test;
 import uk.gov.pay.products.fixtures.PaymentEntityFixture;
 import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.model.PaymentCursor;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
 import uk.gov.pay.products.util.PaymentStatus;
 
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
@@ -116,6 +120,24 @@ public class PaymentDaoIT extends DaoTestBase {
         assertNotNull(paymentEntity2.getDateCreated());
     }
 
+    @Test
+    public void shouldPageThroughPaymentsOfAProduct_newestFirst_withIdBreakingTies() {
+        ZonedDateTime sameTime = ZonedDateTime.now(ZoneId.of("UTC")).minusMinutes(1L);
+        PaymentEntity newest = aPaymentCreatedAt(ZonedDateTime.now(ZoneId.of("UTC")));
+        PaymentEntity firstTied = aPaymentCreatedAt(sameTime);
+        PaymentEntity secondTied = aPaymentCreatedAt(sameTime);
+
+        List<PaymentEntity> firstPage = paymentDao.findByProductExternalId(productEntity.getExternalId(), null, 2);
+        assertThat(firstPage.stream().map(PaymentEntity::getExternalId).collect(Collectors.toList()),
+                is(List.of(newest.getExternalId(), secondTied.getExternalId())));
+
+        PaymentEntity last = firstPage.get(1);
+        List<PaymentEntity> secondPage = paymentDao.findByProductExternalId(productEntity.getExternalId(),
+                new PaymentCursor(last.getDateCreated(), last.getId()), 2);
+        assertThat(secondPage.stream().map(PaymentEntity::getExternalId).collect(Collectors.toList()),
+                is(List.of(firstTied.getExternalId())));
+    }
+
     @Test
     public void shouldFindPayment_whenSearchingByGatewayAccountIdAndReferenceNumber() {
         String referenceNumber = randomUuid().substring(1,10).toUpperCase();
@@ -159,4 +181,68 @@ public class PaymentDaoIT extends DaoTestBase {
         Optional<PaymentEntity> optionalPaymentEntity = paymentDao.findByGatewayAccountIdAndReferenceNumber(gatewayAccountId2, referenceNumber);
         assertThat(optionalPaymentEntity.isPresent(), is(false));
     }
+
+    @Test
+    public void shouldClaimUnfinishedSubmittedPaymentsDueForReconciliation_onlyOnce() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        PaymentEntity neverChecked = aSubmittedPayment();
+        PaymentEntity checkedLongAgo = aSubmittedPayment();
+        checkedLongAgo.setGovukStatus("started");
+        checkedLongAgo.setGovukStatusCheckedAt(now.minusHours(1L));
+        PaymentEntity checkedRecently = aSubmittedPayment();
+        checkedRecently.setGovukStatus("started");
+        checkedRecently.setGovukStatusCheckedAt(now.minusSeconds(5L));
+        PaymentEntity finished = aSubmittedPayment();
+        finished.setGovukStatus("success");
+        finished.setGovukStatusFinished(true);
+        finished.setGovukStatusCheckedAt(now.minusHours(1L));
+        List.of(neverChecked, checkedLongAgo, checkedRecently, finished).forEach(paymentDao::persist);
+
+        List<String> claimed = claimedExternalIds(now.minusMinutes(1L), now, now.plusMinutes(1L));
+
+        assertThat(claimed.contains(neverChecked.getExternalId()), is(true));
+        assertThat(claimed.contains(checkedLongAgo.getExternalId()), is(true));
+        assertThat(claimed.contains(checkedRecently.getExternalId()), is(false));
+        assertThat(claimed.contains(finished.getExternalId()), is(false));
+        assertThat(claimedExternalIds(now.minusMinutes(1L), now, now.plusMinutes(1L)).contains(neverChecked.getExternalId()), is(false));
+    }
+
+    @Test
+    public void shouldClaimPaymentAgain_onceAClaimThatWasNeverCheckedRunsOut() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        PaymentEntity neverChecked = aSubmittedPayment();
+        paymentDao.persist(neverChecked);
+
+        assertThat(claimedExternalIds(now.minusMinutes(1L), now, now.plusMinutes(1L)).contains(neverChecked.getExternalId()), is(true));
+
+        ZonedDateTime later = now.plusMinutes(2L);
+        assertThat(claimedExternalIds(later.minusMinutes(1L), later, later.plusMinutes(1L)).contains(neverChecked.getExternalId()), is(true));
+    }
+
+    private List<String> claimedExternalIds(ZonedDateTime staleBefore, ZonedDateTime now, ZonedDateTime claimedUntil) {
+        return paymentDao.claimForGovukStatusReconciliation(staleBefore, now, claimedUntil, 10_000)
+                .stream()
+                .map(PaymentEntity::getExternalId)
+                .collect(Collectors.toList());
+    }
+
+    private PaymentEntity aSubmittedPayment() {
+        return PaymentEntityFixture.aPaymentEntity()
+                .withExternalId(randomUuid())
+                .withStatus(PaymentStatus.SUBMITTED)
+                .withProduct(productEntity)
+                .withReferenceNumber(randomUuid().substring(1, 10).toUpperCase())
+                .build();
+    }
+
+    private PaymentEntity aPaymentCreatedAt(ZonedDateTime dateCreated) {
+        PaymentEntity payment = PaymentEntityFixture.aPaymentEntity()
+                .withExternalId(randomUuid())
+                .withStatus(PaymentStatus.CREATED)
+                .withProduct(productEntity)
+                .withDateCreated(dateCreated)
+                .build();
+        databaseHelper.addPayment(payment.toPayment(), 1);
+        return payment;
+    }
 }
@@ -0,0 +1,66 @@
+package uk.gov.pay.products.persistence.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.products.fixtures.PaymentEntityFixture;
+import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+public class ProductUsageDaoIT extends DaoTestBase {
+
+    private ProductUsageDao productUsageDao;
+    private ProductEntity productEntity;
+
+    @Before
+    public void before() {
+        productUsageDao = env.getInstance(ProductUsageDao.class);
+        productEntity = env.getInstance(ProductDao.class).merge(ProductEntityFixture.aProductEntity()
+                .withExternalId(randomUuid())
+                .build());
+    }
+
+    @Test
+    public void recordPayment_shouldCountPaymentsAndKeepTheLatestDate() {
+        ZonedDateTime latest = ZonedDateTime.parse("2020-04-01T12:05:05.073Z");
+
+        productUsageDao.recordPayment(productEntity.getId(), latest);
+        productUsageDao.recordPayment(productEntity.getId(), latest.minusDays(2L));
+
+        Map<String, Object> productUsage = databaseHelper.getProductUsage(productEntity.getId());
+        assertThat(productUsage.get("payment_count"), is(2L));
+        assertThat(((Timestamp) productUsage.get("last_payment_date")).toInstant(), is(latest.toInstant()));
+    }
+
+    @Test
+    public void recount_shouldRebuildUsageFromPayments() {
+        ZonedDateTime latest = ZonedDateTime.parse("2020-04-01T12:05:05.073Z");
+        addPayment(latest.minusDays(1L));
+        addPayment(latest);
+        databaseHelper.clearProductUsage(productEntity.getId());
+
+        productUsageDao.recount(productEntity.getId());
+        productUsageDao.recount(productEntity.getId());
+
+        Map<String, Object> productUsage = databaseHelper.getProductUsage(productEntity.getId());
+        assertThat(productUsage.get("payment_count"), is(2L));
+        assertThat(((Timestamp) productUsage.get("last_payment_date")).toInstant(), is(latest.toInstant()));
+    }
+
+    private void addPayment(ZonedDateTime dateCreated) {
+        PaymentEntity payment = PaymentEntityFixture.aPaymentEntity()
+                .withExternalId(randomUuid())
+                .withProduct(productEntity)
+                .withDateCreated(dateCreated)
+                .build();
+        databaseHelper.addPayment(payment.toPayment(), 1);
+    }
+}
@@ -0,0 +1,293 @@
+package uk.gov.pay.products.persistence.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.persist.jpa.JpaPersistModule;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import uk.gov.pay.commons.testing.db.PostgresDockerRule;
+import uk.gov.pay.products.infra.GuicedTestEnvironment;
+import uk.gov.pay.products.infra.StatementRecorder;
+import uk.gov.pay.products.model.PaymentCursor;
+import uk.gov.pay.products.util.ProductType;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Seeds the database with a realistic number of rows, runs each DAO method and EXPLAINs every statement it sent,
+ * failing when Postgres would read a whole large table to answer it.
+ * <p>
+ * Methods that read every product on purpose, {@link ProductDao#findAllProductPaths()},
+ * {@link ProductUsageDao#findAllProductIds()} and {@link ProductDao#findProductsAndUsage} for all gateway accounts,
+ * are not checked.
+ */
+public class QueryPlanIT {
+
+    private static final Set<String> LARGE_TABLES = Set.of("products", "products_metadata", "payments", "product_usage");
+    private static final int PRODUCTS = 20_000;
+    private static final int GATEWAY_ACCOUNTS = 2_000;
+    private static final int PAYMENTS = 200_000;
+
+    @ClassRule
+    public static final PostgresDockerRule postgres = new PostgresDockerRule();
+
+    private static final StatementRecorder statementRecorder = new StatementRecorder();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static GuicedTestEnvironment env;
+
+    private static int productId;
+    private static String productExternalId;
+    private static int gatewayAccountId;
+    private static String serviceNamePath;
+    private static String productNamePath;
+    private static String paymentExternalId;
+    private static int paymentGatewayAccountId;
+    private static String paymentReferenceNumber;
+
+    private ProductDao productDao;
+    private ProductMetadataDao productMetadataDao;
+    private ProductUsageDao productUsageDao;
+    private PaymentDao paymentDao;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        try (Connection connection = connection()) {
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update("");
+            seed(connection);
+            try (Statement statement = connection.createStatement();
+                 ResultSet product = statement.executeQuery("SELECT id, external_id, gateway_account_id, " +
+                         "service_name_path, product_name_path FROM products WHERE id = (SELECT max(id) FROM products)")) {
+                product.next();
+                productId = product.getInt(1);
+                productExternalId = product.getString(2);
+                gatewayAccountId = product.getInt(3);
+                serviceNamePath = product.getString(4);
+                productNamePath = product.getString(5);
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet payment = statement.executeQuery("SELECT external_id, gateway_account_id, reference_number " +
+                         "FROM payments WHERE id = (SELECT max(id) FROM payments)")) {
+                payment.next();
+                paymentExternalId = payment.getString(1);
+                paymentGatewayAccountId = payment.getInt(2);
+                paymentReferenceNumber = payment.getString(3);
+            }
+        }
+
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setURL(postgres.getConnectionUrl());
+        dataSource.setUser(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+
+        final Properties properties = new Properties();
+        properties.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, statementRecorder.wrap(dataSource));
+        JpaPersistModule jpaModule = new JpaPersistModule("ProductsUnit");
+        jpaModule.properties(properties);
+        env = GuicedTestEnvironment.from(jpaModule).start();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        env.stop();
+        try (Connection connection = connection()) {
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).dropAll();
+        }
+    }
+
+    @Before
+    public void before() {
+        productDao = env.getInstance(ProductDao.class);
+        productMetadataDao = env.getInstance(ProductMetadataDao.class);
+        productUsageDao = env.getInstance(ProductUsageDao.class);
+        paymentDao = env.getInstance(PaymentDao.class);
+        statementRecorder.clear();
+    }
+
+    @Test
+    public void productDao_findByExternalId() throws Exception {
+        productDao.findByExternalId(productExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findById() throws Exception {
+        productDao.findById(productId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findByGatewayAccountIdAndExternalId() throws Exception {
+        productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, productExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findByGatewayAccountId() throws Exception {
+        productDao.findByGatewayAccountId(gatewayAccountId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findByGatewayAccountIdAndType() throws Exception {
+        productDao.findByGatewayAccountIdAndType(gatewayAccountId, ProductType.ADHOC);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findByProductPath() throws Exception {
+        productDao.findByProductPath(serviceNamePath, productNamePath);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productDao_findProductsAndUsageByGatewayAccountId() throws Exception {
+        productDao.findProductsAndUsage(gatewayAccountId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productMetadataDao_findByProductsExternalId() throws Exception {
+        productMetadataDao.findByProductsExternalId(productExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productMetadataDao_findByProductsExternalIdAndKey() throws Exception {
+        productMetadataDao.findByProductsExternalIdAndKey(productExternalId, "cost-centre");
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productMetadataDao_deleteForProductExternalId() throws Exception {
+        productMetadataDao.deleteForProductExternalId(productExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productUsageDao_recordPayment() throws Exception {
+        productUsageDao.recordPayment(productId, ZonedDateTime.now());
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void productUsageDao_recount() throws Exception {
+        productUsageDao.recount(productId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_findByExternalId() throws Exception {
+        paymentDao.findByExternalId(paymentExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_findByProductExternalId() throws Exception {
+        paymentDao.findByProductExternalId(productExternalId);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_findFirstPageByProductExternalId() throws Exception {
+        paymentDao.findByProductExternalId(productExternalId, null, 20);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_findPageByProductExternalId() throws Exception {
+        paymentDao.findByProductExternalId(productExternalId, new PaymentCursor(ZonedDateTime.now(), Integer.MAX_VALUE), 20);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_findByGatewayAccountIdAndReferenceNumber() throws Exception {
+        paymentDao.findByGatewayAccountIdAndReferenceNumber(paymentGatewayAccountId, paymentReferenceNumber);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    @Test
+    public void paymentDao_claimForGovukStatusReconciliation() throws Exception {
+        paymentDao.claimForGovukStatusReconciliation(ZonedDateTime.now().minusMinutes(1), ZonedDateTime.now(),
+                ZonedDateTime.now().plusMinutes(1), 100);
+        assertNoSequentialScansOfLargeTables();
+    }
+
+    private void assertNoSequentialScansOfLargeTables() throws Exception {
+        List<String> statements = statementRecorder.getStatements();
+        assertThat("No statements were sent to the database", statements, is(not(empty())));
+        try (Connection connection = connection()) {
+            for (String sql : statements) {
+                List<String> sequentialScans = new ArrayList<>();
+                JsonNode plan = explain(connection, sql);
+                findSequentialScansOfLargeTables(plan.get(0).get("Plan"), sequentialScans);
+                assertThat(format("Sequential scans of %s for %s%nPlan: %s", sequentialScans, sql, plan),
+                        sequentialScans, is(empty()));
+            }
+        }
+    }
+
+    private static JsonNode explain(Connection connection, String sql) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet plan = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            plan.next();
+            return objectMapper.readTree(plan.getString(1));
+        }
+    }
+
+    private static void findSequentialScansOfLargeTables(JsonNode plan, List<String> sequentialScans) {
+        if ("Seq Scan".equals(plan.path("Node Type").asText()) && LARGE_TABLES.contains(plan.path("Relation Name").asText())) {
+            sequentialScans.add(plan.path("Relation Name").asText());
+        }
+        plan.path("Plans").forEach(child -> findSequentialScansOfLargeTables(child, sequentialScans));
+    }
+
+    // Every product has two metadata entries and its share of the payments, and one in twenty payments is waiting
+    // for its GOV.UK Pay status to be reconciled
+    private static void seed(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(format("INSERT INTO products (name, pay_api_token, price, status, type, gateway_account_id, " +
+                    "service_name_path, product_name_path, language) " +
+                    "SELECT 'product ' || n, 'api-token', 1000, CASE WHEN n %% 10 = 0 THEN 'INACTIVE' ELSE 'ACTIVE' END, " +
+                    "(ARRAY['DEMO', 'PROTOTYPE', 'ADHOC'])[n %% 3 + 1], n %% %d, 'service-' || n %% %d, 'product-' || n, 'en' " +
+                    "FROM generate_series(1, %d) n", GATEWAY_ACCOUNTS, GATEWAY_ACCOUNTS, PRODUCTS));
+            statement.execute("INSERT INTO products_metadata (product_id, metadata_key, metadata_value) " +
+                    "SELECT products.id, metadata_key, 'value' FROM products, unnest(ARRAY['fund-code', 'cost-centre']) metadata_key");
+            statement.execute(format("INSERT INTO payments (product_id, status, amount, gateway_account_id, reference_number, " +
+                    "date_created, govuk_status_finished) " +
+                    "SELECT products.id, CASE WHEN n %% 20 = 0 THEN 'SUBMITTED' ELSE 'CREATED' END, 1000, " +
+                    "products.gateway_account_id, upper(substr(md5(n::text), 1, 10)), now() - n * interval '1 minute', false " +
+                    "FROM generate_series(1, %d) n " +
+                    "JOIN products ON products.id = (SELECT min(id) FROM products) + n %% %d", PAYMENTS, PRODUCTS));
+            statement.execute("INSERT INTO product_usage (product_id, payment_count, last_payment_date) " +
+                    "SELECT product_id, count(1), max(date_created) FROM payments GROUP BY product_id");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    private static Connection connection() throws SQLException {
+        return DriverManager.getConnection(postgres.getConnectionUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
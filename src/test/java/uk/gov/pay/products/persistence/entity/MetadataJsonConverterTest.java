@@ -0,0 +1,52 @@
+package uk.gov.pay.products.persistence.entity;
+
+import org.junit.Test;
+import org.postgresql.util.PGobject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class MetadataJsonConverterTest {
+
+    private final MetadataJsonConverter converter = new MetadataJsonConverter();
+
+    @Test
+    public void shouldConvertMetadataToJsonb() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("key1", "value1");
+        metadata.put("key2", "value2");
+
+        PGobject json = converter.convertToDatabaseColumn(metadata);
+
+        assertThat(json.getType(), is("jsonb"));
+        assertThat(json.getValue(), is("{\"key1\":\"value1\",\"key2\":\"value2\"}"));
+    }
+
+    @Test
+    public void shouldStoreNoMetadataAsNull() {
+        assertThat(converter.convertToDatabaseColumn(null), is(nullValue()));
+        assertThat(converter.convertToDatabaseColumn(Map.of()), is(nullValue()));
+    }
+
+    @Test
+    public void shouldReadMetadataFromJsonbInColumnOrder() throws Exception {
+        PGobject json = new PGobject();
+        json.setType("jsonb");
+        json.setValue("{\"key2\": \"value2\", \"key1\": \"value1\"}");
+
+        Map<String, String> metadata = converter.convertToEntityAttribute(json);
+
+        assertThat(metadata.keySet(), contains("key2", "key1"));
+        assertThat(metadata.get("key1"), is("value1"));
+    }
+
+    @Test
+    public void shouldReadNullColumnAsNoMetadata() {
+        assertThat(converter.convertToEntityAttribute(null), is(nullValue()));
+    }
+}
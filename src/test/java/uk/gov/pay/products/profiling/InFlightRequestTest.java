@@ -0,0 +1,84 @@
+package uk.gov.pay.products.profiling;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class InFlightRequestTest {
+
+    private final InFlightRequest request = new InFlightRequest("GET /", Map.of(), 0L);
+
+    @Test
+    public void shouldBeWorkedOnByTheThreadItIsCalledWith_onlyWhileCalled() throws Exception {
+        List<Thread> workers = CompletableFuture.supplyAsync(() -> InFlightRequest.callWith(request, () -> {
+            assertThat(InFlightRequest.current(), is(Optional.of(request)));
+            return request.getWorkers();
+        })).get();
+
+        assertThat(workers.size(), is(1));
+        assertThat(request.getWorkers(), is(empty()));
+    }
+
+    @Test
+    public void shouldStayAttached_whenCalledWithOnTheThreadAlreadyWorkingOnIt() {
+        request.attach();
+        try {
+            InFlightRequest.callWith(request, () -> null);
+
+            assertThat(request.getWorkers(), contains(Thread.currentThread()));
+            assertThat(InFlightRequest.current(), is(Optional.of(request)));
+        } finally {
+            request.detach();
+        }
+        assertThat(InFlightRequest.current(), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldBeWorkedOnByEveryThreadCalledWithIt_untilEachOneFinishes() throws Exception {
+        CountDownLatch bothAttached = new CountDownLatch(2);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Thread> first = executor.submit(() -> InFlightRequest.callWith(request, () -> awaitOthers(bothAttached, releaseFirst)));
+            Future<Thread> second = executor.submit(() -> InFlightRequest.callWith(request, () -> awaitOthers(bothAttached, releaseSecond)));
+            assertThat(bothAttached.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(request.getWorkers().size(), is(2));
+
+            releaseFirst.countDown();
+            Thread firstWorker = first.get(5, TimeUnit.SECONDS);
+            List<Thread> stillWorking = request.getWorkers();
+
+            releaseSecond.countDown();
+            Thread secondWorker = second.get(5, TimeUnit.SECONDS);
+            assertThat(stillWorking, contains(secondWorker));
+            assertThat(firstWorker == secondWorker, is(false));
+            assertThat(request.getWorkers(), is(empty()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Thread awaitOthers(CountDownLatch bothAttached, CountDownLatch release) {
+        bothAttached.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Thread.currentThread();
+    }
+}
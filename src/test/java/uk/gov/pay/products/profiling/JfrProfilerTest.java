@@ -0,0 +1,60 @@
+package uk.gov.pay.products.profiling;
+
+import io.dropwizard.util.DataSize;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ProfilingConfiguration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JfrProfilerTest {
+
+    @Mock
+    private ProfilingConfiguration profilingConfiguration;
+
+    private JfrProfiler profiler;
+
+    @Before
+    public void setup() {
+        when(profilingConfiguration.getMaxDuration()).thenReturn(io.dropwizard.util.Duration.seconds(5));
+        when(profilingConfiguration.getMaxSize()).thenReturn(DataSize.mebibytes(10));
+        profiler = new JfrProfiler(profilingConfiguration);
+    }
+
+    @Test
+    public void shouldWriteARecordingToAFile() throws Exception {
+        Path recording = profiler.record(Duration.ofMillis(200), "default");
+        try {
+            assertThat(Files.size(recording), is(greaterThan(0L)));
+        } finally {
+            Files.delete(recording);
+        }
+    }
+
+    @Test
+    public void shouldRejectSettingsThatAreNotTheJdksOwn() {
+        assertThrows(IllegalArgumentException.class, () -> profiler.record(Duration.ofSeconds(1), "/tmp/custom.jfc"));
+    }
+
+    @Test
+    public void shouldRejectDurationsOverTheMaximum() {
+        assertThrows(IllegalArgumentException.class, () -> profiler.record(Duration.ofSeconds(6), "default"));
+    }
+
+    @Test
+    public void shouldRejectDurationsThatAreNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> profiler.record(Duration.ZERO, "default"));
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.pay.products.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+public class JfrSummaryTest {
+
+    private Path recording;
+
+    @Before
+    public void setup() throws Exception {
+        recording = Files.createTempFile("summary-test-", ".jfr");
+        try (Recording jfrRecording = new Recording(Configuration.getConfiguration("profile"))) {
+            jfrRecording.start();
+            busyFor(500);
+            jfrRecording.stop();
+            jfrRecording.dump(recording);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(recording);
+    }
+
+    @Test
+    public void shouldSummariseStacksThroughTheGivenClasses() throws Exception {
+        StringWriter summary = new StringWriter();
+
+        JfrSummary.write(recording, JfrSummaryTest.class.getName(), new PrintWriter(summary));
+
+        assertThat(summary.toString(), containsString("execution samples passed through " + JfrSummaryTest.class.getName()));
+        assertThat(summary.toString(), containsString("Hottest stacks:"));
+        assertThat(summary.toString(), containsString("at " + JfrSummaryTest.class.getName() + ".busyFor"));
+        assertThat(summary.toString(), containsString("Top allocation sites:"));
+    }
+
+    @Test
+    public void shouldLeaveOutStacksNotThroughTheGivenClasses() throws Exception {
+        StringWriter summary = new StringWriter();
+
+        JfrSummary.write(recording, "uk.gov.pay.products.nothing.", new PrintWriter(summary));
+
+        assertThat(summary.toString(), containsString("0 of "));
+    }
+
+    private static long busyFor(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        long total = 0;
+        while (System.currentTimeMillis() < deadline) {
+            List<String> strings = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                strings.add(Integer.toString(i));
+            }
+            total += strings.size();
+        }
+        return total;
+    }
+}
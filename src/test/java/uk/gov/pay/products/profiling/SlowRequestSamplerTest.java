@@ -0,0 +1,153 @@
+package uk.gov.pay.products.profiling;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.products.config.SlowRequestConfiguration;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SlowRequestSamplerTest {
+
+    private static final Map<String, String> LOGGING_CONTEXT = Map.of("product_external_id", "a-product");
+
+    @Mock
+    private SlowRequestConfiguration slowRequestConfiguration;
+
+    @Mock
+    private Appender<ILoggingEvent> mockAppender;
+
+    @Captor
+    private ArgumentCaptor<ILoggingEvent> loggingEventArgumentCaptor;
+
+    private long tick;
+    private MetricRegistry metricRegistry;
+    private SlowRequestSampler sampler;
+    private Logger logger;
+
+    @Before
+    public void setup() {
+        when(slowRequestConfiguration.getThreshold()).thenReturn(Duration.seconds(2));
+        when(slowRequestConfiguration.getSamples()).thenReturn(2);
+        when(slowRequestConfiguration.getMaxReportsPerMinute()).thenReturn(1);
+        logger = (Logger) LoggerFactory.getLogger(SlowRequestSampler.class);
+        logger.addAppender(mockAppender);
+
+        metricRegistry = new MetricRegistry();
+        sampler = new SlowRequestSampler(slowRequestConfiguration, metricRegistry, new Clock() {
+            @Override
+            public long getTick() {
+                return tick;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(mockAppender);
+    }
+
+    @Test
+    public void shouldLogStackSamplesOfTheWorkingThreadWithTheRequestLoggingContext() {
+        // Logback only copies the MDC into an event when an appender asks for it, as asynchronous appenders do
+        doAnswer(invocation -> {
+            invocation.<ILoggingEvent>getArgument(0).prepareForDeferredProcessing();
+            return null;
+        }).when(mockAppender).doAppend(any());
+        InFlightRequest request = sampler.started("POST /v1/api/products/a-product/payments", LOGGING_CONTEXT);
+        request.attach();
+        try {
+            sampler.check();
+            advance(2000);
+            sampler.check();
+            verify(mockAppender, never()).doAppend(loggingEventArgumentCaptor.capture());
+            advance(250);
+            sampler.check();
+        } finally {
+            request.detach();
+        }
+
+        verify(mockAppender).doAppend(loggingEventArgumentCaptor.capture());
+        ILoggingEvent loggingEvent = loggingEventArgumentCaptor.getValue();
+        assertThat(loggingEvent.getFormattedMessage(),
+                containsString("Slow request POST /v1/api/products/a-product/payments had been running for 2250 ms"));
+        assertThat(loggingEvent.getFormattedMessage(), containsString("At 2000 ms on thread " + Thread.currentThread().getName()));
+        assertThat(loggingEvent.getFormattedMessage(), containsString("SlowRequestSamplerTest"));
+        assertThat(loggingEvent.getMDCPropertyMap(), hasEntry("product_external_id", "a-product"));
+        assertThat(metricRegistry.counter("slow-requests.reported").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldReportSamplesTakenSoFar_whenRequestFinishesWhileBeingSampled() {
+        InFlightRequest request = sampler.started("GET /v1/api/products/a-product", LOGGING_CONTEXT);
+        advance(2000);
+        sampler.check();
+
+        sampler.finished(request);
+
+        verify(mockAppender).doAppend(loggingEventArgumentCaptor.capture());
+        assertThat(loggingEventArgumentCaptor.getValue().getFormattedMessage(),
+                containsString("At 2000 ms not running on any thread"));
+    }
+
+    @Test
+    public void shouldOnlySampleAsManyRequestsAsAllowedEachMinute() {
+        sampler.started("GET /first", LOGGING_CONTEXT);
+        sampler.started("GET /second", LOGGING_CONTEXT);
+        advance(2000);
+        sampler.check();
+        sampler.check();
+
+        verify(mockAppender, times(1)).doAppend(loggingEventArgumentCaptor.capture());
+        assertThat(metricRegistry.counter("slow-requests.reported").getCount(), is(1L));
+        assertThat(metricRegistry.counter("slow-requests.suppressed").getCount(), is(1L));
+
+        sampler.started("GET /third", LOGGING_CONTEXT);
+        advance(60_000);
+        sampler.check();
+        sampler.check();
+
+        verify(mockAppender, times(2)).doAppend(loggingEventArgumentCaptor.capture());
+    }
+
+    @Test
+    public void shouldNotSampleRequestsThatFinishUnderTheThreshold() {
+        InFlightRequest request = sampler.started("GET /v1/api/products/a-product", LOGGING_CONTEXT);
+        advance(1000);
+        sampler.check();
+        sampler.finished(request);
+        advance(2000);
+        sampler.check();
+
+        verify(mockAppender, never()).doAppend(loggingEventArgumentCaptor.capture());
+    }
+
+    private void advance(long millis) {
+        tick += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
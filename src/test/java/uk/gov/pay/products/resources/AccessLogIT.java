@@ -0,0 +1,83 @@
+package uk.gov.pay.products.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.dropwizard.logging.FileAppenderFactory;
+import io.dropwizard.request.logging.LogbackAccessRequestLogFactory;
+import io.dropwizard.server.DefaultServerFactory;
+import org.junit.Test;
+import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.model.Product;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomInt;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+/**
+ * Checks that the access log line of a request carries the SQL statements, rows and database time it used.
+ */
+public class AccessLogIT extends IntegrationTest {
+
+    private static final long ACCESS_LOG_WAIT_MILLIS = 5000L;
+
+    @Test
+    public void accessLogLine_shouldIncludeDatabaseUsageOfTheRequest() throws Exception {
+        String externalId = randomUuid();
+        Product product = ProductEntityFixture.aProductEntity()
+                .withExternalId(externalId)
+                .withGatewayAccountId(randomInt())
+                .build()
+                .toProduct();
+        databaseHelper.addProduct(product);
+
+        givenSetup()
+                .when()
+                .accept(APPLICATION_JSON)
+                .get(format("/v1/api/products/%s", externalId))
+                .then()
+                .statusCode(200);
+
+        // The access log is written once the response has been sent, through an asynchronous appender
+        long deadline = System.currentTimeMillis() + ACCESS_LOG_WAIT_MILLIS;
+        Optional<JsonNode> accessLogLine = findAccessLogLine(externalId);
+        while (accessLogLine.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+            accessLogLine = findAccessLogLine(externalId);
+        }
+
+        assertThat(accessLogLine.isPresent(), is(true));
+        JsonNode requestAttributes = accessLogLine.get().get("requestAttributes");
+        assertThat(Long.parseLong(requestAttributes.get("db_statements").asText()), is(greaterThan(0L)));
+        assertThat(Long.parseLong(requestAttributes.get("db_rows").asText()), is(greaterThan(0L)));
+        assertThat(Long.parseLong(requestAttributes.get("db_time_ms").asText()), is(greaterThanOrEqualTo(0L)));
+    }
+
+    private Optional<JsonNode> findAccessLogLine(String externalId) throws Exception {
+        Path accessLog = accessLogFile();
+        if (!Files.exists(accessLog)) {
+            return Optional.empty();
+        }
+        for (String line : Files.readAllLines(accessLog)) {
+            if (line.contains(externalId)) {
+                return Optional.of(mapper.readTree(line));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Path accessLogFile() {
+        LogbackAccessRequestLogFactory requestLogFactory = (LogbackAccessRequestLogFactory)
+                ((DefaultServerFactory) app.getConfiguration().getServerFactory()).getRequestLogFactory();
+        FileAppenderFactory<?> fileAppender = (FileAppenderFactory<?>) requestLogFactory.getAppenders().get(0);
+        return Paths.get(fileAppender.getCurrentLogFilename());
+    }
+}
@@ -11,6 +11,8 @@ import uk.gov.pay.products.persistence.entity.PaymentEntity;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
 
 import javax.ws.rs.HttpMethod;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +21,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.text.MatchesPattern.matchesPattern;
 import static org.junit.Assert.assertThat;
@@ -435,6 +438,70 @@ public class PaymentResourceIT extends IntegrationTest {
                 .body("[1]._links[1].rel", is("next"));
     }
 
+    @Test
+    public void findPaymentsOfAProduct_shouldReturnPagesNewestFirst() {
+        String productExternalId = randomUuid();
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity()
+                .withGatewayAccountId(gatewayAccountId)
+                .withExternalId(productExternalId)
+                .build();
+        databaseHelper.addProduct(productEntity.toProduct());
+        productEntity.setId(databaseHelper.findProductId(productExternalId));
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        PaymentEntity oldest = aPaymentEntity().withExternalId(randomUuid()).withProduct(productEntity)
+                .withReferenceNumber(randomUuid().substring(0, 9)).withDateCreated(now.minusMinutes(2L)).build();
+        PaymentEntity middle = aPaymentEntity().withExternalId(randomUuid()).withProduct(productEntity)
+                .withReferenceNumber(randomUuid().substring(0, 9)).withDateCreated(now.minusMinutes(1L)).build();
+        PaymentEntity newest = aPaymentEntity().withExternalId(randomUuid()).withProduct(productEntity)
+                .withReferenceNumber(randomUuid().substring(0, 9)).withDateCreated(now).build();
+        databaseHelper.addPayment(oldest.toPayment(), gatewayAccountId);
+        databaseHelper.addPayment(middle.toPayment(), gatewayAccountId);
+        databaseHelper.addPayment(newest.toPayment(), gatewayAccountId);
+
+        String nextPage = givenSetup()
+                .when()
+                .accept(APPLICATION_JSON)
+                .get(format("v1/api/products/%s/payments?page_size=2", productExternalId))
+                .then()
+                .statusCode(200)
+                .body("results", hasSize(2))
+                .body("results[0].external_id", is(newest.getExternalId()))
+                .body("results[1].external_id", is(middle.getExternalId()))
+                .body("_links", hasSize(1))
+                .body("_links[0].rel", is("next_page"))
+                .body("_links[0].method", is(HttpMethod.GET))
+                .body("_links[0].href", startsWith(format("https://products.url/v1/api/products/%s/payments?page_size=2&cursor=", productExternalId)))
+                .extract().path("_links[0].href");
+
+        givenSetup()
+                .when()
+                .accept(APPLICATION_JSON)
+                .get(nextPage.substring("https://products.url/".length()))
+                .then()
+                .statusCode(200)
+                .body("results", hasSize(1))
+                .body("results[0].external_id", is(oldest.getExternalId()))
+                .body("_links", hasSize(0));
+    }
+
+    @Test
+    public void findPaymentsOfAProduct_shouldFail_whenPageSizeOrCursorIsInvalid() {
+        givenSetup()
+                .accept(APPLICATION_JSON)
+                .get(format("/v1/api/products/%s/payments?page_size=501", randomUuid()))
+                .then()
+                .statusCode(400)
+                .body("errors[0]", is("Field [ page_size ] must be between 1 and 500"));
+
+        givenSetup()
+                .accept(APPLICATION_JSON)
+                .get(format("/v1/api/products/%s/payments?cursor=not-a-cursor", randomUuid()))
+                .then()
+                .statusCode(400)
+                .body("errors[0]", is("Field [ cursor ] is not valid"));
+    }
+
     @Test
     public void findAllPaymentsOfAProduct_shouldFail_whenProductIsNotFound() {
         givenSetup()
@@ -0,0 +1,53 @@
+package uk.gov.pay.products.resources;
+
+import org.junit.Test;
+import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.model.Product;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomInt;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+public class ProductCacheInvalidationIT extends IntegrationTest {
+
+    private static final long NOTIFICATION_WAIT_MILLIS = 5000L;
+
+    @Test
+    public void shouldServeUpdatedProduct_onceAnotherNodeNotifiesOfTheChange() throws Exception {
+        String externalId = randomUuid();
+        Product product = ProductEntityFixture.aProductEntity()
+                .withExternalId(externalId)
+                .withGatewayAccountId(randomInt())
+                .withName("Original name")
+                .build()
+                .toProduct();
+        databaseHelper.addProduct(product);
+
+        assertThat(findProductName(externalId), is("Original name"));
+
+        databaseHelper.updateProductName(externalId, "Updated name");
+        assertThat(findProductName(externalId), is("Original name"));
+
+        databaseHelper.notifyProductCacheInvalidation(externalId);
+        long deadline = System.currentTimeMillis() + NOTIFICATION_WAIT_MILLIS;
+        while (!findProductName(externalId).equals("Updated name") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+        }
+
+        assertThat(findProductName(externalId), is("Updated name"));
+    }
+
+    private String findProductName(String externalId) {
+        return givenSetup()
+                .when()
+                .accept(APPLICATION_JSON)
+                .get(format("/v1/api/products/%s", externalId))
+                .then()
+                .statusCode(200)
+                .extract()
+                .path("name");
+    }
+}
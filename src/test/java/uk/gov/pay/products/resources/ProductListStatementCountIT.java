@@ -0,0 +1,101 @@
+package uk.gov.pay.products.resources;
+
+import org.junit.Test;
+import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.util.ProductType;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.products.fixtures.PaymentEntityFixture.aPaymentEntity;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomInt;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+/**
+ * Checks that listing products issues the same number of SQL statements whatever the number of products listed,
+ * as counted by the {@code jpa.statements} counter.
+ */
+public class ProductListStatementCountIT extends IntegrationTest {
+
+    @Test
+    public void findProductsByGatewayAccountId_shouldIssueConstantNumberOfStatements() {
+        int oneProductAccount = gatewayAccountWithProducts(1, ProductType.DEMO);
+        int manyProductsAccount = gatewayAccountWithProducts(20, ProductType.DEMO);
+
+        long oneProductStatements = statementsFor(format("/v1/api/gateway-account/%s/products", oneProductAccount), 1);
+        long manyProductsStatements = statementsFor(format("/v1/api/gateway-account/%s/products", manyProductsAccount), 20);
+
+        assertThat(manyProductsStatements, is(oneProductStatements));
+    }
+
+    @Test
+    public void findProductsByGatewayAccountIdAndType_shouldIssueConstantNumberOfStatements() {
+        int oneProductAccount = gatewayAccountWithProducts(1, ProductType.DEMO);
+        int manyProductsAccount = gatewayAccountWithProducts(20, ProductType.DEMO);
+
+        long oneProductStatements = statementsFor(format("/v1/api/gateway-account/%s/products?type=DEMO", oneProductAccount), 1);
+        long manyProductsStatements = statementsFor(format("/v1/api/gateway-account/%s/products?type=DEMO", manyProductsAccount), 20);
+
+        assertThat(manyProductsStatements, is(oneProductStatements));
+    }
+
+    @Test
+    public void findProductsAndUsage_shouldIssueConstantNumberOfStatements() {
+        int oneProductAccount = gatewayAccountWithProducts(1, ProductType.ADHOC);
+        int manyProductsAccount = gatewayAccountWithProducts(20, ProductType.ADHOC);
+
+        long oneProductStatements = statementsFor(format("/v1/api/stats/products?gatewayAccountId=%s", oneProductAccount), 1);
+        long manyProductsStatements = statementsFor(format("/v1/api/stats/products?gatewayAccountId=%s", manyProductsAccount), 20);
+
+        assertThat(manyProductsStatements, is(oneProductStatements));
+    }
+
+    private int gatewayAccountWithProducts(int numberOfProducts, ProductType type) {
+        int gatewayAccountId = randomInt();
+        for (int i = 0; i < numberOfProducts; i++) {
+            String externalId = randomUuid();
+            ProductEntity productEntity = ProductEntityFixture.aProductEntity()
+                    .withGatewayAccountId(gatewayAccountId)
+                    .withExternalId(externalId)
+                    .withType(type)
+                    .build();
+            databaseHelper.addProduct(productEntity.toProduct());
+            databaseHelper.addMetadata(externalId, "key1", "value1");
+            databaseHelper.addMetadata(externalId, "key2", "value2");
+            productEntity.setId(databaseHelper.findProductId(externalId));
+
+            String paymentExternalId = randomUuid();
+            PaymentEntity payment = aPaymentEntity()
+                    .withExternalId(paymentExternalId)
+                    .withProduct(productEntity)
+                    .withReferenceNumber(paymentExternalId.substring(0, 9))
+                    .build();
+            databaseHelper.addPayment(payment.toPayment(), gatewayAccountId);
+        }
+        return gatewayAccountId;
+    }
+
+    // Background jobs share the counter and can only add to it, so the fewest statements seen over a few requests
+    // is the number the request itself issued
+    private long statementsFor(String path, int expectedProducts) {
+        long fewestStatements = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long before = app.getMetricRegistry().counter("jpa.statements").getCount();
+
+            givenSetup()
+                    .when()
+                    .accept(APPLICATION_JSON)
+                    .get(path)
+                    .then()
+                    .statusCode(200)
+                    .body("", hasSize(expectedProducts));
+
+            fewestStatements = Math.min(fewestStatements, app.getMetricRegistry().counter("jpa.statements").getCount() - before);
+        }
+        return fewestStatements;
+    }
+}
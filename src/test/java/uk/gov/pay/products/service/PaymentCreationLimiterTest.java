@@ -0,0 +1,47 @@
+package uk.gov.pay.products.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.pay.products.config.PaymentCreationConfiguration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class PaymentCreationLimiterTest {
+
+    private MetricRegistry metricRegistry;
+    private PaymentCreationLimiter paymentCreationLimiter;
+    private int maxConcurrentCreations;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        PaymentCreationConfiguration configuration = new PaymentCreationConfiguration();
+        maxConcurrentCreations = configuration.getMaxConcurrentCreations();
+        paymentCreationLimiter = new PaymentCreationLimiter(configuration, metricRegistry);
+    }
+
+    @Test
+    public void shouldRejectCreations_onceAllPermitsAreInFlight() {
+        for (int i = 0; i < maxConcurrentCreations; i++) {
+            assertThat(paymentCreationLimiter.tryAcquire(), is(true));
+        }
+
+        assertThat(paymentCreationLimiter.tryAcquire(), is(false));
+        assertThat(metricRegistry.meter("payment-creation.rejected").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get("payment-creation.in-flight").getValue(), is(maxConcurrentCreations));
+    }
+
+    @Test
+    public void shouldAcceptCreationsAgain_oncePermitsAreReleased() {
+        for (int i = 0; i < maxConcurrentCreations; i++) {
+            paymentCreationLimiter.tryAcquire();
+        }
+
+        paymentCreationLimiter.release();
+
+        assertThat(paymentCreationLimiter.tryAcquire(), is(true));
+        assertThat(metricRegistry.meter("payment-creation.rejected").getCount(), is(0L));
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.products.service;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -17,9 +18,12 @@ import uk.gov.pay.products.client.publicapi.PaymentResponse;
 import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
 import uk.gov.pay.products.client.publicapi.model.Link;
 import uk.gov.pay.products.client.publicapi.model.Links;
+import uk.gov.pay.products.config.PaymentCreationConfiguration;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
 import uk.gov.pay.products.config.ProductsConfiguration;
 import uk.gov.pay.products.exception.BadPaymentRequestException;
 import uk.gov.pay.products.exception.PaymentCreationException;
+import uk.gov.pay.products.exception.PaymentCreationRejectedException;
 import uk.gov.pay.products.exception.PaymentCreatorNotFoundException;
 import uk.gov.pay.products.exception.PublicApiResponseErrorException;
 import uk.gov.pay.products.matchers.PaymentEntityMatcher;
@@ -27,31 +31,42 @@ import uk.gov.pay.products.matchers.PaymentRequestMatcher;
 import uk.gov.pay.products.model.Payment;
 import uk.gov.pay.products.persistence.dao.PaymentDao;
 import uk.gov.pay.products.persistence.dao.ProductDao;
+import uk.gov.pay.products.persistence.dao.ProductUsageDao;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.ProductCache;
+import uk.gov.pay.products.service.cache.ProductCacheInvalidationPublisher;
 import uk.gov.pay.products.service.transaction.TransactionFlow;
 import uk.gov.pay.products.util.PaymentStatus;
 import uk.gov.pay.products.util.ProductType;
 import uk.gov.pay.products.util.RandomIdGenerator;
 
+import java.time.ZonedDateTime;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static java.lang.String.format;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
-import static org.mockito.Mockito.times;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 import static uk.gov.pay.commons.model.Source.CARD_AGENT_INITIATED_MOTO;
 import static uk.gov.pay.commons.model.Source.CARD_PAYMENT_LINK;
 import static uk.gov.pay.products.util.PaymentStatus.ERROR;
 import static uk.gov.pay.products.util.PaymentStatus.SUBMITTED;
-import static uk.gov.pay.products.util.RandomIdGenerator.randomUserFriendlyReference;
 import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
 
 @RunWith(PowerMockRunner.class)
@@ -66,12 +81,22 @@ public class PaymentCreatorTest {
     @Mock
     private PaymentDao paymentDao;
 
+    @Mock
+    private ProductUsageDao productUsageDao;
+
+    @Mock
+    private PaymentReferenceAllocator paymentReferenceAllocator;
+
     @Mock
     private PublicApiRestClient publicApiRestClient;
 
     @Mock
     private ProductsConfiguration productsConfiguration;
 
+    private MetricRegistry metricRegistry;
+
+    private PaymentCreationLimiter paymentCreationLimiter;
+
     private PaymentCreator paymentCreator;
 
     @Rule
@@ -80,7 +105,10 @@ public class PaymentCreatorTest {
     @Before
     public void setup() {
         LinksDecorator linksDecorator = new LinksDecorator(PRODUCT_URL, "https://products-ui.url", "https://products-ui.url/payments");
-        paymentCreator = new PaymentCreator(TransactionFlow::new, productDao, paymentDao, publicApiRestClient, linksDecorator, productsConfiguration);
+        ProductCache productCache = new ProductCache(productDao, mock(ProductCacheInvalidationPublisher.class), new ProductCacheConfiguration(), new MetricRegistry());
+        metricRegistry = new MetricRegistry();
+        paymentCreationLimiter = new PaymentCreationLimiter(new PaymentCreationConfiguration(), metricRegistry);
+        paymentCreator = new PaymentCreator(() -> new TransactionFlow(metricRegistry), productCache, paymentDao, productUsageDao, paymentReferenceAllocator, publicApiRestClient, linksDecorator, productsConfiguration, paymentCreationLimiter, newDirectExecutorService());
     }
 
     @Test
@@ -129,12 +157,12 @@ public class PaymentCreatorTest {
 
 
         when(randomUuid()).thenReturn(paymentExernalId);
-        when(randomUserFriendlyReference()).thenReturn(referenceNumber);
+        when(paymentReferenceAllocator.allocate()).thenReturn(referenceNumber);
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(paymentResponse);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(completedFuture(paymentResponse));
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productsUIConfirmUri);
 
-        Payment payment = paymentCreator.doCreate(productExternalId, null, null);
+        Payment payment = create(productExternalId, null, null);
 
         assertNotNull(payment);
         assertNotNull(payment.getExternalId());
@@ -150,6 +178,7 @@ public class PaymentCreatorTest {
         assertThat(payment.getProductId(), is(productEntity.getId()));
         assertThat(payment.getProductExternalId(), is(productEntity.getExternalId()));
         assertThat(payment.getStatus(), is(SUBMITTED));
+        assertThat(payment.getReferenceNumber(), is(referenceNumber));
 
         PaymentEntity expectedPaymentEntity = createPaymentEntity(
                 paymentId,
@@ -158,6 +187,13 @@ public class PaymentCreatorTest {
                 SUBMITTED,
                 paymentAmount);
         verify(paymentDao).merge(argThat(PaymentEntityMatcher.isSame(expectedPaymentEntity)));
+        verify(productUsageDao).recordPayment(eq(productId), any(ZonedDateTime.class));
+        verify(paymentDao, never()).findByGatewayAccountIdAndReferenceNumber(any(), any());
+        verify(productDao).findByExternalId(productExternalId);
+        verifyNoMoreInteractions(productDao);
+        assertThat(metricRegistry.timer("transaction-flow.payment-creation.before-payment-creation").getCount(), is(1L));
+        assertThat(metricRegistry.timer("transaction-flow.payment-creation.publicapi-create-payment").getCount(), is(1L));
+        assertThat(metricRegistry.timer("transaction-flow.payment-creation.after-payment-creation").getCount(), is(1L));
     }
 
     @Test
@@ -206,11 +242,11 @@ public class PaymentCreatorTest {
 
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
         when(randomUuid()).thenReturn(paymentExternalId);
-        when(randomUserFriendlyReference()).thenReturn(referenceNumber);
+        when(paymentReferenceAllocator.allocate()).thenReturn(referenceNumber);
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productReturnUrl);
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(paymentResponse);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(completedFuture(paymentResponse));
 
-        Payment payment = paymentCreator.doCreate(productExternalId, null, null);
+        Payment payment = create(productExternalId, null, null);
 
         assertNotNull(payment);
         assertNotNull(payment.getExternalId());
@@ -284,9 +320,9 @@ public class PaymentCreatorTest {
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
         when(randomUuid()).thenReturn(paymentExternalId);
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productReturnUrl);
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(paymentResponse);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(completedFuture(paymentResponse));
 
-        Payment payment = paymentCreator.doCreate(productExternalId, priceOverride, userDefinedReference);
+        Payment payment = create(productExternalId, priceOverride, userDefinedReference);
 
         assertNotNull(payment);
         assertNotNull(payment.getExternalId());
@@ -350,11 +386,11 @@ public class PaymentCreatorTest {
 
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
         when(randomUuid()).thenReturn(paymentExternalId);
-        when(randomUserFriendlyReference()).thenReturn(referenceNumber);
+        when(paymentReferenceAllocator.allocate()).thenReturn(referenceNumber);
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productReturnUrl);
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(paymentResponse);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(completedFuture(paymentResponse));
 
-        Payment payment = paymentCreator.doCreate(productExternalId, priceOverride, null);
+        Payment payment = create(productExternalId, priceOverride, null);
 
         assertNotNull(payment);
         assertNotNull(payment.getExternalId());
@@ -419,9 +455,9 @@ public class PaymentCreatorTest {
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
         when(randomUuid()).thenReturn(paymentExternalId);
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productReturnUrl);
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(paymentResponse);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest)))).thenReturn(completedFuture(paymentResponse));
 
-        Payment payment = paymentCreator.doCreate(productExternalId, priceOverride, userDefinedReference);
+        Payment payment = create(productExternalId, priceOverride, userDefinedReference);
 
         assertNotNull(payment);
         assertNotNull(payment.getExternalId());
@@ -478,13 +514,13 @@ public class PaymentCreatorTest {
 
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
         when(randomUuid()).thenReturn(paymentExternalId);
-        when(randomUserFriendlyReference()).thenReturn(referenceNumber);
+        when(paymentReferenceAllocator.allocate()).thenReturn(referenceNumber);
         when(productsConfiguration.getProductsUiConfirmUrl()).thenReturn(productsUIConfirmUri);
-        when(publicApiRestClient.createPayment(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest))))
-                .thenThrow(PublicApiResponseErrorException.class);
+        when(publicApiRestClient.createPaymentAsync(argThat(is(productApiToken)), argThat(PaymentRequestMatcher.isSame(expectedPaymentRequest))))
+                .thenReturn(failedFuture(new PublicApiResponseErrorException(new RuntimeException())));
 
         try {
-            paymentCreator.doCreate(productExternalId, null, null);
+            create(productExternalId, null, null);
             fail("Expected an PaymentCreationException to be thrown");
         } catch (PaymentCreationException e) {
             assertThat(e.getProductExternalId(), is(productExternalId));
@@ -505,7 +541,7 @@ public class PaymentCreatorTest {
         when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.empty());
 
         try {
-            paymentCreator.doCreate(productExternalId, null, null);
+            create(productExternalId, null, null);
             fail("Expected an PaymentCreatorNotFoundException to be thrown");
         } catch (PaymentCreatorNotFoundException e) {
             assertThat(e.getProductExternalId(), is(productExternalId));
@@ -540,50 +576,32 @@ public class PaymentCreatorTest {
 
         thrown.expect(BadPaymentRequestException.class);
         thrown.expectMessage("User defined reference is enabled but missing");
-        paymentCreator.doCreate(productExternalId, null, null);
+        create(productExternalId, null, null);
     }
 
     @Test
-    public void shouldThrowRuntimeException_whenUniqueReferenceExists_andTried3Times() {
-        PowerMockito.mockStatic(RandomIdGenerator.class);
-        int productId = 1;
-        String randomUserFriendlyReference = "MBK-1WER-3RT";
+    public void shouldRejectPaymentCreation_whenTooManyPaymentsAreBeingCreated() {
         String productExternalId = "product-external-id";
-        long productPrice = 100L;
-        String productName = "name";
-        String productReturnUrl = "https://return.url";
-        String productApiToken = "api-token";
-        String paymentId = "abcd1234";
-        Integer gatewayAccountId = 1;
-        SupportedLanguage language = SupportedLanguage.WELSH;
-
-        ProductEntity productEntity = createProductEntity(
-                productId,
-                productPrice,
-                productExternalId,
-                productName,
-                productReturnUrl,
-                productApiToken,
-                gatewayAccountId,
-                false,
-                language);
+        PaymentCreationConfiguration paymentCreationConfiguration = new PaymentCreationConfiguration();
+        for (int i = 0; i < paymentCreationConfiguration.getMaxConcurrentCreations(); i++) {
+            paymentCreationLimiter.tryAcquire();
+        }
 
-        PaymentEntity paymentEntity = createPaymentEntity(
-                paymentId,
-                randomUserFriendlyReference,
-                productEntity,
-                PaymentStatus.SUBMITTED,
-                productPrice);
+        try {
+            create(productExternalId, null, null);
+            fail("Expected a PaymentCreationRejectedException to be thrown");
+        } catch (PaymentCreationRejectedException e) {
+            assertThat(e.getProductExternalId(), is(productExternalId));
+            verify(productDao, never()).findByExternalId(productExternalId);
+        }
+    }
 
-        when(RandomIdGenerator.randomUserFriendlyReference()).thenReturn(randomUserFriendlyReference);
-        when(productDao.findByExternalId(productExternalId)).thenReturn(Optional.of(productEntity));
-        when(paymentDao.findByGatewayAccountIdAndReferenceNumber(gatewayAccountId, randomUserFriendlyReference)).thenReturn(Optional.of(paymentEntity));
+    private Payment create(String productExternalId, Long priceOverride, String reference) {
         try {
-            paymentCreator.doCreate(productExternalId, null, null);
-        } catch (RuntimeException ex) {
-            assertThat(ex.getMessage(), is("Too many conflicts generating unique user friendly reference numbers for gateway account 1"));
+            return paymentCreator.doCreateAsync(productExternalId, priceOverride, reference).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
         }
-        verify(paymentDao, times(3)).findByGatewayAccountIdAndReferenceNumber(gatewayAccountId, randomUserFriendlyReference);
     }
 
     private ProductEntity createProductEntity(int id,
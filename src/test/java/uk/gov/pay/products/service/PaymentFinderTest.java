@@ -1,5 +1,8 @@
 package uk.gov.pay.products.service;
 
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,22 +11,38 @@ import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.pay.products.client.publicapi.PaymentResponse;
 import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
 import uk.gov.pay.products.client.publicapi.model.PaymentState;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
 import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.model.Link;
 import uk.gov.pay.products.model.Payment;
+import uk.gov.pay.products.model.PaymentCursor;
+import uk.gov.pay.products.model.PaymentPage;
 import uk.gov.pay.products.persistence.dao.PaymentDao;
 import uk.gov.pay.products.persistence.entity.PaymentEntity;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.PaymentStateCache;
 import uk.gov.pay.products.util.PaymentStatus;
 
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static java.lang.String.format;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.service.PaymentFinder.GOVUK_STATUS_UNKNOWN;
 import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -35,12 +54,32 @@ public class PaymentFinderTest {
     @Mock
     private PublicApiRestClient publicApiRestClient;
 
+    @Mock
+    private PaymentStatusLookupConfiguration lookupConfiguration;
+
+    private ExecutorService paymentStatusLookupExecutor;
+    private MetricRegistry metricRegistry;
     private PaymentFinder paymentFinder;
 
     @Before
     public void setup() {
         LinksDecorator linksDecorator = new LinksDecorator("http://localhost", "http://localhost/pay", "http://localhost/payments");
-        paymentFinder = new PaymentFinder(paymentDao, linksDecorator, publicApiRestClient);
+        paymentStatusLookupExecutor = Executors.newFixedThreadPool(2);
+        metricRegistry = new MetricRegistry();
+        when(lookupConfiguration.getDeadline()).thenReturn(Duration.milliseconds(500L));
+        when(lookupConfiguration.getFreshnessWindow()).thenReturn(Duration.minutes(1L));
+        when(lookupConfiguration.getStateCacheMaximumSize()).thenReturn(100L);
+        when(lookupConfiguration.getStateCacheUnfinishedTtl()).thenReturn(Duration.seconds(2L));
+        PaymentStatusReconciler paymentStatusReconciler = new PaymentStatusReconciler(paymentDao,
+                new PaymentStateCache(publicApiRestClient, lookupConfiguration, metricRegistry),
+                lookupConfiguration, metricRegistry);
+        paymentFinder = new PaymentFinder(paymentDao, linksDecorator, paymentStatusReconciler, paymentStatusLookupExecutor,
+                lookupConfiguration, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        paymentStatusLookupExecutor.shutdownNow();
     }
 
     @Test
@@ -176,4 +215,167 @@ public class PaymentFinderTest {
         Payment payment = optionalPayment.get();
         assertThat(payment.getGovUkStatus(), is(nullValue()));
     }
+
+    @Test
+    public void shouldReturnUnknownGovUkStatus_forLookupsStillRunningAtTheDeadline() {
+        String productExternalId = randomUuid();
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity fastPayment = aSubmittedPayment(productEntity);
+        PaymentEntity slowPayment = aSubmittedPayment(productEntity);
+
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setState(new PaymentState("success", true, "a message", "a code"));
+        CountDownLatch releaseSlowLookup = new CountDownLatch(1);
+
+        when(paymentDao.findByProductExternalId(productExternalId)).thenReturn(Arrays.asList(fastPayment, slowPayment));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), fastPayment.getGovukPaymentId()))
+                .thenReturn(Optional.of(paymentResponse));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), slowPayment.getGovukPaymentId()))
+                .thenAnswer(invocation -> {
+                    releaseSlowLookup.await();
+                    return Optional.of(paymentResponse);
+                });
+
+        List<Payment> payments = paymentFinder.findByProductExternalId(productExternalId);
+        releaseSlowLookup.countDown();
+
+        assertThat(payments.size(), is(2));
+        assertThat(payments.get(0).getExternalId(), is(fastPayment.getExternalId()));
+        assertThat(payments.get(0).getGovUkStatus(), is("success"));
+        assertThat(payments.get(1).getExternalId(), is(slowPayment.getExternalId()));
+        assertThat(payments.get(1).getGovUkStatus(), is(GOVUK_STATUS_UNKNOWN));
+        assertThat(metricRegistry.counter("payment-status-lookup.unfinished").getCount(), is(1L));
+        assertThat(metricRegistry.timer("payment-status-lookup.batch").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldLookUpGovUkStatusesInParallel() {
+        String productExternalId = randomUuid();
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity firstPayment = aSubmittedPayment(productEntity);
+        PaymentEntity secondPayment = aSubmittedPayment(productEntity);
+
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setState(new PaymentState("success", true, "a message", "a code"));
+        CountDownLatch bothLookupsStarted = new CountDownLatch(2);
+
+        when(paymentDao.findByProductExternalId(productExternalId)).thenReturn(Arrays.asList(firstPayment, secondPayment));
+        when(publicApiRestClient.getPayment(eq(productEntity.getPayApiToken()), anyString()))
+                .thenAnswer(invocation -> {
+                    bothLookupsStarted.countDown();
+                    bothLookupsStarted.await();
+                    return Optional.of(paymentResponse);
+                });
+
+        List<Payment> payments = paymentFinder.findByProductExternalId(productExternalId);
+
+        assertThat(payments.get(0).getGovUkStatus(), is("success"));
+        assertThat(payments.get(1).getGovUkStatus(), is("success"));
+        assertThat(metricRegistry.timer("payment-status-lookup.call").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldReturnAPageWithANextPageLink_whenThereAreMorePayments() {
+        String productExternalId = randomUuid();
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity newest = aCreatedPayment(productEntity, 3, ZonedDateTime.now(ZoneId.of("UTC")));
+        PaymentEntity middle = aCreatedPayment(productEntity, 2, newest.getDateCreated().minusMinutes(1L));
+        PaymentEntity oldest = aCreatedPayment(productEntity, 1, middle.getDateCreated().minusMinutes(1L));
+        PaymentCursor after = new PaymentCursor(newest.getDateCreated().plusMinutes(1L), 4);
+
+        when(paymentDao.findByProductExternalId(productExternalId, after, 3)).thenReturn(Arrays.asList(newest, middle, oldest));
+
+        PaymentPage paymentPage = paymentFinder.findPageByProductExternalId(productExternalId, after, 2);
+
+        assertThat(paymentPage.getResults(), hasSize(2));
+        assertThat(paymentPage.getResults().get(0).getExternalId(), is(newest.getExternalId()));
+        assertThat(paymentPage.getResults().get(1).getExternalId(), is(middle.getExternalId()));
+        assertThat(paymentPage.getNextCursor(), is(new PaymentCursor(middle.getDateCreated(), 2)));
+        assertThat(paymentPage.getLinks(), hasSize(1));
+        assertThat(paymentPage.getLinks().get(0).getRel(), is(Link.Rel.next_page));
+        assertThat(paymentPage.getLinks().get(0).getHref(), is(format("http://localhost/v1/api/products/%s/payments?page_size=2&cursor=%s",
+                productExternalId, paymentPage.getNextCursor().encode())));
+    }
+
+    @Test
+    public void shouldReturnTheLastPageWithoutANextPageLink() {
+        String productExternalId = randomUuid();
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity onlyPayment = aCreatedPayment(productEntity, 1, ZonedDateTime.now(ZoneId.of("UTC")));
+
+        when(paymentDao.findByProductExternalId(productExternalId, null, 3)).thenReturn(List.of(onlyPayment));
+
+        PaymentPage paymentPage = paymentFinder.findPageByProductExternalId(productExternalId, null, 2);
+
+        assertThat(paymentPage.getResults(), hasSize(1));
+        assertThat(paymentPage.getNextCursor(), is(nullValue()));
+        assertThat(paymentPage.getLinks().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldServeStoredGovUkStatus_whenCheckedWithinTheFreshnessWindow() {
+        String externalId = randomUuid();
+        PaymentEntity paymentEntity = aSubmittedPayment(ProductEntityFixture.aProductEntity().build());
+        paymentEntity.setGovukStatus("started");
+        paymentEntity.setGovukStatusCheckedAt(ZonedDateTime.now(ZoneId.of("UTC")).minusSeconds(10L));
+        when(paymentDao.findByExternalId(externalId)).thenReturn(Optional.of(paymentEntity));
+
+        Optional<Payment> payment = paymentFinder.findByExternalId(externalId);
+
+        assertThat(payment.get().getGovUkStatus(), is("started"));
+        verifyNoInteractions(publicApiRestClient);
+    }
+
+    @Test
+    public void shouldNeverRequeryAFinishedGovUkStatus() {
+        String externalId = randomUuid();
+        PaymentEntity paymentEntity = aSubmittedPayment(ProductEntityFixture.aProductEntity().build());
+        paymentEntity.setGovukStatus("success");
+        paymentEntity.setGovukStatusFinished(true);
+        paymentEntity.setGovukStatusCheckedAt(ZonedDateTime.now(ZoneId.of("UTC")).minusDays(30L));
+        when(paymentDao.findByExternalId(externalId)).thenReturn(Optional.of(paymentEntity));
+
+        Optional<Payment> payment = paymentFinder.findByExternalId(externalId);
+
+        assertThat(payment.get().getGovUkStatus(), is("success"));
+        verifyNoInteractions(publicApiRestClient);
+    }
+
+    @Test
+    public void shouldRequeryAndStoreGovUkStatus_whenStoredStatusIsStale() {
+        PaymentEntity paymentEntity = aSubmittedPayment(ProductEntityFixture.aProductEntity().build());
+        String externalId = paymentEntity.getExternalId();
+        paymentEntity.setGovukStatus("started");
+        paymentEntity.setGovukStatusCheckedAt(ZonedDateTime.now(ZoneId.of("UTC")).minusMinutes(5L));
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setState(new PaymentState("success", true, "a message", "a code"));
+        when(paymentDao.findByExternalId(externalId)).thenReturn(Optional.of(paymentEntity));
+        when(publicApiRestClient.getPayment(paymentEntity.getProductEntity().getPayApiToken(), paymentEntity.getGovukPaymentId()))
+                .thenReturn(Optional.of(paymentResponse));
+
+        Optional<Payment> payment = paymentFinder.findByExternalId(externalId);
+
+        assertThat(payment.get().getGovUkStatus(), is("success"));
+        assertThat(paymentEntity.getGovukStatus(), is("success"));
+        assertThat(paymentEntity.isGovukStatusFinished(), is(true));
+    }
+
+    private PaymentEntity aCreatedPayment(ProductEntity productEntity, Integer id, ZonedDateTime dateCreated) {
+        PaymentEntity paymentEntity = new PaymentEntity();
+        paymentEntity.setId(id);
+        paymentEntity.setExternalId(randomUuid());
+        paymentEntity.setProductEntity(productEntity);
+        paymentEntity.setStatus(PaymentStatus.CREATED);
+        paymentEntity.setDateCreated(dateCreated);
+        return paymentEntity;
+    }
+
+    private PaymentEntity aSubmittedPayment(ProductEntity productEntity) {
+        PaymentEntity paymentEntity = new PaymentEntity();
+        paymentEntity.setExternalId(randomUuid());
+        paymentEntity.setProductEntity(productEntity);
+        paymentEntity.setStatus(PaymentStatus.SUBMITTED);
+        paymentEntity.setGovukPaymentId(randomUuid());
+        return paymentEntity;
+    }
 }
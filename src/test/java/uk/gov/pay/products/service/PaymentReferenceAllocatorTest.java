@@ -0,0 +1,89 @@
+package uk.gov.pay.products.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ProductsConfiguration;
+import uk.gov.pay.products.persistence.dao.PaymentDao;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.service.PaymentReferenceAllocator.BLOCK_SIZE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PaymentReferenceAllocatorTest {
+
+    private static final String REFERENCE_FORMAT = "[A-HJ-NP-Z2-9]{2}[2-9][A-HJ-NP-Z2-9]{3}[2-9][A-HJ-NP-Z2-9]{3}";
+
+    @Mock
+    private PaymentDao paymentDao;
+
+    @Mock
+    private ProductsConfiguration productsConfiguration;
+
+    @Before
+    public void setup() {
+        when(productsConfiguration.getPaymentReferenceKey()).thenReturn("a-key");
+    }
+
+    @Test
+    public void shouldAllocateUniqueReferencesInTheUserFriendlyFormat_acrossBlocks() {
+        when(paymentDao.nextReferenceBlock()).thenReturn(0L, BLOCK_SIZE, 2 * BLOCK_SIZE);
+        PaymentReferenceAllocator allocator = new PaymentReferenceAllocator(paymentDao, productsConfiguration);
+
+        Set<String> references = new HashSet<>();
+        for (int i = 0; i < 3 * BLOCK_SIZE; i++) {
+            String reference = allocator.allocate();
+            assertThat(reference, reference.matches(REFERENCE_FORMAT), is(true));
+            references.add(reference);
+        }
+
+        assertThat(references.size(), is((int) (3 * BLOCK_SIZE)));
+        verify(paymentDao, times(3)).nextReferenceBlock();
+    }
+
+    @Test
+    public void shouldNotAllocateTheSameReferences_onDifferentNodes() {
+        when(paymentDao.nextReferenceBlock()).thenReturn(0L, BLOCK_SIZE);
+        PaymentReferenceAllocator firstNode = new PaymentReferenceAllocator(paymentDao, productsConfiguration);
+        PaymentReferenceAllocator secondNode = new PaymentReferenceAllocator(paymentDao, productsConfiguration);
+
+        Set<String> references = new HashSet<>();
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            references.add(firstNode.allocate());
+            references.add(secondNode.allocate());
+        }
+
+        assertThat(references.size(), is((int) (2 * BLOCK_SIZE)));
+    }
+
+    @Test
+    public void shouldScrambleReferences_withTheKey() {
+        when(paymentDao.nextReferenceBlock()).thenReturn(0L);
+        PaymentReferenceAllocator allocator = new PaymentReferenceAllocator(paymentDao, productsConfiguration);
+        String first = allocator.allocate();
+        String second = allocator.allocate();
+
+        when(productsConfiguration.getPaymentReferenceKey()).thenReturn("another-key");
+        PaymentReferenceAllocator otherKeyAllocator = new PaymentReferenceAllocator(paymentDao, productsConfiguration);
+
+        assertThat(first.substring(0, 8), not(second.substring(0, 8)));
+        assertThat(otherKeyAllocator.allocate(), not(first));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRefuseToAllocate_onceTheReferenceSpaceIsExhausted() {
+        when(paymentDao.nextReferenceBlock()).thenReturn((1L << 46) - BLOCK_SIZE + 1);
+
+        new PaymentReferenceAllocator(paymentDao, productsConfiguration).allocate();
+    }
+}
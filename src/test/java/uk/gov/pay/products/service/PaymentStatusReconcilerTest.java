@@ -0,0 +1,135 @@
+package uk.gov.pay.products.service;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.client.publicapi.PaymentResponse;
+import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
+import uk.gov.pay.products.client.publicapi.model.PaymentState;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
+import uk.gov.pay.products.exception.PublicApiResponseErrorException;
+import uk.gov.pay.products.fixtures.ProductEntityFixture;
+import uk.gov.pay.products.persistence.dao.PaymentDao;
+import uk.gov.pay.products.persistence.entity.PaymentEntity;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.PaymentStateCache;
+import uk.gov.pay.products.util.PaymentStatus;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.util.RandomIdGenerator.randomUuid;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PaymentStatusReconcilerTest {
+
+    @Mock
+    private PaymentDao paymentDao;
+
+    @Mock
+    private PublicApiRestClient publicApiRestClient;
+
+    @Mock
+    private PaymentStatusLookupConfiguration lookupConfiguration;
+
+    private MetricRegistry metricRegistry;
+    private PaymentStatusReconciler paymentStatusReconciler;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        when(lookupConfiguration.getDeadline()).thenReturn(Duration.seconds(5L));
+        when(lookupConfiguration.getFreshnessWindow()).thenReturn(Duration.minutes(1L));
+        when(lookupConfiguration.getStateCacheMaximumSize()).thenReturn(100L);
+        when(lookupConfiguration.getStateCacheUnfinishedTtl()).thenReturn(Duration.seconds(2L));
+        when(lookupConfiguration.getReconciliationBatchSize()).thenReturn(2);
+        paymentStatusReconciler = new PaymentStatusReconciler(paymentDao,
+                new PaymentStateCache(publicApiRestClient, lookupConfiguration, metricRegistry), lookupConfiguration, metricRegistry);
+    }
+
+    @Test
+    public void shouldStoreRefreshedGovUkStatus_forEveryClaimedPayment() {
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity firstPayment = aSubmittedPayment(productEntity);
+        PaymentEntity secondPayment = aSubmittedPayment(productEntity);
+        ZonedDateTime beforeReconciling = ZonedDateTime.now(ZoneId.of("UTC"));
+
+        when(paymentDao.claimForGovukStatusReconciliation(any(ZonedDateTime.class), any(ZonedDateTime.class), any(ZonedDateTime.class), eq(2)))
+                .thenReturn(List.of(firstPayment, secondPayment));
+        when(paymentDao.findByExternalId(firstPayment.getExternalId())).thenReturn(Optional.of(firstPayment));
+        when(paymentDao.findByExternalId(secondPayment.getExternalId())).thenReturn(Optional.of(secondPayment));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), firstPayment.getGovukPaymentId()))
+                .thenReturn(Optional.of(aPaymentResponse("success", true)));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), secondPayment.getGovukPaymentId()))
+                .thenReturn(Optional.of(aPaymentResponse("started", false)));
+
+        paymentStatusReconciler.reconcile();
+
+        assertThat(firstPayment.getGovukStatus(), is("success"));
+        assertThat(firstPayment.isGovukStatusFinished(), is(true));
+        assertThat(secondPayment.getGovukStatus(), is("started"));
+        assertThat(secondPayment.isGovukStatusFinished(), is(false));
+        assertThat(secondPayment.getGovukStatusCheckedAt().isBefore(beforeReconciling), is(false));
+        assertThat(metricRegistry.counter("payment-status-reconciler.reconciled").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldCarryOnWithTheBatch_whenOneLookupFails() {
+        ProductEntity productEntity = ProductEntityFixture.aProductEntity().build();
+        PaymentEntity failingPayment = aSubmittedPayment(productEntity);
+        PaymentEntity healthyPayment = aSubmittedPayment(productEntity);
+
+        when(paymentDao.claimForGovukStatusReconciliation(any(ZonedDateTime.class), any(ZonedDateTime.class), any(ZonedDateTime.class), eq(2)))
+                .thenReturn(List.of(failingPayment, healthyPayment));
+        when(paymentDao.findByExternalId(healthyPayment.getExternalId())).thenReturn(Optional.of(healthyPayment));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), failingPayment.getGovukPaymentId()))
+                .thenThrow(new PublicApiResponseErrorException(new RuntimeException("publicapi unavailable")));
+        when(publicApiRestClient.getPayment(productEntity.getPayApiToken(), healthyPayment.getGovukPaymentId()))
+                .thenReturn(Optional.of(aPaymentResponse("success", true)));
+
+        paymentStatusReconciler.reconcile();
+
+        assertThat(failingPayment.getGovukStatus(), is((String) null));
+        assertThat(failingPayment.getGovukStatusCheckedAt(), is((ZonedDateTime) null));
+        assertThat(paymentStatusReconciler.hasFreshGovukStatus(failingPayment), is(false));
+        assertThat(healthyPayment.getGovukStatus(), is("success"));
+    }
+
+    @Test
+    public void shouldTreatStatusCheckedOutsideTheFreshnessWindowAsStale() {
+        PaymentEntity paymentEntity = aSubmittedPayment(ProductEntityFixture.aProductEntity().build());
+        paymentEntity.setGovukStatus("started");
+        paymentEntity.setGovukStatusCheckedAt(ZonedDateTime.now(ZoneId.of("UTC")).minusMinutes(2L));
+
+        assertThat(paymentStatusReconciler.hasFreshGovukStatus(paymentEntity), is(false));
+
+        paymentEntity.setGovukStatusCheckedAt(ZonedDateTime.now(ZoneId.of("UTC")).minusSeconds(30L));
+        assertThat(paymentStatusReconciler.hasFreshGovukStatus(paymentEntity), is(true));
+    }
+
+    private PaymentResponse aPaymentResponse(String status, boolean finished) {
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setState(new PaymentState(status, finished, "a message", "a code"));
+        return paymentResponse;
+    }
+
+    private PaymentEntity aSubmittedPayment(ProductEntity productEntity) {
+        PaymentEntity paymentEntity = new PaymentEntity();
+        paymentEntity.setExternalId(randomUuid());
+        paymentEntity.setProductEntity(productEntity);
+        paymentEntity.setStatus(PaymentStatus.SUBMITTED);
+        paymentEntity.setGovukPaymentId(randomUuid());
+        return paymentEntity;
+    }
+}
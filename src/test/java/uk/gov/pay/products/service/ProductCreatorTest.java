@@ -14,6 +14,7 @@ import uk.gov.pay.products.model.ProductMetadata;
 import uk.gov.pay.products.persistence.dao.ProductDao;
 import uk.gov.pay.products.persistence.dao.ProductMetadataDao;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.ProductCache;
 import uk.gov.pay.products.util.ProductType;
 
 import java.util.List;
@@ -41,6 +42,8 @@ public class ProductCreatorTest {
     private ProductDao productDao;
     @Mock
     private ProductMetadataDao productMetadataDao;
+    @Mock
+    private ProductCache productCache;
     private ProductCreator productCreator;
     @Captor
     private ArgumentCaptor<ProductEntity> persistedProductEntity;
@@ -52,7 +55,7 @@ public class ProductCreatorTest {
     @Before
     public void setup() {
         LinksDecorator linksDecorator = new LinksDecorator("http://localhost", "http://localhost/pay", "http://localhost/payments");
-        productCreator = new ProductCreator(productDao, productMetadataDao, linksDecorator);
+        productCreator = new ProductCreator(productDao, productMetadataDao, linksDecorator, productCache);
         gatewayAccountId = randomInt();
         payApiToken = randomUuid();
     }
@@ -126,6 +129,7 @@ public class ProductCreatorTest {
 
         assertThat(productEntityValue.getDescription(), is(description));
         assertThat(productEntityValue.getReturnUrl(), is(returnUrl));
+        verify(productCache).invalidate(productEntityValue.getExternalId());
     }
 
     @Test
@@ -176,6 +180,7 @@ public class ProductCreatorTest {
         assertThat(productToUpdate, ProductMatcher.isSame(updatedProduct.get()));
 
         verify(productMetadataDao).deleteForProductExternalId("external-id");
+        verify(productCache).invalidate("external-id");
     }
 
     @Test
@@ -215,6 +220,7 @@ public class ProductCreatorTest {
         verify(mockedProductEntity).setReferenceEnabled(false);
         verify(mockedProductEntity).setReferenceLabel(null);
         verify(mockedProductEntity).setReferenceHint(null);
+        verify(mockedProductEntity).setMetadataEntityList(List.of());
         verify(mockedProductEntity).toProduct();
         verifyNoMoreInteractions(mockedProductEntity);
 
@@ -1,13 +1,18 @@
 package uk.gov.pay.products.service;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
 import uk.gov.pay.products.model.Product;
 import uk.gov.pay.products.persistence.dao.ProductDao;
 import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.service.cache.ProductCache;
+import uk.gov.pay.products.service.cache.ProductCacheInvalidationPublisher;
+import uk.gov.pay.products.service.cache.ProductPathIndex;
 import uk.gov.pay.products.util.ProductStatus;
 import uk.gov.pay.products.util.ProductType;
 
@@ -19,6 +24,9 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -27,12 +35,19 @@ public class ProductFinderTest {
     @Mock
     private ProductDao productDao;
 
+    @Mock
+    private ProductCacheInvalidationPublisher invalidationPublisher;
+
+    @Mock
+    private ProductPathIndex productPathIndex;
+
     private ProductFinder productFinder;
 
     @Before
     public void setup() {
         LinksDecorator linksDecorator = new LinksDecorator("http://localhost", "http://localhost/pay", "http://localhost/payments");
-        productFinder = new ProductFinder(productDao, linksDecorator);
+        ProductCache productCache = new ProductCache(productDao, invalidationPublisher, new ProductCacheConfiguration(), new MetricRegistry());
+        productFinder = new ProductFinder(productDao, linksDecorator, productCache, productPathIndex);
     }
 
     @Test
@@ -102,7 +117,7 @@ public class ProductFinderTest {
         productEntity.setExternalId(externalId);
         productEntity.setGatewayAccountId(gatewayAccountId);
         productEntity.setReferenceEnabled(false);
-        when(productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)).thenReturn(Optional.of(productEntity));
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
 
         Optional<Product> productOptional = productFinder.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId);
 
@@ -114,7 +129,7 @@ public class ProductFinderTest {
     public void findByGatewayAccountIdAndExternalId_shouldReturnEmpty_whenNotFound() {
         Integer gatewayAccountId = 1;
         String externalId = "1";
-        when(productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)).thenReturn(Optional.empty());
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.empty());
 
         Optional<Product> productOptional = productFinder.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId);
 
@@ -142,6 +157,39 @@ public class ProductFinderTest {
         assertThat(updatedProduct.get().getPayApiToken(), is(newPayApiToken));
     }
 
+    @Test
+    public void findByExternalId_shouldReloadProduct_afterApiTokenIsUpdated() {
+        String externalId = "1";
+        ProductEntity productEntity = new ProductEntity();
+        productEntity.setExternalId(externalId);
+        productEntity.setReferenceEnabled(false);
+        productEntity.setPayApiToken("old Pay API token");
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
+
+        productFinder.findByExternalId(externalId);
+        productFinder.findByExternalId(externalId);
+        productFinder.updatePayApiTokenByExternalId(externalId, "new Pay API token");
+        Optional<Product> productOptional = productFinder.findByExternalId(externalId);
+
+        assertThat(productOptional.get().getPayApiToken(), is("new Pay API token"));
+        verify(productDao, times(3)).findByExternalId(externalId);
+        verify(invalidationPublisher).publish(externalId);
+    }
+
+    @Test
+    public void findByGatewayAccountIdAndExternalId_shouldReturnEmpty_whenProductBelongsToAnotherGatewayAccount() {
+        String externalId = "1";
+        ProductEntity productEntity = new ProductEntity();
+        productEntity.setExternalId(externalId);
+        productEntity.setGatewayAccountId(1);
+        productEntity.setReferenceEnabled(false);
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
+
+        Optional<Product> productOptional = productFinder.findByGatewayAccountIdAndExternalId(2, externalId);
+
+        assertFalse(productOptional.isPresent());
+    }
+
     @Test
     public void updatePayApiTokenByExternalId_shouldReturnEmpty_whenNotFound() {
         String externalId = "1";
@@ -197,6 +245,7 @@ public class ProductFinderTest {
         Boolean success = productFinder.deleteByExternalId(externalId);
 
         assertThat(success, is(true));
+        verify(invalidationPublisher).publish(externalId);
     }
 
     @Test
@@ -219,6 +268,7 @@ public class ProductFinderTest {
         productEntity.setExternalId(externalId);
         productEntity.setGatewayAccountId(gatewayAccountId);
         productEntity.setReferenceEnabled(false);
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
         when(productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)).thenReturn(Optional.of(productEntity));
 
         Optional<Product> productOptional = productFinder.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId);
@@ -239,6 +289,7 @@ public class ProductFinderTest {
         productEntity.setExternalId(externalId);
         productEntity.setGatewayAccountId(gatewayAccountId);
         productEntity.setReferenceEnabled(false);
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
         when(productDao.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId)).thenReturn(Optional.of(productEntity));
 
         Optional<Product> productOptional = productFinder.findByGatewayAccountIdAndExternalId(gatewayAccountId, externalId);
@@ -283,7 +334,8 @@ public class ProductFinderTest {
         productEntity.setProductNamePath(productNamePath);
         productEntity.setReferenceEnabled(false);
 
-        when(productDao.findByProductPath(serviceNamePath, productNamePath)).thenReturn(Optional.of(productEntity));
+        when(productPathIndex.findExternalId(serviceNamePath, productNamePath)).thenReturn(Optional.of(externalId));
+        when(productDao.findByExternalId(externalId)).thenReturn(Optional.of(productEntity));
 
         Optional<Product> productOptional = productFinder.findByProductPath(serviceNamePath, productNamePath);
 
@@ -296,10 +348,11 @@ public class ProductFinderTest {
     public void findByProductPath_shouldReturnEmpty_whenNotFound() {
         String serviceNamePath = "service-name-path";
         String productNamePath = "product-name-path";
-        when(productDao.findByProductPath(serviceNamePath, productNamePath)).thenReturn(Optional.empty());
+        when(productPathIndex.findExternalId(serviceNamePath, productNamePath)).thenReturn(Optional.empty());
 
         Optional<Product> productOptional = productFinder.findByProductPath(serviceNamePath, productNamePath);
 
         assertFalse(productOptional.isPresent());
+        verifyNoInteractions(productDao);
     }
 }
@@ -0,0 +1,225 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.client.publicapi.PaymentResponse;
+import uk.gov.pay.products.client.publicapi.PublicApiRestClient;
+import uk.gov.pay.products.client.publicapi.model.PaymentState;
+import uk.gov.pay.products.config.PaymentStatusLookupConfiguration;
+import uk.gov.pay.products.exception.PublicApiResponseErrorException;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PaymentStateCacheTest {
+
+    private static final String API_TOKEN = "api-token";
+    private static final String GOVUK_PAYMENT_ID = "govuk-payment-id";
+
+    @Mock
+    private PublicApiRestClient publicApiRestClient;
+
+    @Mock
+    private PaymentStatusLookupConfiguration lookupConfiguration;
+
+    private MetricRegistry metricRegistry;
+    private PaymentStateCache paymentStateCache;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        when(lookupConfiguration.getStateCacheMaximumSize()).thenReturn(100L);
+    }
+
+    @Test
+    public void shouldKeepFinishedStates_pastTheUnfinishedTtl() throws Exception {
+        givenUnfinishedTtl(Duration.milliseconds(1L));
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID)).thenReturn(Optional.of(aPaymentResponse("success", true)));
+
+        paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+        Thread.sleep(10L);
+        Optional<PaymentState> paymentState = paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+
+        assertThat(paymentState.map(PaymentState::getStatus), is(Optional.of("success")));
+        verify(publicApiRestClient, times(1)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+        assertThat(metricRegistry.counter("payment-state-cache.outbound-calls").getCount(), is(1L));
+        assertThat(metricRegistry.counter("payment-state-cache.outbound-calls-saved").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get("payment-state-cache.hit-ratio").getValue(), is(0.5));
+    }
+
+    @Test
+    public void shouldServeUnfinishedStatesWithinTheTtl() {
+        givenUnfinishedTtl(Duration.minutes(1L));
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID)).thenReturn(Optional.of(aPaymentResponse("started", false)));
+
+        paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+        paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+
+        verify(publicApiRestClient, times(1)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+        assertThat(((Gauge<?>) metricRegistry.getGauges().get("payment-state-cache.size")).getValue(), is(1L));
+    }
+
+    @Test
+    public void shouldLookUpUnfinishedStatesAgain_onceTheTtlHasPassed() throws Exception {
+        givenUnfinishedTtl(Duration.milliseconds(1L));
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID))
+                .thenReturn(Optional.of(aPaymentResponse("started", false)))
+                .thenReturn(Optional.of(aPaymentResponse("success", true)));
+
+        paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+        Thread.sleep(10L);
+        Optional<PaymentState> paymentState = paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+
+        assertThat(paymentState.map(PaymentState::getStatus), is(Optional.of("success")));
+        verify(publicApiRestClient, times(2)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+    }
+
+    @Test
+    public void shouldNotCacheMissingPaymentsOrFailedLookups() {
+        givenUnfinishedTtl(Duration.minutes(1L));
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID))
+                .thenReturn(Optional.empty())
+                .thenThrow(new PublicApiResponseErrorException(new RuntimeException("publicapi unavailable")))
+                .thenReturn(Optional.of(aPaymentResponse("started", false)));
+
+        assertThat(paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID), is(Optional.empty()));
+        try {
+            paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+            fail("Expected the publicapi failure to be rethrown");
+        } catch (PublicApiResponseErrorException expected) {
+        }
+        assertThat(paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID).map(PaymentState::getStatus),
+                is(Optional.of("started")));
+        verify(publicApiRestClient, times(3)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+    }
+
+    @Test
+    public void shouldShareOneOutboundCall_betweenConcurrentLookupsOfTheSamePayment() throws Exception {
+        givenUnfinishedTtl(Duration.minutes(1L));
+        CountDownLatch lookupStarted = new CountDownLatch(1);
+        CountDownLatch releaseLookup = new CountDownLatch(1);
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID)).thenAnswer(invocation -> {
+            lookupStarted.countDown();
+            releaseLookup.await(5, TimeUnit.SECONDS);
+            return Optional.of(aPaymentResponse("started", false));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<PaymentState>> first = executor.submit(() -> paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID));
+            assertThat(lookupStarted.await(5, TimeUnit.SECONDS), is(true));
+            Future<Optional<PaymentState>> second = executor.submit(() -> paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID));
+            releaseLookup.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).map(PaymentState::getStatus), is(Optional.of("started")));
+            assertThat(second.get(5, TimeUnit.SECONDS).map(PaymentState::getStatus), is(Optional.of("started")));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(publicApiRestClient, times(1)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+    }
+
+    @Test
+    public void shouldReleaseWaitingLookupsAndForgetTheCall_whenItFailsWithAnError() throws Exception {
+        givenUnfinishedTtl(Duration.minutes(1L));
+        CountDownLatch lookupStarted = new CountDownLatch(1);
+        CountDownLatch releaseLookup = new CountDownLatch(1);
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID))
+                .thenAnswer(invocation -> {
+                    lookupStarted.countDown();
+                    releaseLookup.await(5, TimeUnit.SECONDS);
+                    throw new NoClassDefFoundError("a missing class");
+                })
+                .thenReturn(Optional.of(aPaymentResponse("started", false)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<PaymentState>> first = executor.submit(() -> paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID));
+            assertThat(lookupStarted.await(5, TimeUnit.SECONDS), is(true));
+            Future<Optional<PaymentState>> second = executor.submit(() -> paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID));
+            releaseLookup.countDown();
+
+            assertThat(failureOf(first), is(instanceOf(NoClassDefFoundError.class)));
+            assertThat(failureOf(second), is(instanceOf(PublicApiResponseErrorException.class)));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID).map(PaymentState::getStatus),
+                is(Optional.of("started")));
+        verify(publicApiRestClient, times(2)).getPayment(API_TOKEN, GOVUK_PAYMENT_ID);
+    }
+
+    @Test
+    public void shouldStopWaitingForASharedCall_whenTheLookupDeadlinePasses() throws Exception {
+        givenCache(Duration.minutes(1L), Duration.milliseconds(50L));
+        CountDownLatch lookupStarted = new CountDownLatch(1);
+        CountDownLatch releaseLookup = new CountDownLatch(1);
+        when(publicApiRestClient.getPayment(API_TOKEN, GOVUK_PAYMENT_ID)).thenAnswer(invocation -> {
+            lookupStarted.countDown();
+            releaseLookup.await(5, TimeUnit.SECONDS);
+            return Optional.of(aPaymentResponse("started", false));
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<PaymentState>> first = executor.submit(() -> paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID));
+            assertThat(lookupStarted.await(5, TimeUnit.SECONDS), is(true));
+            try {
+                paymentStateCache.getPaymentState(API_TOKEN, GOVUK_PAYMENT_ID);
+                fail("Expected the wait for the shared call to time out");
+            } catch (PublicApiResponseErrorException expected) {
+                assertThat(expected.getCause(), is(instanceOf(TimeoutException.class)));
+            }
+            releaseLookup.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).map(PaymentState::getStatus), is(Optional.of("started")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Throwable failureOf(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            throw new AssertionError("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private void givenUnfinishedTtl(Duration unfinishedTtl) {
+        givenCache(unfinishedTtl, Duration.seconds(5L));
+    }
+
+    private void givenCache(Duration unfinishedTtl, Duration lookupDeadline) {
+        when(lookupConfiguration.getStateCacheUnfinishedTtl()).thenReturn(unfinishedTtl);
+        when(lookupConfiguration.getDeadline()).thenReturn(lookupDeadline);
+        paymentStateCache = new PaymentStateCache(publicApiRestClient, lookupConfiguration, metricRegistry);
+    }
+
+    private PaymentResponse aPaymentResponse(String status, boolean finished) {
+        PaymentResponse paymentResponse = new PaymentResponse();
+        paymentResponse.setState(new PaymentState(status, finished, "a message", "a code"));
+        return paymentResponse;
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
+import uk.gov.pay.products.persistence.dao.ProductDao;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+import uk.gov.pay.products.persistence.entity.ProductMetadataEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.fixtures.ProductEntityFixture.aProductEntity;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductCacheTest {
+
+    @Mock
+    private ProductDao productDao;
+
+    @Mock
+    private ProductCacheInvalidationPublisher invalidationPublisher;
+
+    private MetricRegistry metricRegistry;
+    private ProductCache productCache;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        productCache = new ProductCache(productDao, invalidationPublisher, new ProductCacheConfiguration(), metricRegistry);
+    }
+
+    @Test
+    public void shouldLoadProductOnlyOnce_whenFoundRepeatedly() {
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+
+        Optional<ProductSnapshot> first = productCache.findByExternalId("external-id");
+        Optional<ProductSnapshot> second = productCache.findByExternalId("external-id");
+
+        assertThat(first.isPresent(), is(true));
+        assertThat(second.get(), is(sameInstance(first.get())));
+        verify(productDao, times(1)).findByExternalId("external-id");
+        assertThat(gaugeValue("product-cache.hits"), is(1L));
+        assertThat(gaugeValue("product-cache.misses"), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheMissingProducts() {
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.empty());
+
+        assertThat(productCache.findByExternalId("external-id").isPresent(), is(false));
+        assertThat(productCache.findByExternalId("external-id").isPresent(), is(false));
+
+        verify(productDao, times(2)).findByExternalId("external-id");
+    }
+
+    @Test
+    public void shouldReloadProduct_afterInvalidation() {
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+
+        productCache.findByExternalId("external-id");
+        productCache.invalidate("external-id");
+        productCache.findByExternalId("external-id");
+
+        verify(productDao, times(2)).findByExternalId("external-id");
+        verify(invalidationPublisher).publish("external-id");
+    }
+
+    @Test
+    public void shouldReloadProductWithoutPublishing_afterEvictionFromAnotherNode() {
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+
+        productCache.findByExternalId("external-id");
+        productCache.evict("external-id");
+        productCache.findByExternalId("external-id");
+
+        verify(productDao, times(2)).findByExternalId("external-id");
+        verifyNoInteractions(invalidationPublisher);
+    }
+
+    @Test
+    public void shouldReloadEveryProduct_afterEvictingAll() {
+        when(productDao.findByExternalId("external-id-1")).thenReturn(Optional.of(aProductEntity().withExternalId("external-id-1").build()));
+        when(productDao.findByExternalId("external-id-2")).thenReturn(Optional.of(aProductEntity().withExternalId("external-id-2").build()));
+
+        productCache.findByExternalId("external-id-1");
+        productCache.findByExternalId("external-id-2");
+        productCache.evictAll();
+        productCache.findByExternalId("external-id-1");
+        productCache.findByExternalId("external-id-2");
+
+        verify(productDao, times(2)).findByExternalId("external-id-1");
+        verify(productDao, times(2)).findByExternalId("external-id-2");
+        verifyNoInteractions(invalidationPublisher);
+    }
+
+    @Test
+    public void shouldBuildANewProductOnEveryCall_soDecoratingOneDoesNotLeakIntoTheCache() {
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").build();
+        ProductMetadataEntity metadataEntity = new ProductMetadataEntity();
+        metadataEntity.setProductEntity(productEntity);
+        metadataEntity.setMetadataKey("key");
+        metadataEntity.setMetadataValue("value");
+        productEntity.setMetadataEntityList(List.of(metadataEntity));
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+
+        ProductSnapshot snapshot = productCache.findByExternalId("external-id").get();
+
+        assertThat(snapshot.toProduct(), is(not(sameInstance(snapshot.toProduct()))));
+        assertThat(snapshot.toProductMetadataMap(), is(Map.of("key", "value")));
+    }
+
+    private Long gaugeValue(String name) {
+        return (Long) metricRegistry.getGauges().get(name).getValue();
+    }
+}
@@ -0,0 +1,173 @@
+package uk.gov.pay.products.service.cache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.pay.products.config.ProductCacheConfiguration;
+import uk.gov.pay.products.model.ProductPath;
+import uk.gov.pay.products.persistence.dao.ProductDao;
+import uk.gov.pay.products.persistence.entity.ProductEntity;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.products.fixtures.ProductEntityFixture.aProductEntity;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProductPathIndexTest {
+
+    @Mock
+    private ProductDao productDao;
+
+    private ProductPathIndex productPathIndex;
+
+    @Before
+    public void setup() {
+        productPathIndex = new ProductPathIndex(productDao, new ProductCacheConfiguration(), new MetricRegistry());
+    }
+
+    @Test
+    public void shouldFallBackToDatabase_beforeFirstLoad() {
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").withProductPath("service", "product").build();
+        when(productDao.findByProductPath("service", "product")).thenReturn(Optional.of(productEntity));
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+    }
+
+    @Test
+    public void shouldResolveKnownPathsWithoutQuerying_andQueryUnknownPathsOnlyOnce_afterLoad() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of("external-id", new ProductPath("service", "product")));
+        when(productDao.findByProductPath("service", "unknown")).thenReturn(Optional.empty());
+
+        productPathIndex.reload();
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+        assertThat(productPathIndex.findExternalId("service", "unknown"), is(Optional.empty()));
+        assertThat(productPathIndex.findExternalId("service", "unknown"), is(Optional.empty()));
+        assertThat(productPathIndex.findExternalId(null, "product"), is(Optional.empty()));
+        verify(productDao).findAllProductPaths();
+        verify(productDao).findByProductPath("service", "unknown");
+        verifyNoMoreInteractions(productDao);
+    }
+
+    @Test
+    public void shouldFallBackToDatabase_forAProductCommittedBeforeItsRouteArrives() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of());
+        ProductEntity productEntity = aProductEntity().withExternalId("created-id").withProductPath("service", "created").build();
+        when(productDao.findByProductPath("service", "created")).thenReturn(Optional.of(productEntity));
+
+        productPathIndex.reload();
+
+        assertThat(productPathIndex.findExternalId("service", "created"), is(Optional.of("created-id")));
+    }
+
+    @Test
+    public void shouldForgetAnUnknownPath_whenAProductIsRefreshedWithIt() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of());
+        when(productDao.findByProductPath("service", "created")).thenReturn(Optional.empty());
+        productPathIndex.reload();
+        assertThat(productPathIndex.findExternalId("service", "created"), is(Optional.empty()));
+
+        ProductEntity productEntity = aProductEntity().withExternalId("created-id").withProductPath("service", "created").build();
+        when(productDao.findByExternalId("created-id")).thenReturn(Optional.of(productEntity));
+        productPathIndex.refresh("created-id");
+
+        assertThat(productPathIndex.findExternalId("service", "created"), is(Optional.of("created-id")));
+    }
+
+    @Test
+    public void shouldDropRoutesThatNoLongerExist_onReload() {
+        when(productDao.findAllProductPaths())
+                .thenReturn(Map.of("external-id", new ProductPath("service", "product")))
+                .thenReturn(Map.of());
+
+        productPathIndex.reload();
+        productPathIndex.reload();
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldRestoreRoutesOfProductsThatStillExist_onReload() {
+        when(productDao.findAllProductPaths())
+                .thenReturn(Map.of("phantom-id", new ProductPath("service", "product")))
+                .thenReturn(Map.of("external-id", new ProductPath("service", "product")));
+
+        productPathIndex.reload();
+        productPathIndex.reload();
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+    }
+
+    @Test
+    public void shouldKeepRoutesRefreshedWhileReloading() {
+        ProductEntity productEntity = aProductEntity().withExternalId("created-id").withProductPath("service", "created").build();
+        when(productDao.findByExternalId("created-id")).thenReturn(Optional.of(productEntity));
+        when(productDao.findAllProductPaths()).thenAnswer(invocation -> {
+            productPathIndex.refresh("created-id");
+            return Map.of();
+        });
+
+        productPathIndex.reload();
+
+        assertThat(productPathIndex.findExternalId("service", "created"), is(Optional.of("created-id")));
+    }
+
+    @Test
+    public void shouldPickUpRouteCreatedOnAnotherNode_onRefresh() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of());
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").withProductPath("service", "product").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+        productPathIndex.reload();
+
+        productPathIndex.refresh("external-id");
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+    }
+
+    @Test
+    public void shouldDropRouteDeletedOnAnotherNode_onRefresh() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of("external-id", new ProductPath("service", "product")));
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.empty());
+        productPathIndex.reload();
+
+        productPathIndex.refresh("external-id");
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.empty()));
+    }
+
+    @Test
+    public void shouldNotRouteAPathAwayFromAnotherProduct_thatStillHoldsIt() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of("external-id", new ProductPath("service", "product")));
+        ProductEntity owner = aProductEntity().withExternalId("external-id").withProductPath("service", "product").build();
+        ProductEntity other = aProductEntity().withExternalId("other-id").withProductPath("service", "product").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(owner));
+        when(productDao.findByExternalId("other-id")).thenReturn(Optional.of(other));
+        productPathIndex.reload();
+
+        productPathIndex.refresh("other-id");
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+    }
+
+    @Test
+    public void shouldRouteAPathToItsNewProduct_whenThePreviousProductNoLongerHoldsIt() {
+        when(productDao.findAllProductPaths()).thenReturn(Map.of("deleted-id", new ProductPath("service", "product")));
+        ProductEntity productEntity = aProductEntity().withExternalId("external-id").withProductPath("service", "product").build();
+        when(productDao.findByExternalId("external-id")).thenReturn(Optional.of(productEntity));
+        when(productDao.findByExternalId("deleted-id")).thenReturn(Optional.empty());
+        productPathIndex.reload();
+
+        productPathIndex.refresh("external-id");
+
+        assertThat(productPathIndex.findExternalId("service", "product"), is(Optional.of("external-id")));
+    }
+}
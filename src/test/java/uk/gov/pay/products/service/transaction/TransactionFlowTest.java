@@ -1,15 +1,24 @@
 package uk.gov.pay.products.service.transaction;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class TransactionFlowTest {
 
+    private static final Executor DIRECT = Runnable::run;
+
     @Test
     public void shouldExecuteANonTransactionalOperationAndPreserveResultInContext() {
         TransactionContext mockContext = mock(TransactionContext.class);
@@ -43,4 +52,55 @@ public class TransactionFlowTest {
         TransactionFlow flow = new TransactionFlow(mockContext);
         flow.executeNext((NonTransactionalOperation<TransactionContext, String>) null);
     }
+
+    @Test
+    public void shouldExecuteAsyncOperationsInOrderAndPreserveResultsInContext() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        TransactionFlow flow = new TransactionFlow(new TransactionContext(), metricRegistry);
+        CompletableFuture<Integer> publicApiResponse = new CompletableFuture<>();
+
+        CompletableFuture<TransactionContext> result = flow
+                .executeNextAsync("first", (TransactionalOperation<TransactionContext, String>) ctx -> "Foo", DIRECT)
+                .executeNextAsync("second", (AsyncOperation<TransactionContext, Integer>) ctx -> publicApiResponse)
+                .executeNextAsync("third", (NonTransactionalOperation<TransactionContext, Long>) ctx ->
+                        (long) ctx.get(String.class).length() + ctx.get(Integer.class), DIRECT)
+                .completeAsync()
+                .toCompletableFuture();
+
+        assertThat(result.isDone(), is(false));
+        assertThat(metricRegistry.timer("transaction-flow.third").getCount(), is(0L));
+
+        publicApiResponse.complete(39);
+
+        TransactionContext context = result.join();
+        assertThat(context.get(String.class), is("Foo"));
+        assertThat(context.get(Long.class), is(42L));
+        assertThat(metricRegistry.timer("transaction-flow.first").getCount(), is(1L));
+        assertThat(metricRegistry.timer("transaction-flow.second").getCount(), is(1L));
+        assertThat(metricRegistry.timer("transaction-flow.third").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldSkipRemainingAsyncOperations_whenAnOperationFails() {
+        TransactionContext mockContext = mock(TransactionContext.class);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        TransactionFlow flow = new TransactionFlow(mockContext, metricRegistry);
+        IllegalStateException failure = new IllegalStateException();
+
+        CompletableFuture<TransactionContext> result = flow
+                .executeNextAsync("first", (AsyncOperation<TransactionContext, String>) ctx -> CompletableFuture.failedFuture(failure))
+                .executeNextAsync("second", (TransactionalOperation<TransactionContext, String>) ctx -> "Bar", DIRECT)
+                .completeAsync()
+                .toCompletableFuture();
+
+        try {
+            result.join();
+            fail("Expected the flow to complete exceptionally");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), is(failure));
+        }
+        verify(mockContext, never()).put("Bar");
+        assertThat(metricRegistry.timer("transaction-flow.first").getCount(), is(1L));
+        assertThat(metricRegistry.timer("transaction-flow.second").getCount(), is(0L));
+    }
 }
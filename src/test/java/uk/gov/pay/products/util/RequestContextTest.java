@@ -0,0 +1,63 @@
+package uk.gov.pay.products.util;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+import uk.gov.pay.products.persistence.DatabaseUsage;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RequestContextTest {
+
+    @After
+    public void tearDown() {
+        DatabaseUsage.current().ifPresent(DatabaseUsage::finish);
+        MDC.clear();
+    }
+
+    @Test
+    public void shouldRunTasksOnAWrappedExecutorWithTheCapturedContext_andRestoreTheThreadsOwnAfterwards() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> MDC.put("thread_key", "thread-value")).get();
+            MDC.put("product_external_id", "a-product");
+            DatabaseUsage usage = DatabaseUsage.start();
+
+            RequestContext requestContext = RequestContext.capture();
+            Map<String, String> loggingContextDuring = CompletableFuture
+                    .supplyAsync(MDC::getCopyOfContextMap, requestContext.wrap(executor)).get();
+            Optional<DatabaseUsage> usageDuring = CompletableFuture
+                    .supplyAsync(DatabaseUsage::current, requestContext.wrap(executor)).get();
+            Map<String, String> loggingContextAfter = executor.submit(MDC::getCopyOfContextMap).get();
+            Optional<DatabaseUsage> usageAfter = executor.submit(DatabaseUsage::current).get();
+
+            assertThat(loggingContextDuring, is(Map.of("product_external_id", "a-product")));
+            assertThat(usageDuring, is(Optional.of(usage)));
+            assertThat(loggingContextAfter, is(Map.of("thread_key", "thread-value")));
+            assertThat(usageAfter, is(Optional.empty()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldCallStepWithTheCapturedContext_onAnotherThread() throws Exception {
+        MDC.put("product_external_id", "a-product");
+        RequestContext requestContext = RequestContext.capture();
+        MDC.clear();
+
+        String productExternalId = CompletableFuture
+                .supplyAsync(() -> requestContext.call(() -> MDC.get("product_external_id"))).get();
+
+        assertThat(productExternalId, is("a-product"));
+        assertThat(MDC.get("product_external_id"), is(nullValue()));
+    }
+}
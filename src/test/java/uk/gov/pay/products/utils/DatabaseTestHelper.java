@@ -48,21 +48,43 @@ public class DatabaseTestHelper {
     }
 
     public void addPayment(Payment payment, Integer gatewayAccountId) {
-        jdbi.withHandle(handle -> handle.createUpdate("INSERT INTO payments " +
-                "(external_id, govuk_payment_id, next_url, product_id, status, amount, gateway_account_id, reference_number, date_created)" +
-                "VALUES " +
-                "(:external_id, :govuk_payment_id, :next_url, :product_id, :status, :amount, :gateway_account_id, :reference_number, :date_created)")
-                .bind("external_id", payment.getExternalId())
-                .bind("govuk_payment_id", payment.getGovukPaymentId())
-                .bind("next_url", payment.getNextUrl())
-                .bind("product_id", payment.getProductId())
-                .bind("status", payment.getStatus())
-                .bind("amount", payment.getAmount())
-                .bind("date_created", payment.getDateCreated())
-                .bind("gateway_account_id", gatewayAccountId)
-                .bind("reference_number", payment.getReferenceNumber())
-                .execute());
+        jdbi.useTransaction(handle -> {
+            handle.createUpdate("INSERT INTO payments " +
+                    "(external_id, govuk_payment_id, next_url, product_id, status, amount, gateway_account_id, reference_number, date_created)" +
+                    "VALUES " +
+                    "(:external_id, :govuk_payment_id, :next_url, :product_id, :status, :amount, :gateway_account_id, :reference_number, :date_created)")
+                    .bind("external_id", payment.getExternalId())
+                    .bind("govuk_payment_id", payment.getGovukPaymentId())
+                    .bind("next_url", payment.getNextUrl())
+                    .bind("product_id", payment.getProductId())
+                    .bind("status", payment.getStatus())
+                    .bind("amount", payment.getAmount())
+                    .bind("date_created", payment.getDateCreated())
+                    .bind("gateway_account_id", gatewayAccountId)
+                    .bind("reference_number", payment.getReferenceNumber())
+                    .execute();
+            handle.createUpdate("INSERT INTO product_usage (product_id, payment_count, last_payment_date) " +
+                    "VALUES (:product_id, 1, :date_created) " +
+                    "ON CONFLICT (product_id) DO UPDATE SET " +
+                    "payment_count = product_usage.payment_count + 1, " +
+                    "last_payment_date = GREATEST(product_usage.last_payment_date, EXCLUDED.last_payment_date)")
+                    .bind("product_id", payment.getProductId())
+                    .bind("date_created", payment.getDateCreated())
+                    .execute();
+        });
+    }
+
+    public Map<String, Object> getProductUsage(Integer productId) {
+        return jdbi.withHandle(handle -> handle.createQuery("SELECT * FROM product_usage WHERE product_id = :productId")
+                .bind("productId", productId)
+                .mapToMap()
+                .findOnly());
+    }
 
+    public void clearProductUsage(Integer productId) {
+        jdbi.withHandle(handle -> handle.createUpdate("DELETE FROM product_usage WHERE product_id = :productId")
+                .bind("productId", productId)
+                .execute());
     }
 
     public Integer findProductId(String externalId) {
@@ -112,6 +134,20 @@ public class DatabaseTestHelper {
                     .execute());
     }
 
+    public void updateProductName(String externalId, String name) {
+        jdbi.withHandle(handle -> handle.createUpdate("UPDATE products SET name = :name WHERE external_id = :externalId")
+                .bind("name", name)
+                .bind("externalId", externalId)
+                .execute());
+    }
+
+    public void notifyProductCacheInvalidation(String externalId) {
+        jdbi.withHandle(handle -> handle.createQuery("SELECT pg_notify('product_cache_invalidation', :externalId)")
+                .bind("externalId", externalId)
+                .mapTo(String.class)
+                .list());
+    }
+
     public void truncateAllData() {
         jdbi.withHandle(handle -> handle.execute("TRUNCATE TABLE products CASCADE"));
         jdbi.withHandle(handle -> handle.execute("TRUNCATE TABLE payments CASCADE"));